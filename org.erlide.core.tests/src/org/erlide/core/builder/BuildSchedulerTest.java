@@ -0,0 +1,98 @@
+package org.erlide.core.builder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class BuildSchedulerTest {
+
+	@Test
+	public void orderLongestFirst() {
+		final Map<String, Long> history = new HashMap<String, Long>();
+		history.put("a", Long.valueOf(10));
+		history.put("b", Long.valueOf(500));
+		history.put("c", Long.valueOf(60));
+		final BuildScheduler<String> s = new BuildScheduler<String>(history,
+				2, 1);
+		// "d" is unknown and estimated at the average, 190
+		final List<String> order = s.order(Arrays.asList("a", "b", "c", "d"));
+		assertEquals(Arrays.asList("b", "d", "c", "a"), order);
+	}
+
+	@Test
+	public void balanceOverNodes() {
+		final Map<String, Long> history = new HashMap<String, Long>();
+		history.put("big", Long.valueOf(1000));
+		history.put("m1", Long.valueOf(300));
+		history.put("m2", Long.valueOf(300));
+		history.put("m3", Long.valueOf(300));
+		final BuildScheduler<String> s = new BuildScheduler<String>(history,
+				2, 4);
+		int bigNode = -1;
+		final int[] nodes = new int[4];
+		int i = 0;
+		for (final String key : s.order(history.keySet())) {
+			final int node = s.selectNode();
+			s.started(key, node);
+			nodes[i++] = node;
+			if ("big".equals(key)) {
+				bigNode = node;
+			}
+		}
+		// the three small files go to the other node
+		assertEquals(1, s.getInFlight(bigNode));
+		assertEquals(3, s.getInFlight(1 - bigNode));
+		assertEquals(bigNode, nodes[0]);
+	}
+
+	@Test
+	public void busyNodesAreSkipped() {
+		final BuildScheduler<String> s = new BuildScheduler<String>(
+				new HashMap<String, Long>(), 2, 1);
+		s.started("a", s.selectNode());
+		s.started("b", s.selectNode());
+		assertEquals(-1, s.selectNode());
+		final int node = s.finished("a");
+		assertEquals(node, s.selectNode());
+		assertEquals(-1, s.finished("x"));
+	}
+
+	@Test
+	public void downNodesAreSkipped() {
+		final Map<String, Long> history = new HashMap<String, Long>();
+		final BuildScheduler<String> s = new BuildScheduler<String>(history,
+				2, 1);
+		s.started("a", 0);
+		s.started("b", 1);
+		s.nodeDown(0, Arrays.asList("a"));
+		assertEquals(0, s.getInFlight(0));
+		assertEquals(-1, s.selectNode());
+		assertEquals(-1, s.finished("a"));
+		assertFalse(history.containsKey("a"));
+		assertFalse(s.allDown());
+		s.finished("b");
+		assertEquals(1, s.selectNode());
+		s.nodeDown(1, new ArrayList<String>());
+		assertEquals(-1, s.selectNode());
+		assertTrue(s.allDown());
+	}
+
+	@Test
+	public void finishedUpdatesHistory() {
+		final Map<String, Long> history = new HashMap<String, Long>();
+		final BuildScheduler<String> s = new BuildScheduler<String>(history,
+				1, 1);
+		s.started("a", 0);
+		s.finished("a");
+		assertTrue(history.containsKey("a"));
+		assertEquals(0, s.getInFlight(0));
+	}
+}
@@ -0,0 +1,118 @@
+package org.erlide.core.erlang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+
+public class ErlTokenArrayTest {
+
+	// a() -> b.\nc.
+	private static final int[][] TOKENS = { { ErlToken.KIND_ATOM, 0, 1 },
+			{ '(', 1, 1 }, { ')', 2, 1 }, { ErlToken.KIND_OTHER, 4, 2 },
+			{ ErlToken.KIND_ATOM, 7, 1 }, { 7, 8, 1 },
+			{ ErlToken.KIND_ATOM, 10, 1 }, { 7, 11, 1 } };
+
+	@Test
+	public void getTokenAt() {
+		final ErlTokenArray a = new ErlTokenArray();
+		assertFalse(a.isValid());
+		a.setTokens(pack(TOKENS));
+		assertTrue(a.isValid());
+		assertEquals(8, a.size());
+		assertToken(a.getTokenAt(0), ErlToken.KIND_ATOM, 0, 1);
+		assertToken(a.getTokenAt(5), ErlToken.KIND_OTHER, 4, 2);
+		assertToken(a.getTokenAt(11), 7, 11, 1);
+		// whitespace and end of text
+		assertNull(a.getTokenAt(3));
+		assertNull(a.getTokenAt(9));
+		assertNull(a.getTokenAt(12));
+	}
+
+	@Test
+	public void replaceFirstLine() {
+		final ErlTokenArray a = new ErlTokenArray();
+		a.setTokens(pack(TOKENS));
+		// "a" -> "test": the first line, 10 characters, is now 13 long
+		a.replace(0, 10, 13, pack(new int[][] { { ErlToken.KIND_ATOM, 0, 4 },
+				{ '(', 4, 1 }, { ')', 5, 1 }, { ErlToken.KIND_OTHER, 7, 2 },
+				{ ErlToken.KIND_ATOM, 10, 1 }, { 7, 11, 1 } }));
+		assertEquals(8, a.size());
+		assertToken(a.getTokenAt(3), ErlToken.KIND_ATOM, 0, 4);
+		assertToken(a.getTokenAt(13), ErlToken.KIND_ATOM, 13, 1);
+		assertToken(a.getTokenAt(14), 7, 14, 1);
+	}
+
+	@Test
+	public void replaceGrowsAndShrinks() {
+		final ErlTokenArray a = new ErlTokenArray();
+		a.setTokens(pack(TOKENS));
+		// the last line "c." becomes "c(x, y)."
+		a.replace(10, 2, 8, pack(new int[][] { { ErlToken.KIND_ATOM, 10, 1 },
+				{ '(', 11, 1 }, { ErlToken.KIND_VAR, 12, 1 }, { ',', 13, 1 },
+				{ ErlToken.KIND_VAR, 15, 1 }, { ')', 16, 1 }, { 7, 17, 1 } }));
+		assertEquals(13, a.size());
+		assertToken(a.getTokenAt(15), ErlToken.KIND_VAR, 15, 1);
+		assertToken(a.getTokenAt(8), 7, 8, 1);
+		// the first line is removed
+		a.replace(0, 10, 0, new byte[0]);
+		assertEquals(7, a.size());
+		assertToken(a.getTokenAt(0), ErlToken.KIND_ATOM, 0, 1);
+		assertToken(a.getTokenAt(7), 7, 7, 1);
+	}
+
+	@Test
+	public void setTokensWithOffset() {
+		final ErlTokenArray a = new ErlTokenArray();
+		a.setTokens(pack(TOKENS), 100);
+		assertEquals(8, a.size());
+		assertEquals(ErlToken.KIND_ATOM, a.getKind(0));
+		assertEquals(104, a.getOffset(3));
+		assertEquals(2, a.getLength(3));
+		assertEquals('(', a.getKind(1));
+		// fewer tokens in the same arrays
+		a.setTokens(pack(new int[][] { { ErlToken.KIND_VAR, 0, 3 } }), 10);
+		assertEquals(1, a.size());
+		assertToken(a.getTokenAt(11), ErlToken.KIND_VAR, 10, 3);
+		assertNull(a.getTokenAt(104));
+	}
+
+	@Test
+	public void invalidate() {
+		final ErlTokenArray a = new ErlTokenArray();
+		a.setTokens(pack(TOKENS));
+		a.invalidate();
+		assertFalse(a.isValid());
+		a.replace(0, 10, 10, pack(TOKENS));
+		assertFalse(a.isValid());
+		assertNull(a.getTokenAt(0));
+	}
+
+	private static void assertToken(final ErlToken t, final int kind,
+			final int offset, final int length) {
+		assertEquals(kind, t.getKind());
+		assertEquals(offset, t.getOffset());
+		assertEquals(length, t.getLength());
+	}
+
+	private static byte[] pack(final int[][] tokens) {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (final int[] t : tokens) {
+			out.write(t[0]);
+			write24(out, 0);
+			write24(out, t[1]);
+			write24(out, t[2]);
+		}
+		return out.toByteArray();
+	}
+
+	private static void write24(final ByteArrayOutputStream out, final int i) {
+		out.write(i >> 16);
+		out.write(i >> 8);
+		out.write(i);
+	}
+}
@@ -0,0 +1,58 @@
+package org.erlide.core.erlang.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.erlide.core.erlang.ErlModelException;
+import org.erlide.core.erlang.ErlangCore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ModuleCacheTest {
+
+	private ErlModule module;
+
+	@Before
+	public void setUp() throws Exception {
+		module = (ErlModule) ErlangCore.getModelManager().getModuleFromText(
+				"evicted.erl", "-module(evicted).\nf() -> ok.\ng() -> ok.\n",
+				null);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		module.dispose();
+		module = null;
+	}
+
+	@Test
+	public void closedModuleIsEvictedAndBuiltAgain() throws ErlModelException {
+		module.open(null);
+		final int children = module.getChildren().size();
+		assertTrue(children > 0);
+		final ModuleCache cache = new ModuleCache(0);
+		cache.touch(module);
+		cache.evict();
+		assertEquals(0, cache.size());
+		assertFalse(module.isStructureKnown());
+		assertEquals(children, module.getChildren().size());
+		assertTrue(module.isStructureKnown());
+	}
+
+	@Test
+	public void moduleOpenInEditorIsKept() throws ErlModelException {
+		module.initialReconcile();
+		try {
+			module.open(null);
+			final ModuleCache cache = new ModuleCache(0);
+			cache.touch(module);
+			cache.evict();
+			assertEquals(1, cache.size());
+			assertTrue(module.isStructureKnown());
+		} finally {
+			module.finalReconcile();
+		}
+	}
+}
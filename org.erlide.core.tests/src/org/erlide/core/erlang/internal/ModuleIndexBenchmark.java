@@ -0,0 +1,132 @@
+package org.erlide.core.erlang.internal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.erlide.core.erlang.IErlElement;
+import org.erlide.core.erlang.IErlModule;
+import org.erlide.core.erlang.IErlProject;
+
+/**
+ * Measures finding modules by name in 50 projects with 200 modules each, by
+ * walking the projects like {@link ErlFolder} used to and with a
+ * {@link ModuleIndex}, case sensitive and case insensitive.
+ */
+public class ModuleIndexBenchmark {
+
+	private static final int PROJECTS = 50;
+	private static final int MODULES = 200;
+	private static final int LOOKUPS = 20000;
+
+	public static void main(final String[] args) throws Exception {
+		final List<IErlProject> projects = new ArrayList<IErlProject>();
+		final ModuleIndex index = new ModuleIndex();
+		for (int p = 0; p < PROJECTS; p++) {
+			final List<IErlElement> modules = new ArrayList<IErlElement>();
+			final IErlProject project = (IErlProject) stub(IErlProject.class,
+					"project" + p, null, modules);
+			for (int m = 0; m < MODULES; m++) {
+				final IErlModule module = (IErlModule) stub(IErlModule.class,
+						"mod_" + p + "_" + m + ".erl", project, null);
+				modules.add(module);
+				index.add(module);
+			}
+			projects.add(project);
+		}
+		final Random random = new Random(17);
+		final String[] names = new String[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			// one in ten names doesn't exist
+			final int p = random.nextInt(PROJECTS + PROJECTS / 10);
+			names[i] = "mod_" + p + "_" + random.nextInt(MODULES);
+		}
+		System.out.println(String.format("%d modules in %d projects",
+				index.size(), PROJECTS));
+		for (int round = 0; round < 3; round++) {
+			for (final boolean ci : new boolean[] { false, true }) {
+				long t = System.nanoTime();
+				int found = 0;
+				for (final String name : names) {
+					if (scan(projects, name, ci) != null) {
+						found++;
+					}
+				}
+				final long scanTime = System.nanoTime() - t;
+				t = System.nanoTime();
+				int indexFound = 0;
+				for (final String name : names) {
+					if (find(index, projects, name, ci) != null) {
+						indexFound++;
+					}
+				}
+				final long indexTime = System.nanoTime() - t;
+				if (found != indexFound) {
+					throw new IllegalStateException(found + " != "
+							+ indexFound);
+				}
+				System.out.println(String.format(
+						"%s: scan %8.2f us/lookup, index %6.2f us/lookup "
+								+ "(%d found)", ci ? "case insensitive"
+								: "case sensitive  ", scanTime / 1000.0
+								/ LOOKUPS, indexTime / 1000.0 / LOOKUPS, found));
+			}
+		}
+	}
+
+	private static IErlModule scan(final List<IErlProject> projects,
+			final String name, final boolean ci) throws Exception {
+		for (final IErlProject project : projects) {
+			for (final IErlElement e : project.getChildren()) {
+				final String moduleName = ((IErlModule) e).getModuleName();
+				if (ci ? moduleName.equalsIgnoreCase(name) : moduleName
+						.equals(name)) {
+					return (IErlModule) e;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static IErlModule find(final ModuleIndex index,
+			final List<IErlProject> projects, final String name,
+			final boolean ci) {
+		for (final IErlProject project : projects) {
+			final IErlModule m = index.find(project, name, ci);
+			if (m != null) {
+				return m;
+			}
+		}
+		return null;
+	}
+
+	private static Object stub(final Class<?> type, final String name,
+			final IErlElement parent, final List<IErlElement> children) {
+		return Proxy.newProxyInstance(type.getClassLoader(),
+				new Class<?>[] { type }, new InvocationHandler() {
+			public Object invoke(final Object proxy, final Method method,
+					final Object[] args) {
+				final String m = method.getName();
+				if (m.equals("getName")) {
+					return name;
+				} else if (m.equals("getModuleName")) {
+					return name.substring(0, name.lastIndexOf('.'));
+				} else if (m.equals("getParent")) {
+					return parent;
+				} else if (m.equals("getChildren")) {
+					return children;
+				} else if (m.equals("equals")) {
+					return Boolean.valueOf(proxy == args[0]);
+				} else if (m.equals("hashCode")) {
+					return Integer.valueOf(System.identityHashCode(proxy));
+				} else if (m.equals("toString")) {
+					return name;
+				}
+				throw new UnsupportedOperationException(m);
+			}
+		});
+	}
+}
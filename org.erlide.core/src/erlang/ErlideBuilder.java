@@ -9,6 +9,7 @@ import org.erlide.core.erlang.ErlangCore;
 import org.erlide.core.erlang.util.ErlideUtil;
 import org.erlide.jinterface.backend.Backend;
 import org.erlide.jinterface.backend.BackendException;
+import org.erlide.jinterface.rpc.RpcCompletionQueue;
 import org.erlide.jinterface.rpc.RpcFuture;
 import org.erlide.jinterface.util.ErlLogger;
 import org.erlide.runtime.backend.ErlideBackend;
@@ -35,6 +36,28 @@ public class ErlideBuilder {
 		}
 	}
 
+	/**
+	 * Like {@link #compileErl(Backend, IPath, String, Collection, OtpErlangList)}
+	 * , but the result is delivered to the queue.
+	 */
+	public static <T> boolean compileErl(final RpcCompletionQueue<T> queue,
+			final T key, final IPath fn, final String outputdir,
+			final Collection<IPath> includedirs,
+			final OtpErlangList compilerOptions) {
+		List<String> incs = Lists.newArrayList();
+		for (IPath p : includedirs) {
+			incs.add(p.toString());
+		}
+		try {
+			queue.submit(key, "erlide_builder", "compile", "sslsx", fn
+					.toString(), outputdir, incs, compilerOptions);
+			return true;
+		} catch (final Exception e) {
+			ErlLogger.debug(e);
+			return false;
+		}
+	}
+
 	public static OtpErlangList getSourceClashes(final Backend backend,
 			final String[] dirList) throws BackendException {
 		final OtpErlangObject res = backend.call("erlide_builder",
@@ -71,6 +94,18 @@ public class ErlideBuilder {
 		}
 	}
 
+	public static <T> boolean compileYrl(final RpcCompletionQueue<T> queue,
+			final T key, final String fn, final String output) {
+		try {
+			queue.submit(key, "erlide_builder", "compile_yrl", "ss", fn,
+					output);
+			return true;
+		} catch (final Exception e) {
+			ErlLogger.debug(e);
+			return false;
+		}
+	}
+
 	public static RpcFuture compileYrl(Backend backend, String fn, String output) {
 		try {
 			return backend.async_call("erlide_builder", "compile_yrl", "ss",
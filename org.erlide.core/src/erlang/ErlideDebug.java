@@ -1,5 +1,6 @@
 package erlang;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.core.runtime.IStatus;
@@ -10,6 +11,8 @@ import org.erlide.jinterface.backend.Backend;
 import org.erlide.jinterface.backend.BackendException;
 import org.erlide.jinterface.backend.BackendUtil;
 import org.erlide.jinterface.backend.util.Util;
+import org.erlide.jinterface.rpc.RpcCall;
+import org.erlide.jinterface.rpc.RpcResult;
 import org.erlide.jinterface.util.ErlLogger;
 import org.erlide.runtime.debug.ErlDebugConstants;
 
@@ -101,6 +104,59 @@ public class ErlideDebug {
         return null;
     }
 
+    /**
+     * Get several process_info items with a single (batched) call.
+     *
+     * @return the values in the same order as the items, null for those that
+     *         could not be retrieved
+     */
+    public static OtpErlangObject[] getProcessInfos(final Backend backend,
+            final OtpErlangPid pid, final String... items) {
+        final OtpErlangObject[] result = new OtpErlangObject[items.length];
+        final List<RpcCall> calls = new ArrayList<RpcCall>(items.length);
+        for (final String item : items) {
+            calls.add(new RpcCall("erlide_debug", "process_info", "pa", pid,
+                    item));
+        }
+        try {
+            final List<RpcResult> res = backend.call_batch(calls);
+            for (int i = 0; i < items.length; i++) {
+                final OtpErlangObject r = res.get(i).getValue();
+                if (res.get(i).isOk() && r instanceof OtpErlangTuple) {
+                    result[i] = ((OtpErlangTuple) r).elementAt(1);
+                }
+            }
+        } catch (final BackendException e) {
+            ErlLogger.warn(e);
+        }
+        return result;
+    }
+
+    /**
+     * Combines {@link #isSystemProcess} and {@link #isErlideProcess} in a
+     * single call.
+     *
+     * @return {isSystemProcess, isErlideProcess}
+     */
+    public static boolean[] getProcessKind(final Backend backend,
+            final OtpErlangPid pid) {
+        final boolean[] result = new boolean[] { false, false };
+        final List<RpcCall> calls = new ArrayList<RpcCall>(2);
+        calls.add(new RpcCall("pman_process", "is_system_process", "s", pid));
+        calls.add(new RpcCall("erlide_debug", "is_erlide_process", "p", pid));
+        try {
+            final List<RpcResult> res = backend.call_batch(calls);
+            for (int i = 0; i < result.length; i++) {
+                final OtpErlangObject r = res.get(i).getValue();
+                result[i] = r instanceof OtpErlangAtom
+                        && "true".equals(((OtpErlangAtom) r).atomValue());
+            }
+        } catch (final BackendException e) {
+            ErlLogger.warn(e);
+        }
+        return result;
+    }
+
     public static boolean isErlideProcess(final Backend backend,
             final OtpErlangPid pid) {
         boolean res = false;
@@ -1,10 +1,13 @@
 package erlang;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
 import org.erlide.jinterface.backend.Backend;
 import org.erlide.jinterface.backend.BackendException;
+import org.erlide.jinterface.rpc.RpcCall;
+import org.erlide.jinterface.rpc.RpcResult;
 import org.erlide.jinterface.util.ErlLogger;
 
 import com.ericsson.otp.erlang.OtpErlangList;
@@ -23,6 +26,36 @@ public class ErlideDoc {
 		return res;
 	}
 
+	/**
+	 * Like {@link #getProposalsWithDoc(Backend, String, String, String)} for
+	 * several modules, with a single call. The results are in the same order
+	 * as the modules, null for failed lookups.
+	 */
+	public static List<OtpErlangObject> getProposalsWithDoc(final Backend b,
+			final List<String> mods, final String prefix, final String stateDir) {
+		final List<OtpErlangObject> result = new ArrayList<OtpErlangObject>(
+				mods.size());
+		if (mods.isEmpty()) {
+			return result;
+		}
+		final List<RpcCall> calls = new ArrayList<RpcCall>(mods.size());
+		for (final String mod : mods) {
+			calls.add(new RpcCall("erlide_otp_doc", "get_proposals", "ass",
+					mod, prefix, stateDir));
+		}
+		try {
+			for (final RpcResult r : b.call_batch(calls)) {
+				result.add(r.isOk() ? r.getValue() : null);
+			}
+		} catch (final BackendException e) {
+			ErlLogger.warn(e);
+			for (int i = result.size(); i < mods.size(); i++) {
+				result.add(null);
+			}
+		}
+		return result;
+	}
+
 	public static OtpErlangObject getModules(final Backend b,
 			final String prefix, final List<String> projectModules) {
 		OtpErlangObject res = null;
@@ -14,6 +14,13 @@ public class ErlideNoparse {
 
     private static final String ERLIDE_NOPARSE = "erlide_noparse";
 
+    /**
+     * Parse a module and give its forms the ids used by
+     * {@link #reparseChanged(Backend, String, boolean)}.
+     * 
+     * @return <code>{ok, Model, Cached, FormIds}</code>, with an id for each
+     *         form of the model, in order
+     */
     public static OtpErlangTuple initialParse(final Backend b,
             final String scannerModuleName, final String moduleFileName,
             final String stateDir, final boolean updateCaches,
@@ -21,7 +28,7 @@ public class ErlideNoparse {
         OtpErlangTuple res = null;
         try {
             res = (OtpErlangTuple) b.call(200000, ERLIDE_NOPARSE,
-                    "initial_parse", "assoo", scannerModuleName,
+                    "initial_parse_with_ids", "assoo", scannerModuleName,
                     moduleFileName, stateDir, updateCaches, updateRefs);
             if (res.arity() > 2) {
                 // ErlLogger.debug("initialParse " + res.elementAt(2));
@@ -44,6 +51,23 @@ public class ErlideNoparse {
         return res;
     }
 
+    /**
+     * Reparse, getting only the forms that changed since the last call.
+     * 
+     * @return {ok, [{same, Id, Line, Offset} | {new, Id, Form}], Comments}
+     */
+    public static OtpErlangTuple reparseChanged(final Backend b,
+            final String scannerModuleName, final boolean incremental) {
+        OtpErlangTuple res = null;
+        try {
+            res = (OtpErlangTuple) b.call(20000, ERLIDE_NOPARSE,
+                    "reparse_changed", "ao", scannerModuleName, incremental);
+        } catch (final BackendException e) {
+            ErlLogger.warn(e);
+        }
+        return res;
+    }
+
     // public static void destroy(final Backend b, final String module) {
     // try {
     // b.call("erlide_noparse_server", "destroy", "a", module);
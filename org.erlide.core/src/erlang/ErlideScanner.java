@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.erlide.core.ErlangPlugin;
 import org.erlide.core.erlang.ErlToken;
+import org.erlide.core.erlang.ErlTokenArray;
 import org.erlide.core.erlang.ErlangCore;
 import org.erlide.jinterface.backend.BackendException;
 import org.erlide.jinterface.backend.util.Assert;
@@ -14,8 +15,9 @@ import org.erlide.jinterface.util.ErlUtils;
 
 import com.ericsson.otp.erlang.OtpErlangAtom;
 import com.ericsson.otp.erlang.OtpErlangBinary;
-import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
 import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangRangeException;
 import com.ericsson.otp.erlang.OtpErlangTuple;
 
 public class ErlideScanner {
@@ -71,9 +73,33 @@ public class ErlideScanner {
         return null;
     }
 
+    /**
+     * @return the tokens of the module, packed like in
+     *         {@link ErlTokenArray}, or null
+     */
+    public static byte[] getPackedTokens(final String module) {
+        try {
+            final OtpErlangObject r = ErlangCore.getBackendManager()
+                    .getIdeBackend()
+                    .call(ERLIDE_SCANNER, "getPackedTokens", "a", module);
+            if (r instanceof OtpErlangBinary) {
+                return ((OtpErlangBinary) r).binaryValue();
+            }
+            ErlLogger.debug("getPackedTokens -> " + r);
+        } catch (final BackendException e) {
+            ErlLogger.debug(e);
+        }
+        return null;
+    }
+
+    /**
+     * Replace text in the scanner, and the rescanned tokens in the copy of
+     * the tokens.
+     */
     @SuppressWarnings("boxing")
     public static void replaceText(final String module, final int offset,
-            final int removeLength, final String newText) {
+            final int removeLength, final String newText,
+            final ErlTokenArray tokens) {
         try {
             // ErlLogger.debug("replaceText %s %d %d <length %d>", module,
             // offset,
@@ -83,14 +109,26 @@ public class ErlideScanner {
             final OtpErlangObject r = ErlangCore
                     .getBackendManager()
                     .getIdeBackend()
-                    .call(ERLIDE_SCANNER, "replaceText", "aiis", module,
+                    .call(ERLIDE_SCANNER, "replaceTextPacked", "aiis", module,
                             offset, removeLength, newText);
-            if (r instanceof OtpErlangTuple) {
-                ErlLogger.error("GOT::" + r.toString());
+            // {ok, Pos, OldLength, NewLength, Tokens}
+            if (r instanceof OtpErlangTuple && Util.isOk((OtpErlangTuple) r)
+                    && ((OtpErlangTuple) r).arity() == 5) {
+                final OtpErlangTuple t = (OtpErlangTuple) r;
+                tokens.replace(((OtpErlangLong) t.elementAt(1)).intValue(),
+                        ((OtpErlangLong) t.elementAt(2)).intValue(),
+                        ((OtpErlangLong) t.elementAt(3)).intValue(),
+                        ((OtpErlangBinary) t.elementAt(4)).binaryValue());
+                return;
             }
+            ErlLogger.error("GOT::" + r);
         } catch (final BackendException e) {
             ErlLogger.debug(e);
+        } catch (final OtpErlangRangeException e) {
+            ErlLogger.warn(e);
         }
+        // the copy can't follow the scanner anymore
+        tokens.invalidate();
     }
 
     /**
@@ -101,6 +139,29 @@ public class ErlideScanner {
      */
     public static List<ErlToken> lightScanString(final String string,
             final int offset) throws BackendException {
+        final byte[] bytes = lightScan(string);
+        final List<ErlToken> toks = new ArrayList<ErlToken>(bytes.length / 10);
+        for (int i = 0; i < bytes.length; i += 10) {
+            final ErlToken tk = new ErlToken(bytes, i);
+            tk.fixOffset(offset);
+            toks.add(tk);
+        }
+        return toks;
+    }
+
+    /**
+     * Scan a string into a token array, without creating a token object for
+     * each token.
+     * 
+     * @throws BackendException
+     */
+    public static void lightScanString(final String string, final int offset,
+            final ErlTokenArray tokens) throws BackendException {
+        tokens.setTokens(lightScan(string), offset);
+    }
+
+    private static byte[] lightScan(final String string)
+            throws BackendException {
         OtpErlangObject r1 = null;
         try {
             r1 = ErlangCore.getBackendManager().getIdeBackend()
@@ -109,48 +170,21 @@ public class ErlideScanner {
             throw new BackendException("Could not parse string \"" + string
                     + "\": " + e.getMessage());
         }
-        if (r1 == null) {
-            return null;
-        }
-
         if (!(r1 instanceof OtpErlangTuple)) {
             throw new BackendException("Could not parse string \"" + string
                     + "\": weird return value " + r1);
         }
         final OtpErlangTuple t1 = (OtpErlangTuple) r1;
-
-        List<ErlToken> toks = null;
         if (!(t1.elementAt(0) instanceof OtpErlangAtom)) {
             throw new BackendException("Could not parse string \"" + string
                     + "\": funny return value" + t1);
         }
-        if (Util.isOk(t1)) {
-            if (t1.elementAt(1) instanceof OtpErlangList) {
-                final OtpErlangList l = (OtpErlangList) t1.elementAt(1);
-                if (l != null) {
-                    toks = new ArrayList<ErlToken>(l.arity() + 1);
-                    for (final OtpErlangObject o : l) {
-                        final OtpErlangTuple t = (OtpErlangTuple) o;
-                        final ErlToken tk = new ErlToken(t);
-                        tk.fixOffset(offset);
-                        toks.add(tk);
-                    }
-                    return toks;
-                }
-            } else if (t1.elementAt(1) instanceof OtpErlangBinary) {
-                final OtpErlangBinary b = (OtpErlangBinary) t1.elementAt(1);
-                final byte[] bytes = b.binaryValue();
-                toks = new ArrayList<ErlToken>(bytes.length / 10);
-                for (int i = 0; i < bytes.length; i += 10) {
-                    final ErlToken tk = new ErlToken(bytes, i);
-                    tk.fixOffset(offset);
-                    toks.add(tk);
-                }
-                return toks;
-            }
+        // {ok, <<Kind, Line:24, Offset:24, Length:24, ...>>}
+        if (Util.isOk(t1) && t1.elementAt(1) instanceof OtpErlangBinary) {
+            return ((OtpErlangBinary) t1.elementAt(1)).binaryValue();
         }
         throw new BackendException("Could not parse string \"" + string
-                + "\": " + t1.elementAt(1).toString());
+                + "\": " + t1);
     }
 
     public static String checkAll(final String module, final String text) {
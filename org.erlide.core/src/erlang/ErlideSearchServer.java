@@ -2,13 +2,16 @@ package erlang;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.resources.IResource;
 import org.erlide.core.erlang.IErlModule;
 import org.erlide.core.search.ModuleLineFunctionArityRef;
 import org.erlide.core.text.ErlangToolkit;
 import org.erlide.jinterface.backend.Backend;
+import org.erlide.jinterface.backend.BackendException;
 import org.erlide.jinterface.backend.util.Util;
 import org.erlide.jinterface.util.ErlLogger;
 
@@ -24,6 +27,12 @@ public class ErlideSearchServer {
 
     private static final int SEARCH_LONG_TIMEOUT = 50000;
 
+    /**
+     * The topic of the events with the results of
+     * {@link #startFindRefs(Backend, ErlangSearchPattern, Collection, String, long)}
+     */
+    public static final String FIND_REFS_EVENT = "find_refs";
+
     private static OtpErlangList getModulesFromScope(
             final Collection<IResource> scope) {
         final OtpErlangObject result[] = new OtpErlangObject[scope.size()];
@@ -58,6 +67,61 @@ public class ErlideSearchServer {
         return result;
     }
 
+    /**
+     * Start a search that sends its results in chunks, as they are found, in
+     * {@link #FIND_REFS_EVENT} events. Their contents are read with
+     * {@link #getSearchEvent(OtpErlangObject, long, List)}.
+     *
+     * @param id
+     *            identifies the events of this search
+     */
+    public static void startFindRefs(final Backend b,
+            final ErlangSearchPattern ref, final Collection<IResource> scope,
+            final String stateDir, final long id) throws BackendException {
+        b.call("erlide_search_server", "start_find_refs", "xxsx", ref
+                .getSearchObject(), getModulesFromScope(scope), stateDir,
+                new OtpErlangLong(id));
+    }
+
+    /**
+     * Stop a search started with
+     * {@link #startFindRefs(Backend, ErlangSearchPattern, Collection, String, long)}
+     * ; no more events are sent for it.
+     */
+    public static void cancelFindRefs(final Backend b, final long id) {
+        try {
+            b.call("erlide_search_server", "cancel_find_refs", "x",
+                    new OtpErlangLong(id));
+        } catch (final BackendException e) {
+            ErlLogger.warn(e);
+        }
+    }
+
+    /**
+     * Read a {@link #FIND_REFS_EVENT} event.
+     *
+     * @param result
+     *            the refs in the event are added here
+     * @return true if the search is finished
+     */
+    public static boolean getSearchEvent(final OtpErlangObject msg,
+            final long id, final List<ModuleLineFunctionArityRef> result)
+            throws OtpErlangRangeException {
+        final OtpErlangTuple t = (OtpErlangTuple) msg;
+        if (((OtpErlangLong) t.elementAt(0)).longValue() != id) {
+            return false;
+        }
+        final OtpErlangObject r = t.elementAt(1);
+        if (Util.isOk(r)) {
+            addSearchResult(result, r);
+            return false;
+        }
+        if (!(r instanceof OtpErlangAtom)) {
+            ErlLogger.error("search failed: %s", r);
+        }
+        return true;
+    }
+
     public static List<ModuleLineFunctionArityRef> findRefs(final Backend b,
             final ErlangSearchPattern ref, final IErlModule module,
             final String stateDir) {
@@ -70,6 +134,52 @@ public class ErlideSearchServer {
         return findRefs(b, ref, l, stateDir);
     }
 
+    /**
+     * @return the size of the search index: the number of modules, live
+     *         modules (updated from editor buffers) and refs, and the memory
+     *         used in bytes
+     */
+    public static Map<String, Long> getIndexStatistics(final Backend b) {
+        try {
+            return getStatistics(b.call("erlide_search_server",
+                    "index_stats", ""));
+        } catch (final Exception e) {
+            ErlLogger.error(e);
+        }
+        return new HashMap<String, Long>();
+    }
+
+    /**
+     * Drop the search index, except for the modules updated from editor
+     * buffers, and index the modules in the scope again.
+     */
+    public static Map<String, Long> rebuildIndex(final Backend b,
+            final Collection<IResource> scope, final String stateDir) {
+        try {
+            return getStatistics(b.call(SEARCH_LONG_TIMEOUT,
+                    "erlide_search_server", "rebuild_index", "xs",
+                    getModulesFromScope(scope), stateDir));
+        } catch (final Exception e) {
+            ErlLogger.error(e);
+        }
+        return new HashMap<String, Long>();
+    }
+
+    private static Map<String, Long> getStatistics(final OtpErlangObject r) {
+        final Map<String, Long> result = new HashMap<String, Long>();
+        if (Util.isOk(r)) {
+            final OtpErlangList l = (OtpErlangList) ((OtpErlangTuple) r)
+                    .elementAt(1);
+            for (final OtpErlangObject i : l) {
+                final OtpErlangTuple t = (OtpErlangTuple) i;
+                final OtpErlangAtom key = (OtpErlangAtom) t.elementAt(0);
+                final OtpErlangLong value = (OtpErlangLong) t.elementAt(1);
+                result.put(key.atomValue(), Long.valueOf(value.longValue()));
+            }
+        }
+        return result;
+    }
+
     private static void addSearchResult(
             final List<ModuleLineFunctionArityRef> result,
             final OtpErlangObject r) throws OtpErlangRangeException {
@@ -27,6 +27,7 @@ import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Plugin;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.erlide.core.builder.IncludeDependencyIndex;
 import org.erlide.core.erlang.ErlangCore;
 import org.erlide.core.erlang.util.ErlideUtil;
 import org.erlide.core.platform.PlatformChangeListener;
@@ -118,6 +119,7 @@ public class ErlangPlugin extends Plugin {
     public void stop(final BundleContext context) throws Exception {
         try {
             ResourcesPlugin.getWorkspace().removeSaveParticipant(this);
+            IncludeDependencyIndex.getDefault().save();
             ErlangCore.getModelManager().shutdown();
             platformListener.dispose();
         } finally {
@@ -173,6 +175,7 @@ public class ErlangPlugin extends Plugin {
 
                     public void saving(final ISaveContext context1)
                             throws CoreException {
+                        IncludeDependencyIndex.getDefault().save();
                         try {
                             (new InstanceScope()).getNode(PLUGIN_ID).flush();
                         } catch (BackingStoreException e) {
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.core.builder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spreads compiles over several build nodes. The files are started longest
+ * first, each on the node with the least estimated work in flight, using the
+ * time each file took to compile the last time.
+ * <p>
+ * Not thread safe; it is used from the builder thread only.
+ */
+final class BuildScheduler<K> {
+
+    private static final long DEFAULT_ESTIMATE = 100;
+
+    private final Map<K, Long> history;
+    private final int maxPerNode;
+    private final long defaultEstimate;
+    private final int[] inFlight;
+    private final long[] load;
+    private final boolean[] down;
+    private final Map<K, Running> running = new HashMap<K, Running>();
+
+    private static final class Running {
+        final int node;
+        final long estimate;
+        final long start;
+
+        Running(final int node, final long estimate, final long start) {
+            this.node = node;
+            this.estimate = estimate;
+            this.start = start;
+        }
+    }
+
+    /**
+     * @param history
+     *            compile times in milliseconds from previous builds; it is
+     *            updated as compiles finish
+     */
+    BuildScheduler(final Map<K, Long> history, final int nodes,
+            final int maxPerNode) {
+        this.history = history;
+        this.maxPerNode = Math.max(1, maxPerNode);
+        inFlight = new int[nodes];
+        load = new long[nodes];
+        down = new boolean[nodes];
+        defaultEstimate = getDefaultEstimate(history);
+    }
+
+    /**
+     * @return the keys, the ones expected to take longest first
+     */
+    List<K> order(final Collection<K> keys) {
+        final List<K> result = new ArrayList<K>(keys);
+        final Map<K, Long> estimates = new HashMap<K, Long>();
+        for (final K key : result) {
+            estimates.put(key, Long.valueOf(estimate(key)));
+        }
+        Collections.sort(result, new Comparator<K>() {
+            public int compare(final K o1, final K o2) {
+                return estimates.get(o2).compareTo(estimates.get(o1));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return the node where the next compile should run, or -1 if all nodes
+     *         are busy or down
+     */
+    int selectNode() {
+        int best = -1;
+        for (int i = 0; i < inFlight.length; i++) {
+            if (!down[i] && inFlight[i] < maxPerNode
+                    && (best < 0 || load[i] < load[best])) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    void started(final K key, final int node) {
+        final long estimate = estimate(key);
+        running.put(key, new Running(node, estimate, System
+                .currentTimeMillis()));
+        inFlight[node]++;
+        load[node] += estimate;
+    }
+
+    /**
+     * Record the compile time.
+     *
+     * @return the node where the compile ran, or -1 if it wasn't started
+     *         with {@link #started(Object, int)}
+     */
+    int finished(final K key) {
+        final Running r = running.remove(key);
+        if (r == null) {
+            return -1;
+        }
+        inFlight[r.node]--;
+        load[r.node] -= r.estimate;
+        history.put(key, Long.valueOf(System.currentTimeMillis() - r.start));
+        return r.node;
+    }
+
+    /**
+     * Don't start more compiles on a node that went down, and forget the ones
+     * running there, without recording their times.
+     */
+    void nodeDown(final int node, final Collection<K> keys) {
+        down[node] = true;
+        for (final K key : keys) {
+            final Running r = running.remove(key);
+            if (r != null) {
+                inFlight[r.node]--;
+                load[r.node] -= r.estimate;
+            }
+        }
+    }
+
+    boolean isDown(final int node) {
+        return down[node];
+    }
+
+    /**
+     * @return true if all the nodes went down
+     */
+    boolean allDown() {
+        for (final boolean d : down) {
+            if (!d) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int getInFlight(final int node) {
+        return inFlight[node];
+    }
+
+    private long estimate(final K key) {
+        final Long t = history.get(key);
+        return t != null ? t.longValue() : defaultEstimate;
+    }
+
+    /**
+     * Files that weren't compiled before are assumed to take the average time.
+     */
+    private static <K> long getDefaultEstimate(final Map<K, Long> history) {
+        long sum = 0;
+        int n = 0;
+        for (final Long t : history.values()) {
+            sum += t.longValue();
+            n++;
+        }
+        return n == 0 ? DEFAULT_ESTIMATE : sum / n;
+    }
+}
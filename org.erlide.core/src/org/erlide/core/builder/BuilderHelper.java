@@ -40,13 +40,13 @@ import org.erlide.core.erlang.ErlModelException;
 import org.erlide.core.erlang.ErlangCore;
 import org.erlide.core.erlang.IErlModule;
 import org.erlide.core.erlang.IOldErlangProjectProperties;
-import org.erlide.core.erlang.IErlModule.ModuleKind;
 import org.erlide.core.erlang.IErlProject;
-import org.erlide.core.erlang.util.ErlangIncludeFile;
 import org.erlide.core.erlang.util.PluginUtils;
 import org.erlide.jinterface.backend.Backend;
+import org.erlide.jinterface.rpc.RpcCompletionQueue;
 import org.erlide.jinterface.rpc.RpcException;
 import org.erlide.jinterface.rpc.RpcFuture;
+import org.erlide.jinterface.rpc.RpcUtil;
 import org.erlide.jinterface.util.ErlLogger;
 
 import com.ericsson.otp.erlang.OtpErlangAtom;
@@ -132,21 +132,10 @@ public final class BuilderHelper {
             throws ErlModelException {
         final IErlProject eprj = ErlangCore.getModel().findProject(my_project);
         if (eprj != null) {
-            final Collection<IErlModule> ms = eprj.getModules();
-            for (final IErlModule m : ms) {
-                m.getScanner();
-                final Collection<ErlangIncludeFile> incs = m.getIncludedFiles();
-                for (final ErlangIncludeFile ifile : incs) {
-                    if (samePath(ifile.getFilename(), resource.getName())) {
-                        if (m.getModuleKind() == ModuleKind.ERL) {
-                            final BuildResource bres = new BuildResource(
-                                    m.getResource());
-                            result.add(bres);
-                        }
-                        break;
-                    }
-                }
-                m.disposeScanner();
+            final Collection<IResource> deps = IncludeDependencyIndex
+                    .getDefault().getDependents(eprj, resource.getName());
+            for (final IResource m : deps) {
+                result.add(new BuildResource(m));
             }
         }
     }
@@ -266,11 +255,10 @@ public final class BuilderHelper {
             throws ErlModelException {
         final IErlModule m = eprj.getModule(source.getName());
         if (m != null) {
-            m.getScanner();
-            final Collection<ErlangIncludeFile> incs = m.getIncludedFiles();
-            for (final ErlangIncludeFile ifile : incs) {
-                final IResource rifile = findResourceByName(project,
-                        ifile.getFilename());
+            final IncludeDependencyIndex index = IncludeDependencyIndex
+                    .getDefault();
+            for (final String ifile : index.getIncludes(m)) {
+                final IResource rifile = index.findInclude(project, ifile);
                 if (rifile != null
                         && rifile.getLocalTimeStamp() > beam
                                 .getLocalTimeStamp()) {
@@ -278,7 +266,6 @@ public final class BuilderHelper {
                     break;
                 }
             }
-            m.disposeScanner();
         }
         return shouldCompile;
     }
@@ -335,7 +322,7 @@ public final class BuilderHelper {
                 FindResourceVisitor.FIND_BY_LOCATION);
     }
 
-    public IResource findResourceByName(final IContainer container,
+    public static IResource findResourceByName(final IContainer container,
             final String fileName) {
         return findResource(container, fileName,
                 FindResourceVisitor.FIND_BY_NAME);
@@ -366,7 +353,10 @@ public final class BuilderHelper {
     public void completeCompile(final IProject project, final IResource source,
             final OtpErlangObject r, final Backend backend,
             final OtpErlangList compilerOptions) {
-        if (r == null) {
+        if (r == null || RpcUtil.isBadRpc(r)) {
+            if (r != null) {
+                ErlLogger.warn("could not compile %s: %s", source.getName(), r);
+            }
             MarkerHelper.addProblemMarker(source, null,
                     "Could not compile file", 0, IMarker.SEVERITY_ERROR);
             return;
@@ -421,6 +411,44 @@ public final class BuilderHelper {
             final BuildResource bres, final String outputDir0,
             final Backend backend, final OtpErlangList compilerOptions,
             final boolean force) {
+        final String outputDir = prepareCompileErl(project, bres, outputDir0,
+                force);
+        if (outputDir == null) {
+            return null;
+        }
+        return ErlideBuilder.compileErl(backend, bres.getResource()
+                .getLocation(), outputDir, getAllIncludeDirs(project),
+                compilerOptions);
+    }
+
+    /**
+     * Like {@link #startCompileErl(IProject, BuildResource, String, Backend,
+     * OtpErlangList, boolean)}, but the result is delivered to the queue, with
+     * the resource as key.
+     *
+     * @return true if the file is being compiled
+     */
+    public boolean startCompileErl(final RpcCompletionQueue<IResource> queue,
+            final IProject project, final BuildResource bres,
+            final String outputDir0, final OtpErlangList compilerOptions,
+            final boolean force) {
+        final String outputDir = prepareCompileErl(project, bres, outputDir0,
+                force);
+        if (outputDir == null) {
+            return false;
+        }
+        final IResource res = bres.getResource();
+        return ErlideBuilder.compileErl(queue, res, res.getLocation(),
+                outputDir, getAllIncludeDirs(project), compilerOptions);
+    }
+
+    /**
+     * @return the output directory, or null if the file doesn't need to be
+     *         compiled
+     */
+    private String prepareCompileErl(final IProject project,
+            final BuildResource bres, final String outputDir0,
+            final boolean force) {
         final IPath projectPath = project.getLocation();
         final IResource res = bres.getResource();
         final String s = res.getFileExtension();
@@ -436,8 +464,6 @@ public final class BuilderHelper {
                         : projectPath.append(bres.getOutput()).toString();
         ensureDirExists(outputDir);
 
-        final Collection<IPath> includeDirs = getAllIncludeDirs(project);
-
         // delete beam file
         final IPath beamPath = getBeamForErl(res);
         final IResource beam = project.findMember(beamPath);
@@ -459,8 +485,7 @@ public final class BuilderHelper {
                 }
 
                 createTaskMarkers(project, res);
-                return ErlideBuilder.compileErl(backend, res.getLocation(),
-                        outputDir, includeDirs, compilerOptions);
+                return outputDir;
 
             } else {
                 return null;
@@ -501,10 +526,36 @@ public final class BuilderHelper {
     public RpcFuture startCompileYrl(final IProject project,
             final IResource resource, final Backend backend,
             final OtpErlangList compilerOptions) {
-        // final IPath projectPath = project.getLocation();
-        // final OldErlangProjectProperties prefs = new
-        // OldErlangProjectProperties(project);
+        if (!prepareCompileYrl(project, resource)) {
+            return null;
+        }
+        final String input = resource.getLocation().toString();
+        final String output = resource.getLocation().removeFileExtension()
+                .toString();
+        return ErlideBuilder.compileYrl(backend, input, output);
+    }
+
+    /**
+     * Like {@link #startCompileYrl(IProject, IResource, Backend,
+     * OtpErlangList)}, but the result is delivered to the queue, with the
+     * resource as key.
+     *
+     * @return true if the file is being compiled
+     */
+    public boolean startCompileYrl(final RpcCompletionQueue<IResource> queue,
+            final IProject project, final IResource resource,
+            final OtpErlangList compilerOptions) {
+        if (!prepareCompileYrl(project, resource)) {
+            return false;
+        }
+        final String input = resource.getLocation().toString();
+        final String output = resource.getLocation().removeFileExtension()
+                .toString();
+        return ErlideBuilder.compileYrl(queue, resource, input, output);
+    }
 
+    private boolean prepareCompileYrl(final IProject project,
+            final IResource resource) {
         MarkerHelper.deleteMarkers(resource);
         // try {
         // resource.deleteMarkers(PROBLEM_MARKER, true,
@@ -518,24 +569,14 @@ public final class BuilderHelper {
         // we should check timestamps, but yrl files are rare, so it doesn't
         // matter much
 
-        try {
-            if (br != null) {
-                try {
-                    br.delete(true, null);
-                } catch (final Exception e) {
-                    ErlLogger.warn(e);
-                }
+        if (br != null) {
+            try {
+                br.delete(true, null);
+            } catch (final Exception e) {
+                ErlLogger.warn(e);
             }
-
-            final String input = resource.getLocation().toString();
-            final String output = resource.getLocation().removeFileExtension()
-                    .toString();
-            return ErlideBuilder.compileYrl(backend, input, output);
-        } catch (final Exception e) {
-            e.printStackTrace();
-            return null;
         }
-
+        return resource.getLocation() != null;
     }
 
     public IPath getErlForYrl(final IResource resource) {
@@ -10,13 +10,12 @@
  *******************************************************************************/
 package org.erlide.core.builder;
 
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IMarker;
@@ -37,16 +36,26 @@ import org.erlide.core.builder.internal.MarkerHelper;
 import org.erlide.core.erlang.ErlangCore;
 import org.erlide.core.erlang.IOldErlangProjectProperties;
 import org.erlide.jinterface.backend.Backend;
-import org.erlide.jinterface.backend.BackendException;
-import org.erlide.jinterface.rpc.RpcFuture;
+import org.erlide.jinterface.rpc.RpcCompletion;
+import org.erlide.jinterface.rpc.RpcCompletionQueue;
+import org.erlide.jinterface.rpc.RpcException;
 import org.erlide.jinterface.util.ErlLogger;
 
 import com.ericsson.otp.erlang.OtpErlangList;
-import com.ericsson.otp.erlang.OtpErlangObject;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 public class ErlangBuilder extends IncrementalProjectBuilder {
 
+    private static final int MAX_COMPILES_IN_FLIGHT = Integer.getInteger(
+            "erlide.builder.inflight",
+            2 * Runtime.getRuntime().availableProcessors()).intValue();
+    private static final long CANCEL_CHECK_INTERVAL = 500;
+
+    // how long each file took to compile, used to balance the build nodes
+    private static final Map<IResource, Long> compileTimes = new ConcurrentHashMap<IResource, Long>();
+
     BuildNotifier notifier;
     private final BuilderHelper helper = new BuilderHelper();
 
@@ -65,6 +74,8 @@ public class ErlangBuilder extends IncrementalProjectBuilder {
         try {
             initializeBuilder(monitor);
             MarkerHelper.removeProblemsAndTasksFor(currentProject);
+            IncludeDependencyIndex.getDefault().removeProject(currentProject);
+            removeCompileTimes(currentProject);
 
             final IOldErlangProjectProperties prefs = ErlangCore
                     .getProjectProperties(currentProject);
@@ -133,6 +144,7 @@ public class ErlangBuilder extends IncrementalProjectBuilder {
             ErlLogger.debug("******** building %s: %s", getProject().getName(),
                     compilerOptions);
 
+            pruneCompileTimes();
             Set<BuildResource> resourcesToBuild = getResourcesToBuild(kind,
                     args, project);
             final int n = resourcesToBuild.size();
@@ -141,68 +153,19 @@ public class ErlangBuilder extends IncrementalProjectBuilder {
                         .valueOf(n), resourcesToBuild.toString());
             }
             if (n > 0) {
-                final Backend backend = ErlangCore.getBackendManager()
-                        .getBuildBackend(project);
-                if (backend == null) {
-                    final String message = "No backend with the required "
-                            + "version could be found. Can't build.";
-                    MarkerHelper.addProblemMarker(project, null, message, 0,
-                            IMarker.SEVERITY_ERROR);
-                    throw new BackendException(message);
-                }
+                final List<Backend> nodes = ErlangCore.getBackendManager()
+                        .getBuildBackends(project);
+                final Backend backend = nodes.get(0);
 
                 notifier.setProgressPerCompilationUnit(1.0f / n);
-                Map<RpcFuture, IResource> results = new HashMap<RpcFuture, IResource>();
-                for (final BuildResource bres : resourcesToBuild) {
-                    notifier.checkCancel();
-                    IResource resource = bres.getResource();
-                    // notifier.aboutToCompile(resource);
-                    if ("erl".equals(resource.getFileExtension())) {
-                        String outputDir = prefs.getOutputDir().toString();
-                        RpcFuture f = helper.startCompileErl(project, bres,
-                                outputDir, backend, compilerOptions,
-                                kind == IncrementalProjectBuilder.FULL_BUILD);
-                        if (f != null) {
-                            results.put(f, resource);
-                        }
-                    } else if ("yrl".equals(resource.getFileExtension())) {
-                        RpcFuture f = helper.startCompileYrl(project, resource,
-                                backend, compilerOptions);
-                        if (f != null) {
-                            results.put(f, resource);
-                        }
-                    } else {
-                        ErlLogger.warn("Don't know how to compile: %s",
-                                resource.getName());
-                    }
-                }
-
-                List<Entry<RpcFuture, IResource>> done = new ArrayList<Entry<RpcFuture, IResource>>();
-                List<Entry<RpcFuture, IResource>> waiting = new ArrayList<Entry<RpcFuture, IResource>>(
-                        results.entrySet());
-
-                // TODO should use some kind of notification!
-                while (waiting.size() > 0) {
-                    for (Entry<RpcFuture, IResource> result : waiting) {
-                        notifier.checkCancel();
-                        OtpErlangObject r;
-                        try {
-                            r = result.getKey().get(100);
-                        } catch (Exception e) {
-                            r = null;
-                        }
-                        if (r != null) {
-                            IResource resource = result.getValue();
-
-                            helper.completeCompile(project, resource, r,
-                                    backend, compilerOptions);
-                            notifier.compiled(resource);
-
-                            done.add(result);
-                        }
-                    }
-                    waiting.removeAll(done);
-                    done.clear();
+                final RpcCompletionQueue<IResource> queue = backend
+                        .createCompletionQueue();
+                try {
+                    compileAll(project, prefs, resourcesToBuild, nodes,
+                            queue, compilerOptions,
+                            kind == IncrementalProjectBuilder.FULL_BUILD);
+                } finally {
+                    queue.close();
                 }
                 helper.refreshOutputDir(project);
 
@@ -234,6 +197,135 @@ public class ErlangBuilder extends IncrementalProjectBuilder {
         return null;
     }
 
+    private static void removeCompileTimes(final IProject project) {
+        final Iterator<IResource> it = compileTimes.keySet().iterator();
+        while (it.hasNext()) {
+            if (project.equals(it.next().getProject())) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Forget the compile times of resources that were deleted or renamed, or
+     * whose project was closed.
+     */
+    private static void pruneCompileTimes() {
+        final Iterator<IResource> it = compileTimes.keySet().iterator();
+        while (it.hasNext()) {
+            if (!it.next().exists()) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Start the compiles, spread over the build nodes with at most
+     * MAX_COMPILES_IN_FLIGHT of them running at once, and handle each result
+     * as soon as it arrives. All results come to the same queue, so the
+     * markers are created here, on the builder thread, whatever node the
+     * file was compiled on.
+     */
+    private void compileAll(final IProject project,
+            final IOldErlangProjectProperties prefs,
+            final Set<BuildResource> resourcesToBuild,
+            final List<Backend> nodes,
+            final RpcCompletionQueue<IResource> queue,
+            final OtpErlangList compilerOptions, final boolean force)
+            throws RpcException {
+        final String outputDir = prefs.getOutputDir().toString();
+        final List<RpcCompletionQueue<IResource>> queues = Lists
+                .newArrayList();
+        for (final Backend node : nodes) {
+            queues.add(queue.forPeer(node.getPeer()));
+        }
+        final BuildScheduler<IResource> scheduler = new BuildScheduler<IResource>(
+                compileTimes, nodes.size(), MAX_COMPILES_IN_FLIGHT
+                        / nodes.size());
+        final Map<IResource, BuildResource> byResource = Maps.newHashMap();
+        for (final BuildResource bres : resourcesToBuild) {
+            byResource.put(bres.getResource(), bres);
+        }
+        final Iterator<IResource> toStart = scheduler.order(
+                byResource.keySet()).iterator();
+        int node;
+        while (toStart.hasNext() || queue.getPendingCount() > 0) {
+            notifier.checkCancel();
+            while (toStart.hasNext() && (node = scheduler.selectNode()) >= 0) {
+                final BuildResource bres = byResource.get(toStart.next());
+                final IResource resource = bres.getResource();
+                final RpcCompletionQueue<IResource> nodeQueue = queues
+                        .get(node);
+                // notifier.aboutToCompile(resource);
+                boolean started = false;
+                if ("erl".equals(resource.getFileExtension())) {
+                    started = helper.startCompileErl(nodeQueue, project, bres,
+                            outputDir, compilerOptions, force);
+                } else if ("yrl".equals(resource.getFileExtension())) {
+                    started = helper.startCompileYrl(nodeQueue, project,
+                            resource, compilerOptions);
+                } else {
+                    ErlLogger.warn("Don't know how to compile: %s", resource
+                            .getName());
+                }
+                if (started) {
+                    scheduler.started(resource, node);
+                }
+            }
+            if (scheduler.allDown()) {
+                // nothing can be compiled anymore
+                while (toStart.hasNext()) {
+                    compileFailed(project, toStart.next(), nodes.get(0),
+                            compilerOptions);
+                }
+            }
+            if (queue.getPendingCount() == 0) {
+                continue;
+            }
+            // don't wait too long, so that cancelling is noticed
+            final RpcCompletion<IResource> result = queue
+                    .poll(CANCEL_CHECK_INTERVAL);
+            if (result != null) {
+                final IResource resource = result.getKey();
+                node = scheduler.finished(resource);
+                helper.completeCompile(project, resource, result.getResult(),
+                        nodes.get(Math.max(node, 0)), compilerOptions);
+                notifier.compiled(resource);
+            } else {
+                checkNodes(project, nodes, queues, scheduler, compilerOptions);
+            }
+        }
+    }
+
+    /**
+     * The results of the compiles running on a node that went down never
+     * come, so they are marked as failed.
+     */
+    private void checkNodes(final IProject project, final List<Backend> nodes,
+            final List<RpcCompletionQueue<IResource>> queues,
+            final BuildScheduler<IResource> scheduler,
+            final OtpErlangList compilerOptions) {
+        for (int i = 0; i < nodes.size(); i++) {
+            final Backend node = nodes.get(i);
+            if (scheduler.isDown(i) || node.isAvailable()) {
+                continue;
+            }
+            ErlLogger.warn("build node %s went down", node.getPeer());
+            final List<IResource> dropped = queues.get(i).dropPending();
+            scheduler.nodeDown(i, dropped);
+            for (final IResource resource : dropped) {
+                compileFailed(project, resource, node, compilerOptions);
+            }
+        }
+    }
+
+    private void compileFailed(final IProject project,
+            final IResource resource, final Backend node,
+            final OtpErlangList compilerOptions) {
+        helper.completeCompile(project, resource, null, node, compilerOptions);
+        notifier.compiled(resource);
+    }
+
     private void initializeBuilder(final IProgressMonitor monitor) {
         IProject currentProject = getProject();
         notifier = new BuildNotifier(monitor, currentProject);
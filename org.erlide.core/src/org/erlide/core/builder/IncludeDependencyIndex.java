@@ -0,0 +1,424 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.core.builder;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Map.Entry;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.erlide.core.ErlangPlugin;
+import org.erlide.core.erlang.ErlModelException;
+import org.erlide.core.erlang.IErlModule;
+import org.erlide.core.erlang.IErlProject;
+import org.erlide.core.erlang.IErlModule.ModuleKind;
+import org.erlide.core.erlang.util.ErlangIncludeFile;
+import org.erlide.jinterface.util.ErlLogger;
+
+/**
+ * Maps header files to the modules that include them, so that the modules
+ * affected by a changed header can be found without scanning the whole
+ * project.
+ * <p>
+ * The includes of each module are recorded together with the module's
+ * timestamp. The first lookup in a project in a session looks at all its
+ * modules, but reads again only the ones whose timestamp changed. After that,
+ * the builder reports the modules that changed, and only those are looked at.
+ * The index is kept in the plugin state location between sessions.
+ * <p>
+ * Reading the includes of a module may need the backend, so it is never done
+ * while holding the lock of the index.
+ */
+public final class IncludeDependencyIndex {
+
+    private static final String INDEX_FILE = "include_index";
+    private static final int VERSION = 1;
+    // include names are case insensitive on Windows
+    private static final boolean WINDOWS = File.separatorChar == '\\';
+
+    private static IncludeDependencyIndex instance;
+
+    private static final class ModuleEntry {
+        final long stamp;
+        final String[] includes;
+
+        ModuleEntry(final long stamp, final String[] includes) {
+            this.stamp = stamp;
+            this.includes = includes;
+        }
+    }
+
+    private static final class ProjectIndex {
+        // module project-relative path -> entry
+        final Map<String, ModuleEntry> modules = new HashMap<String, ModuleEntry>();
+        // include name -> project-relative paths of modules
+        final Map<String, Set<String>> dependents = new HashMap<String, Set<String>>();
+        // include name -> project-relative path of the header
+        final Map<String, IPath> headers = new HashMap<String, IPath>();
+        // modules changed since the includes were read
+        final Set<String> changed = new HashSet<String>();
+        // true when all the modules were looked at in this session
+        boolean complete = false;
+    }
+
+    private final Map<String, ProjectIndex> projects = new HashMap<String, ProjectIndex>();
+    private final File file;
+    private boolean dirty = false;
+
+    public static synchronized IncludeDependencyIndex getDefault() {
+        if (instance == null) {
+            File f = null;
+            final ErlangPlugin plugin = ErlangPlugin.getDefault();
+            if (plugin != null) {
+                f = plugin.getStateLocation().append(INDEX_FILE).toFile();
+            }
+            instance = new IncludeDependencyIndex(f);
+            instance.load();
+        }
+        return instance;
+    }
+
+    IncludeDependencyIndex(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the modules of the project that include a file with the given
+     *         name
+     */
+    public Collection<IResource> getDependents(final IErlProject eprj,
+            final String includeName) throws ErlModelException {
+        final IProject project = (IProject) eprj.getResource();
+        update(eprj);
+        final List<IResource> result = new ArrayList<IResource>();
+        synchronized (this) {
+            final ProjectIndex pi = getProjectIndex(project.getName());
+            final Set<String> paths = pi.dependents.get(key(includeName));
+            if (paths != null) {
+                for (final String path : paths) {
+                    final IResource r = project.findMember(path);
+                    if (r != null) {
+                        result.add(r);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the names of the files included by the module
+     */
+    public Collection<String> getIncludes(final IErlModule module)
+            throws ErlModelException {
+        final IResource r = module.getResource();
+        if (!(r instanceof IFile)) {
+            return readIncludes(module);
+        }
+        final String project = r.getProject().getName();
+        final String path = r.getProjectRelativePath().toPortableString();
+        final long stamp = r.getLocalTimeStamp();
+        ModuleEntry entry;
+        synchronized (this) {
+            entry = getProjectIndex(project).modules.get(path);
+        }
+        if (entry == null || entry.stamp != stamp) {
+            entry = readEntry(module, stamp);
+            synchronized (this) {
+                putModule(getProjectIndex(project), path, entry);
+                dirty = true;
+            }
+        }
+        final List<String> result = new ArrayList<String>(
+                entry.includes.length);
+        for (final String inc : entry.includes) {
+            result.add(inc);
+        }
+        return result;
+    }
+
+    /**
+     * Note that a module was added, changed or removed; its includes are read
+     * again on the next lookup in its project.
+     */
+    public synchronized void moduleChanged(final IResource resource) {
+        final ProjectIndex pi = projects.get(resource.getProject().getName());
+        if (pi != null) {
+            pi.changed.add(resource.getProjectRelativePath()
+                    .toPortableString());
+        }
+    }
+
+    /**
+     * Find an include file in the project by name, remembering where it was.
+     */
+    public synchronized IResource findInclude(final IProject project,
+            final String includeName) {
+        final ProjectIndex pi = getProjectIndex(project.getName());
+        final String k = key(includeName);
+        final IPath path = pi.headers.get(k);
+        if (path != null) {
+            final IResource r = project.findMember(path);
+            if (r != null && BuilderHelper.samePath(r.getName(), includeName)) {
+                return r;
+            }
+            pi.headers.remove(k);
+        }
+        final IResource r = BuilderHelper.findResourceByName(project,
+                includeName);
+        if (r != null) {
+            pi.headers.put(k, r.getProjectRelativePath());
+        }
+        return r;
+    }
+
+    public synchronized void removeProject(final IProject project) {
+        if (projects.remove(project.getName()) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Bring the index up to date with the project's modules: all of them the
+     * first time in a session, later only the ones that changed. Only new or
+     * modified modules are read.
+     */
+    private void update(final IErlProject eprj) throws ErlModelException {
+        final String project = eprj.getResource().getProject().getName();
+        final boolean complete;
+        final Set<String> changed;
+        synchronized (this) {
+            final ProjectIndex pi = getProjectIndex(project);
+            complete = pi.complete;
+            changed = new HashSet<String>(pi.changed);
+        }
+        if (complete && changed.isEmpty()) {
+            return;
+        }
+        // path -> module, for the modules to look at
+        final Map<String, IErlModule> modules = new HashMap<String, IErlModule>();
+        if (complete) {
+            for (final String path : changed) {
+                final IErlModule m = eprj.getModule(new Path(path)
+                        .lastSegment());
+                if (m != null && path.equals(getPath(m))) {
+                    modules.put(path, m);
+                }
+            }
+        } else {
+            for (final IErlModule m : eprj.getModules()) {
+                final String path = getPath(m);
+                if (path != null) {
+                    modules.put(path, m);
+                }
+            }
+        }
+        final Map<String, ModuleEntry> read = new HashMap<String, ModuleEntry>();
+        for (final Entry<String, IErlModule> m : modules.entrySet()) {
+            final long stamp = m.getValue().getResource().getLocalTimeStamp();
+            final ModuleEntry entry;
+            synchronized (this) {
+                entry = getProjectIndex(project).modules.get(m.getKey());
+            }
+            if (entry == null || entry.stamp != stamp) {
+                read.put(m.getKey(), readEntry(m.getValue(), stamp));
+            }
+        }
+        synchronized (this) {
+            final ProjectIndex pi = getProjectIndex(project);
+            for (final Entry<String, ModuleEntry> e : read.entrySet()) {
+                putModule(pi, e.getKey(), e.getValue());
+                dirty = true;
+            }
+            // the modules that were removed
+            final Iterator<String> it = pi.modules.keySet().iterator();
+            while (it.hasNext()) {
+                final String path = it.next();
+                if (!modules.containsKey(path)
+                        && (!complete || changed.contains(path))) {
+                    removeDependents(pi, path, pi.modules.get(path));
+                    it.remove();
+                    dirty = true;
+                }
+            }
+            pi.changed.removeAll(changed);
+            pi.complete = true;
+        }
+    }
+
+    /**
+     * @return the project relative path of an Erlang module in a file, or
+     *         null
+     */
+    private static String getPath(final IErlModule module) {
+        final IResource r = module.getResource();
+        if (module.getModuleKind() != ModuleKind.ERL || !(r instanceof IFile)) {
+            return null;
+        }
+        return r.getProjectRelativePath().toPortableString();
+    }
+
+    private static ModuleEntry readEntry(final IErlModule module,
+            final long stamp) throws ErlModelException {
+        final Collection<String> incs = readIncludes(module);
+        return new ModuleEntry(stamp, incs.toArray(new String[incs.size()]));
+    }
+
+    private void putModule(final ProjectIndex pi, final String path,
+            final ModuleEntry entry) {
+        final ModuleEntry old = pi.modules.put(path, entry);
+        if (old != null) {
+            removeDependents(pi, path, old);
+        }
+        for (final String inc : entry.includes) {
+            final String k = key(inc);
+            Set<String> paths = pi.dependents.get(k);
+            if (paths == null) {
+                paths = new HashSet<String>();
+                pi.dependents.put(k, paths);
+            }
+            paths.add(path);
+        }
+    }
+
+    private void removeDependents(final ProjectIndex pi, final String path,
+            final ModuleEntry entry) {
+        for (final String inc : entry.includes) {
+            final Set<String> paths = pi.dependents.get(key(inc));
+            if (paths != null) {
+                paths.remove(path);
+            }
+        }
+    }
+
+    /**
+     * Uses the module's parse result if it is available, otherwise the module
+     * is parsed.
+     */
+    private static Collection<String> readIncludes(final IErlModule module)
+            throws ErlModelException {
+        final boolean known = module.isStructureKnown();
+        if (!known) {
+            module.getScanner();
+        }
+        final List<String> result = new ArrayList<String>();
+        try {
+            for (final ErlangIncludeFile inc : module.getIncludedFiles()) {
+                result.add(inc.getFilenameLastPart());
+            }
+        } finally {
+            if (!known) {
+                module.disposeScanner();
+            }
+        }
+        return result;
+    }
+
+    private ProjectIndex getProjectIndex(final String project) {
+        ProjectIndex pi = projects.get(project);
+        if (pi == null) {
+            pi = new ProjectIndex();
+            projects.put(project, pi);
+        }
+        return pi;
+    }
+
+    private static String key(final String includeName) {
+        return WINDOWS ? includeName.toLowerCase() : includeName;
+    }
+
+    /**
+     * Format: a version line, then one line per module with tab separated
+     * project, module path, timestamp and included file names.
+     */
+    public synchronized void save() {
+        if (!dirty || file == null) {
+            return;
+        }
+        try {
+            final BufferedWriter w = new BufferedWriter(new FileWriter(file));
+            try {
+                w.write(Integer.toString(VERSION));
+                w.newLine();
+                for (final Entry<String, ProjectIndex> p : projects.entrySet()) {
+                    for (final Entry<String, ModuleEntry> m : p.getValue().modules
+                            .entrySet()) {
+                        final StringBuilder sb = new StringBuilder();
+                        sb.append(p.getKey()).append('\t').append(m.getKey())
+                                .append('\t').append(m.getValue().stamp);
+                        for (final String inc : m.getValue().includes) {
+                            sb.append('\t').append(inc);
+                        }
+                        w.write(sb.toString());
+                        w.newLine();
+                    }
+                }
+            } finally {
+                w.close();
+            }
+            dirty = false;
+        } catch (final IOException e) {
+            ErlLogger.warn(e);
+        }
+    }
+
+    private void load() {
+        if (file == null || !file.exists()) {
+            return;
+        }
+        try {
+            final BufferedReader r = new BufferedReader(new FileReader(file));
+            try {
+                final String version = r.readLine();
+                if (version == null
+                        || !Integer.toString(VERSION).equals(version.trim())) {
+                    return;
+                }
+                String line;
+                while ((line = r.readLine()) != null) {
+                    final String[] parts = line.split("\t");
+                    if (parts.length < 3) {
+                        continue;
+                    }
+                    final String[] incs = new String[parts.length - 3];
+                    System.arraycopy(parts, 3, incs, 0, incs.length);
+                    putModule(getProjectIndex(parts[0]), new Path(parts[1])
+                            .toPortableString(), new ModuleEntry(Long
+                            .parseLong(parts[2]), incs));
+                }
+            } finally {
+                r.close();
+            }
+        } catch (final IOException e) {
+            ErlLogger.warn(e);
+            projects.clear();
+        } catch (final NumberFormatException e) {
+            ErlLogger.warn(e);
+            projects.clear();
+        }
+    }
+}
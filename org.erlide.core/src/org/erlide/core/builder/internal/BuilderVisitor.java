@@ -20,6 +20,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.erlide.core.builder.BuildResource;
 import org.erlide.core.builder.BuilderHelper;
 import org.erlide.core.builder.BuilderHelper.SearchVisitor;
+import org.erlide.core.builder.IncludeDependencyIndex;
 import org.erlide.core.erlang.ErlModelException;
 import org.erlide.core.erlang.ErlangCore;
 import org.erlide.core.erlang.IOldErlangProjectProperties;
@@ -151,6 +152,7 @@ public class BuilderVisitor implements IResourceDeltaVisitor, IResourceVisitor {
     }
 
     private void handleErlFile(final int kind, final IResource resource) {
+        IncludeDependencyIndex.getDefault().moduleChanged(resource);
         switch (kind) {
         case IResourceDelta.ADDED:
         case IResourceDelta.CHANGED:
@@ -17,16 +17,22 @@ import erlang.ErlideScanner;
 
 /**
  * Erlang syntax scanner
+ * <p>
+ * The scanner runs in the backend; a copy of its tokens is kept here and
+ * updated with the rescanned tokens after each change, so that finding the
+ * token at an offset doesn't have to wait for the backend.
  */
 public class ErlScanner implements IDisposable {
 	private final String moduleName;
 	private int refCount = 0;
+	private final ErlTokenArray tokens = new ErlTokenArray();
 
 	public ErlScanner(final IErlModule module, final String initialText,
 			final String moduleFileName) {
 		moduleName = ErlangToolkit.createScannerModuleName(module);
 		ErlideScanner.initialScan(moduleName, moduleFileName, initialText,
 				false);
+		updateTokens();
 	}
 
 	public void addRef() {
@@ -41,18 +47,35 @@ public class ErlScanner implements IDisposable {
 		--refCount;
 		if (refCount == 0) {
 			ErlideScanner.destroy(moduleName);
+			tokens.invalidate();
 		}
 	}
 
 	public void replaceText(final int offset, final int removeLength,
 			final String newText) {
-		ErlideScanner.replaceText(moduleName, offset, removeLength, newText);
+		ErlideScanner.replaceText(moduleName, offset, removeLength, newText,
+				tokens);
+		if (!tokens.isValid()) {
+			// done here and not in getTokenAt, so that the tokens are fetched
+			// in the same order as the changes
+			updateTokens();
+		}
 	}
 
 	public ErlToken getTokenAt(final int offset) {
+		if (tokens.isValid()) {
+			return tokens.getTokenAt(offset);
+		}
 		return ErlideScanner.getTokenAt(moduleName, offset);
 	}
 
+	private void updateTokens() {
+		final byte[] packed = ErlideScanner.getPackedTokens(moduleName);
+		if (packed != null) {
+			tokens.setTokens(packed);
+		}
+	}
+
 	public String getScannerModuleName() {
 		return moduleName;
 	}
@@ -148,6 +148,12 @@ public final class ErlToken {
 		this.kind = kind;
 	}
 
+	ErlToken(final int kind, final int offset, final int length) {
+		this.kind = kind;
+		this.offset = offset;
+		this.length = length;
+	}
+
 	public int getKind() {
 		return kind;
 	}
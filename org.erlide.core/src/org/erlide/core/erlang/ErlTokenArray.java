@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.core.erlang;
+
+/**
+ * A copy of the tokens of a scanner, so that the token at an offset can be
+ * found without asking the backend. The tokens are kept sorted by offset, in
+ * arrays of offsets, lengths and kinds.
+ * <p>
+ * The tokens are set and replaced from the packed form of
+ * <code>erlide_scanner</code>, <code>&lt;&lt;Kind, Line:24, Offset:24,
+ * Length:24&gt;&gt;</code> for each token. They can also be read by index,
+ * without creating {@link ErlToken} objects.
+ */
+public final class ErlTokenArray {
+
+	private static final int TOKEN_SIZE = 10;
+
+	private int[] offsets = new int[0];
+	private int[] lengths = new int[0];
+	private byte[] kinds = new byte[0];
+	private int count = 0;
+	private boolean valid = false;
+
+	/**
+	 * Replace all tokens.
+	 */
+	public synchronized void setTokens(final byte[] packed) {
+		setTokens(packed, 0);
+	}
+
+	/**
+	 * Replace all tokens, moving them by <code>offset</code>. The arrays are
+	 * reused if they are large enough.
+	 */
+	public synchronized void setTokens(final byte[] packed, final int offset) {
+		final int n = packed.length / TOKEN_SIZE;
+		if (n > offsets.length) {
+			offsets = new int[n];
+			lengths = new int[n];
+			kinds = new byte[n];
+		}
+		unpack(packed, 0);
+		count = n;
+		if (offset != 0) {
+			for (int i = 0; i < n; i++) {
+				offsets[i] += offset;
+			}
+		}
+		valid = true;
+	}
+
+	/**
+	 * Replace the tokens of the text between <code>offset</code> and
+	 * <code>offset + oldLength</code> with the new tokens, that span
+	 * <code>newLength</code> characters. The tokens after are moved.
+	 */
+	public synchronized void replace(final int offset, final int oldLength,
+			final int newLength, final byte[] packed) {
+		if (!valid) {
+			return;
+		}
+		final int from = indexOf(offset);
+		final int to = indexOf(offset + oldLength);
+		final int n = packed.length / TOKEN_SIZE;
+		final int newCount = count - (to - from) + n;
+		if (newCount > offsets.length) {
+			final int size = Math.max(newCount, offsets.length * 3 / 2);
+			offsets = copyOf(offsets, size);
+			lengths = copyOf(lengths, size);
+			final byte[] k = new byte[size];
+			System.arraycopy(kinds, 0, k, 0, count);
+			kinds = k;
+		}
+		final int tail = count - to;
+		System.arraycopy(offsets, to, offsets, from + n, tail);
+		System.arraycopy(lengths, to, lengths, from + n, tail);
+		System.arraycopy(kinds, to, kinds, from + n, tail);
+		final int delta = newLength - oldLength;
+		for (int i = from + n; i < newCount; i++) {
+			offsets[i] += delta;
+		}
+		unpack(packed, from);
+		count = newCount;
+	}
+
+	/**
+	 * Forget the tokens, until they are set again.
+	 */
+	public synchronized void invalidate() {
+		valid = false;
+		count = 0;
+	}
+
+	public synchronized boolean isValid() {
+		return valid;
+	}
+
+	public synchronized int size() {
+		return count;
+	}
+
+	public synchronized int getKind(final int index) {
+		return kinds[index] & 0xff;
+	}
+
+	public synchronized int getOffset(final int index) {
+		return offsets[index];
+	}
+
+	public synchronized int getLength(final int index) {
+		return lengths[index];
+	}
+
+	/**
+	 * @return the token that contains the offset, or null
+	 */
+	public synchronized ErlToken getTokenAt(final int offset) {
+		// the last token starting at or before the offset
+		final int i = indexOf(offset + 1) - 1;
+		if (i < 0 || offset >= offsets[i] + lengths[i]) {
+			return null;
+		}
+		return new ErlToken(kinds[i] & 0xff, offsets[i], lengths[i]);
+	}
+
+	// the index of the first token starting at or after the offset
+	private int indexOf(final int offset) {
+		int lo = 0;
+		int hi = count;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (offsets[mid] < offset) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private void unpack(final byte[] packed, final int index) {
+		int i = index;
+		for (int p = 0; p + TOKEN_SIZE <= packed.length; p += TOKEN_SIZE) {
+			kinds[i] = packed[p];
+			offsets[i] = int24(packed, p + 4);
+			lengths[i] = int24(packed, p + 7);
+			i++;
+		}
+	}
+
+	private static int int24(final byte[] bytes, final int index) {
+		return (0xff & bytes[index]) << 16 | (0xff & bytes[index + 1]) << 8
+				| 0xff & bytes[index + 2];
+	}
+
+	private static int[] copyOf(final int[] a, final int size) {
+		final int[] result = new int[size];
+		System.arraycopy(a, 0, result, 0, a.length);
+		return result;
+	}
+}
@@ -13,6 +13,7 @@ package org.erlide.core.erlang.internal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.eclipse.core.resources.IProject;
@@ -534,10 +535,16 @@ public abstract class ErlElement extends PlatformObject implements IErlElement,
     }
 
     /**
-     * Collection of handles of immediate children of this object. This is an
-     * empty array if this element has no children.
+     * Shared empty list of children, most elements in a module never get any.
      */
-    protected List<IErlElement> fChildren = new ArrayList<IErlElement>();
+    private static final List<IErlElement> NO_CHILDREN = Collections
+            .emptyList();
+
+    /**
+     * Collection of handles of immediate children of this object. This is a
+     * shared empty list until a child is added.
+     */
+    protected List<IErlElement> fChildren = NO_CHILDREN;
 
     /**
      * Is the structure of this element known
@@ -552,6 +559,9 @@ public abstract class ErlElement extends PlatformObject implements IErlElement,
     static final IProject[] NO_NON_ERLANG_RESOURCES = new IProject[] {};
 
     public void addChild(final IErlElement child) {
+        if (fChildren == NO_CHILDREN) {
+            fChildren = new ArrayList<IErlElement>();
+        }
         fChildren.add(child);
     }
 
@@ -612,6 +622,12 @@ public abstract class ErlElement extends PlatformObject implements IErlElement,
     }
 
     public void setChildren(final Collection<? extends IErlElement> c) {
+        if (fChildren == NO_CHILDREN) {
+            if (!c.isEmpty()) {
+                fChildren = new ArrayList<IErlElement>(c);
+            }
+            return;
+        }
         fChildren.clear();
         fChildren.addAll(c);
     }
@@ -620,6 +636,14 @@ public abstract class ErlElement extends PlatformObject implements IErlElement,
         fChildren = Arrays.asList(children);
     }
 
+    /**
+     * Drops the children by replacing the collection, so that threads
+     * iterating over the old one are not disturbed.
+     */
+    protected void dropChildren() {
+        fChildren = NO_CHILDREN;
+    }
+
     /**
      * Sets whether the structure of this element known
      * 
@@ -74,6 +74,17 @@ public class ErlFolder extends Openable implements IErlFolder {
 	 */
 	public static IErlModule getModule(final IParent parent, final String name,
 			boolean caseinsensitive) {
+		final IErlModule m = ErlModelManager.getModuleIndex().find(parent,
+				name, caseinsensitive);
+		if (m != null) {
+			return m;
+		}
+		// not all modules may have been created yet, or be in the index
+		return scanModule(parent, name, caseinsensitive);
+	}
+
+	private static IErlModule scanModule(final IParent parent,
+			final String name, boolean caseinsensitive) {
 		try {
 			if (parent instanceof IOpenable) {
 				final IOpenable o = (IOpenable) parent;
@@ -96,7 +107,7 @@ public class ErlFolder extends Openable implements IErlFolder {
 					}
 				} else if (e instanceof IParent) {
 					final IParent p = (IParent) e;
-					final IErlModule m = getModule(p, name, caseinsensitive);
+					final IErlModule m = scanModule(p, name, caseinsensitive);
 					if (m != null) {
 						return m;
 					}
@@ -163,4 +163,14 @@ public class ErlFunction extends ErlMember implements IErlFunction, IParent {
 		return parameters;
 	}
 
+	@Override
+	void shift(final int lineDelta, final int offsetDelta) {
+		super.shift(lineDelta, offsetDelta);
+		for (final IErlElement el : fChildren) {
+			if (el instanceof SourceRefElement) {
+				((SourceRefElement) el).shift(lineDelta, offsetDelta);
+			}
+		}
+	}
+
 }
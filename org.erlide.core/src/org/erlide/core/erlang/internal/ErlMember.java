@@ -60,6 +60,14 @@ public abstract class ErlMember extends SourceRefElement implements IErlMember {
 		fNameRangeLength = length;
 	}
 
+	@Override
+	void shift(final int lineDelta, final int offsetDelta) {
+		super.shift(lineDelta, offsetDelta);
+		if (fNameRangeOffset != 0 || fNameRangeLength != 0) {
+			fNameRangeOffset += offsetDelta;
+		}
+	}
+
 	public ISourceRange getNameRange() {
 		if (fNameRangeOffset == 0 && fNameRangeLength == 0) {
 			try {
@@ -83,6 +83,18 @@ public final class ErlModelManager implements IErlModelManager {
 	 */
 	private static ErlModelManager instance = null;
 
+	/**
+	 * The modules created so far, by name.
+	 */
+	private static final ModuleIndex moduleIndex = new ModuleIndex();
+
+	/**
+	 * The modules whose structure is in memory, at most
+	 * <code>erlide.model.maxModules</code> of them.
+	 */
+	private static final ModuleCache moduleCache = new ModuleCache(Math.max(
+			1, Integer.getInteger("erlide.model.maxModules", 1000).intValue()));
+
 	/**
 	 * Queue of deltas created explicitly by the model that have yet to be
 	 * fired.
@@ -166,6 +178,14 @@ public final class ErlModelManager implements IErlModelManager {
 	void remove(final IResource rsrc) {
 		final IErlElement e = erlangModel.findElement(rsrc);
 		if (e != null) {
+			if (e instanceof IErlModule) {
+				moduleIndex.remove((IErlModule) e);
+				if (e instanceof ErlModule) {
+					moduleCache.remove((ErlModule) e);
+				}
+			} else if (e instanceof IParent) {
+				moduleIndex.removeAll(e);
+			}
 			final IParent p = (IParent) e.getParent();
 			p.removeChild(e);
 		}
@@ -260,6 +280,7 @@ public final class ErlModelManager implements IErlModelManager {
 					file);
 			if (parent != null && parent instanceof IParent) {
 				((IParent) parent).addChild(module);
+				moduleIndex.add(module);
 			}
 			// elements.put(key, module);
 			return module;
@@ -267,6 +288,14 @@ public final class ErlModelManager implements IErlModelManager {
 		return null;
 	}
 
+	static ModuleIndex getModuleIndex() {
+		return moduleIndex;
+	}
+
+	static ModuleCache getModuleCache() {
+		return moduleCache;
+	}
+
 	/**
 	 * Returns the Erlang project corresponding to the given project.
 	 * <p>
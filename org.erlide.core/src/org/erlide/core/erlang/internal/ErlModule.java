@@ -12,8 +12,10 @@ package org.erlide.core.erlang.internal;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
@@ -49,11 +51,16 @@ import com.ericsson.otp.erlang.OtpErlangString;
 public class ErlModule extends Openable implements IErlModule {
 
     private long timestamp = IResource.NULL_STAMP;
-    private final List<IErlComment> comments = new ArrayList<IErlComment>(0);
+    private List<IErlComment> comments = new ArrayList<IErlComment>(0);
+    // the members by the ids the backend gave their forms, see ErlParser
+    private final Map<Integer, IErlMember> forms = new HashMap<Integer, IErlMember>();
     private String initialText;
     private ErlScanner scanner = null;
     private final IFile fFile;
     private boolean parsed = false;
+    private volatile boolean evicted = false;
+    // the editors the module is open in, see initialReconcile
+    private int editors = 0;
     private boolean updateCaches = true;
 
     private final ModuleKind moduleKind;
@@ -83,8 +90,10 @@ public class ErlModule extends Openable implements IErlModule {
             // is one
             getScanner();
         }
+        evicted = false;
         parsed = ErlParser.parse(this, initialParse, path, updateCaches
                 && useCaches());
+        ErlModelManager.getModuleCache().touch(this);
         final IErlModel model = getModel();
         if (model != null) {
             model.notifyChange(this);
@@ -239,8 +248,28 @@ public class ErlModule extends Openable implements IErlModule {
     }
 
     public void removeChildren() {
-        fChildren.clear();
-        comments.clear();
+        // new collections, the old ones may be iterated by other threads
+        dropChildren();
+        comments = new ArrayList<IErlComment>(0);
+        forms.clear();
+    }
+
+    Map<Integer, IErlMember> getForms() {
+        return forms;
+    }
+
+    /**
+     * Replace the members, keeping the ids of their forms.
+     */
+    void setMembers(final List<IErlElement> members,
+            final Map<Integer, IErlMember> newForms) {
+        setChildren(members);
+        forms.clear();
+        forms.putAll(newForms);
+    }
+
+    void removeComments() {
+        comments = new ArrayList<IErlComment>(0);
     }
 
     public synchronized long getTimestamp() {
@@ -248,11 +277,53 @@ public class ErlModule extends Openable implements IErlModule {
     }
 
     public Collection<IErlComment> getComments() {
+        members();
         return comments;
     }
 
+    @Override
+    public List<IErlElement> getChildren() throws ErlModelException {
+        if (evicted) {
+            open(null);
+        }
+        return fChildren;
+    }
+
+    // the children, built again if they were evicted
+    private List<IErlElement> members() {
+        try {
+            return getChildren();
+        } catch (final ErlModelException e) {
+            ErlLogger.warn(e);
+            return fChildren;
+        }
+    }
+
+    /**
+     * Drop the structure and the scanner, unless the module is open in an
+     * editor. They are built again when they are needed.
+     * 
+     * @return true if the module was evicted
+     */
+    synchronized boolean evict() {
+        if (editors > 0) {
+            return false;
+        }
+        // the scanner is kept after the structure is built, release it too
+        while (scanner != null) {
+            disposeScanner();
+        }
+        // readers must see that the module is evicted before its members
+        // are gone, so that they build them again
+        evicted = true;
+        setStructureKnown(false);
+        parsed = false;
+        removeChildren();
+        return true;
+    }
+
     public IErlImport findImport(final ErlangFunction function) {
-        for (final IErlElement m : fChildren) {
+        for (final IErlElement m : members()) {
             if (m instanceof IErlImport) {
                 final IErlImport ei = (IErlImport) m;
                 if (ei.hasFunction(function)) {
@@ -264,7 +335,7 @@ public class ErlModule extends Openable implements IErlModule {
     }
 
     public IErlExport findExport(final ErlangFunction function) {
-        for (final IErlElement m : fChildren) {
+        for (final IErlElement m : members()) {
             if (m instanceof IErlExport) {
                 final IErlExport ei = (IErlExport) m;
                 if (ei.hasFunction(function)) {
@@ -276,7 +347,7 @@ public class ErlModule extends Openable implements IErlModule {
     }
 
     public IErlFunction findFunction(final ErlangFunction function) {
-        for (final IErlElement fun : fChildren) {
+        for (final IErlElement fun : members()) {
             if (fun instanceof IErlFunction) {
                 final IErlFunction f = (IErlFunction) fun;
                 if (f.getName().equals(function.name)
@@ -290,7 +361,7 @@ public class ErlModule extends Openable implements IErlModule {
 
     public IErlPreprocessorDef findPreprocessorDef(final String definedName,
             final Kind type) {
-        for (final IErlElement m : fChildren) {
+        for (final IErlElement m : members()) {
             if (m instanceof IErlPreprocessorDef) {
                 final IErlPreprocessorDef pd = (IErlPreprocessorDef) m;
                 if (pd.getKind().equals(type)
@@ -304,7 +375,7 @@ public class ErlModule extends Openable implements IErlModule {
 
     public Collection<IErlPreprocessorDef> getPreprocessorDefs(final Kind type) {
         final List<IErlPreprocessorDef> res = new ArrayList<IErlPreprocessorDef>();
-        for (final IErlElement m : fChildren) {
+        for (final IErlElement m : members()) {
             if (m instanceof IErlPreprocessorDef) {
                 final IErlPreprocessorDef pd = (IErlPreprocessorDef) m;
                 if (pd.getKind().equals(type) || type.equals(Kind.ERROR)) {
@@ -340,7 +411,7 @@ public class ErlModule extends Openable implements IErlModule {
 
     public Collection<IErlImport> getImports() {
         final List<IErlImport> r = new ArrayList<IErlImport>();
-        for (final IErlElement m : fChildren) {
+        for (final IErlElement m : members()) {
             if (m instanceof IErlImport) {
                 r.add((IErlImport) m);
             }
@@ -407,13 +478,15 @@ public class ErlModule extends Openable implements IErlModule {
     }
 
     public synchronized void initialReconcile() {
-        // currently unused
         // Note that the ErlReconciler doesn't send the first full-text
         // reconcile that the built-in reconciler does
+        editors++;
     }
 
     public synchronized void finalReconcile() {
-        // currently unused
+        if (editors > 0) {
+            editors--;
+        }
     }
 
     public String getModuleName() {
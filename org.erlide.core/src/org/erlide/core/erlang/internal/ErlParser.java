@@ -10,11 +10,21 @@
  *******************************************************************************/
 package org.erlide.core.erlang.internal;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.erlide.core.ErlangPlugin;
+import org.erlide.core.erlang.ErlElementDelta;
 import org.erlide.core.erlang.ErlangCore;
 import org.erlide.core.erlang.IErlComment;
+import org.erlide.core.erlang.IErlElement;
+import org.erlide.core.erlang.IErlElementDelta;
 import org.erlide.core.erlang.IErlMember;
+import org.erlide.core.erlang.IErlModelManager;
 import org.erlide.core.erlang.IErlModule;
+import org.erlide.core.erlang.util.ElementChangedEvent;
 import org.erlide.core.text.ErlangToolkit;
 import org.erlide.jinterface.backend.Backend;
 import org.erlide.jinterface.backend.ErlBackend;
@@ -60,28 +70,30 @@ public final class ErlParser {
         }
         OtpErlangList forms = null;
         OtpErlangList comments = null;
+        OtpErlangList formIds = null;
         final String scannerModuleName = ErlangToolkit
                 .createScannerModuleName(module);
-        OtpErlangTuple res = null;
-        if (initialParse) {
-            ErlLogger.debug("initialParse %s", module.getName());
-            final String stateDir = ErlangPlugin.getDefault()
-                    .getStateLocation().toString();
-            res = ErlideNoparse.initialParse(b, scannerModuleName,
-                    moduleFilePath, stateDir, updateCaches, true);
-        } else {
-            res = ErlideNoparse.reparse(b, scannerModuleName);
+        if (!initialParse) {
+            return reparse((ErlModule) module, b, scannerModuleName);
         }
+        ErlLogger.debug("initialParse %s", module.getName());
+        final String stateDir = ErlangPlugin.getDefault().getStateLocation()
+                .toString();
+        final OtpErlangTuple res = ErlideNoparse.initialParse(b,
+                scannerModuleName, moduleFilePath, stateDir, updateCaches,
+                true);
         if (Util.isOk(res)) {
             Bindings bindings = null;
             try {
-                bindings = ErlUtils.match("{ok, {_, Forms, Comments}, _}", res);
+                bindings = ErlUtils.match("{ok, {_, Forms, Comments}, _, Ids}",
+                        res);
             } catch (final ParserException e) {
                 e.printStackTrace();
             }
             if (bindings != null) {
                 forms = (OtpErlangList) bindings.get("Forms");
                 comments = (OtpErlangList) bindings.get("Comments");
+                formIds = toList(bindings.get("Ids"));
             } else {
                 ErlLogger.error("parser for %s got: %s", module.getName(), res);
             }
@@ -96,12 +108,27 @@ public final class ErlParser {
             return true;
         }
 
-        for (final OtpErlangObject form : forms) {
-            final IErlMember elem = create(module, (OtpErlangTuple) form);
+        final List<IErlElement> members = new ArrayList<IErlElement>(
+                forms.arity());
+        // the ids of the forms, for the next reparse
+        final Map<Integer, IErlMember> newForms = new HashMap<Integer, IErlMember>();
+        for (int i = 0; i < forms.arity(); i++) {
+            final IErlMember elem = create(module, (OtpErlangTuple) forms
+                    .elementAt(i));
+            if (formIds != null && i < formIds.arity()) {
+                try {
+                    // null members are kept, so that they are known when same
+                    newForms.put(((OtpErlangLong) formIds.elementAt(i))
+                            .intValue(), elem);
+                } catch (final OtpErlangRangeException e) {
+                    ErlLogger.warn(e);
+                }
+            }
             if (elem != null) {
-                mm.addMember(elem);
+                members.add(elem);
             }
         }
+        mm.setMembers(members, newForms);
         if (comments != null) {
             for (final OtpErlangObject comment : comments) {
                 final IErlComment c = createComment(module,
@@ -114,6 +141,118 @@ public final class ErlParser {
         return true;
     }
 
+    // a list of small integers comes as a string
+    private static OtpErlangList toList(final OtpErlangObject o) {
+        if (o instanceof OtpErlangString) {
+            return new OtpErlangList(((OtpErlangString) o).stringValue());
+        }
+        return (OtpErlangList) o;
+    }
+
+    /**
+     * Reparse a module that was parsed before. Only the forms that changed are
+     * sent by the backend and made into new members, the others are kept and
+     * moved to their new positions. The changes are fired as a fine-grained
+     * delta.
+     */
+    private static boolean reparse(final ErlModule module, final Backend b,
+            final String scannerModuleName) {
+        final Map<Integer, IErlMember> oldForms = new HashMap<Integer, IErlMember>(
+                module.getForms());
+        final OtpErlangTuple res = ErlideNoparse.reparseChanged(b,
+                scannerModuleName, !oldForms.isEmpty());
+        Bindings bindings = null;
+        if (Util.isOk(res)) {
+            try {
+                bindings = ErlUtils.match("{ok, Forms, Comments}", res);
+            } catch (final ParserException e) {
+                e.printStackTrace();
+            }
+            if (bindings == null) {
+                ErlLogger.error("parser for %s got: %s", module.getName(), res);
+            }
+        } else {
+            ErlLogger.error("rpc error when parsing %s: %s", module.getName(),
+                    res);
+        }
+        if (bindings == null) {
+            module.removeChildren();
+            return true;
+        }
+        final OtpErlangList forms = (OtpErlangList) bindings.get("Forms");
+        final OtpErlangList comments = (OtpErlangList) bindings.get("Comments");
+        final ErlElementDelta delta = new ErlElementDelta(
+                IErlElementDelta.CHANGED, IErlElementDelta.F_CHILDREN
+                        | IErlElementDelta.F_FINE_GRAINED, module);
+        final List<IErlElement> members = new ArrayList<IErlElement>(
+                forms.arity());
+        final Map<Integer, IErlMember> newForms = new HashMap<Integer, IErlMember>();
+        try {
+            for (final OtpErlangObject o : forms) {
+                // {same, Id, Line, Offset} or {new, Id, Form}
+                final OtpErlangTuple form = (OtpErlangTuple) o;
+                final String kind = ((OtpErlangAtom) form.elementAt(0))
+                        .atomValue();
+                final Integer id = ((OtpErlangLong) form.elementAt(1))
+                        .intValue();
+                IErlMember member;
+                if ("same".equals(kind)) {
+                    if (!oldForms.containsKey(id)) {
+                        // the backend doesn't know what we have, start over
+                        module.removeChildren();
+                        return reparse(module, b, scannerModuleName);
+                    }
+                    member = oldForms.remove(id);
+                    if (member != null) {
+                        final SourceRefElement e = (SourceRefElement) member;
+                        final int line = ((OtpErlangLong) form.elementAt(2))
+                                .intValue();
+                        final int offset = ((OtpErlangLong) form.elementAt(3))
+                                .intValue();
+                        e.shift(line - e.lineStart, offset
+                                - e.fSourceRangeOffset);
+                    }
+                } else {
+                    member = create(module, (OtpErlangTuple) form.elementAt(2));
+                    if (member != null) {
+                        delta.insertDeltaTree(member, new ErlElementDelta(
+                                IErlElementDelta.ADDED, 0, member));
+                    }
+                }
+                // null members are kept, so that they are known when same
+                newForms.put(id, member);
+                if (member != null) {
+                    members.add(member);
+                }
+            }
+        } catch (final OtpErlangRangeException e) {
+            ErlLogger.error("parser for %s got: %s", module.getName(), res);
+            module.removeChildren();
+            return true;
+        }
+        for (final IErlMember member : oldForms.values()) {
+            if (member != null) {
+                delta.insertDeltaTree(member, new ErlElementDelta(
+                        IErlElementDelta.REMOVED, 0, member));
+            }
+        }
+        module.setMembers(members, newForms);
+        module.removeComments();
+        for (final OtpErlangObject comment : comments) {
+            final IErlComment c = createComment(module,
+                    (OtpErlangTuple) comment);
+            if (c != null) {
+                module.addComment(c);
+            }
+        }
+        if (delta.getChildren(IErlElementDelta.ALL).length > 0) {
+            final IErlModelManager manager = ErlangCore.getModelManager();
+            manager.registerModelDelta(delta);
+            manager.fire(ElementChangedEvent.POST_CHANGE);
+        }
+        return true;
+    }
+
     /**
      * create an IErlComment from a token record
      * 
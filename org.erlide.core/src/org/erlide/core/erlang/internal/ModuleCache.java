@@ -0,0 +1,101 @@
+package org.erlide.core.erlang.internal;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.erlide.jinterface.util.ErlLogger;
+
+/**
+ * Keeps the structure of at most a number of modules in memory. The modules
+ * whose structure is built are kept in the order they were last built, and
+ * when there are too many, the least recently built are evicted by a job.
+ * <p>
+ * Modules open in an editor are not evicted. An evicted module drops its
+ * scanner too, and builds its structure again when it is needed, from the
+ * parser cache of the backend.
+ */
+final class ModuleCache {
+
+	private final int limit;
+	// access ordered, the least recently used first
+	private final LinkedHashMap<ErlModule, ErlModule> modules = new LinkedHashMap<ErlModule, ErlModule>(
+			16, 0.75f, true);
+	private boolean scheduled = false;
+	// the modules left by the last eviction, the ones open in editors
+	private int kept = 0;
+
+	private final Job job = new Job("evict modules") {
+		@Override
+		protected IStatus run(final IProgressMonitor monitor) {
+			evict();
+			return Status.OK_STATUS;
+		}
+	};
+
+	ModuleCache(final int limit) {
+		this.limit = limit;
+		job.setSystem(true);
+		job.setPriority(Job.DECORATE);
+	}
+
+	/**
+	 * Note that the structure of the module was built.
+	 */
+	void touch(final ErlModule module) {
+		synchronized (this) {
+			modules.put(module, module);
+			// don't walk the modules again on each build when none of them
+			// can be evicted, only when there are new ones
+			if (scheduled || modules.size() <= Math.max(limit, kept)) {
+				return;
+			}
+			scheduled = true;
+		}
+		// evicting needs the lock of the modules, which the caller may hold
+		job.schedule();
+	}
+
+	synchronized void remove(final ErlModule module) {
+		modules.remove(module);
+		kept = Math.min(kept, modules.size());
+	}
+
+	synchronized int size() {
+		return modules.size();
+	}
+
+	/**
+	 * Evict the least recently built modules, until there are no more than the
+	 * limit or only modules open in editors are left.
+	 */
+	void evict() {
+		final List<ErlModule> candidates;
+		synchronized (this) {
+			scheduled = false;
+			candidates = new ArrayList<ErlModule>(modules.keySet());
+		}
+		int evicted = 0;
+		for (final ErlModule module : candidates) {
+			synchronized (this) {
+				if (modules.size() <= limit) {
+					break;
+				}
+			}
+			if (module.evict()) {
+				remove(module);
+				evicted++;
+			}
+		}
+		synchronized (this) {
+			kept = modules.size();
+		}
+		if (ErlModelManager.verbose) {
+			ErlLogger.debug("evicted %d modules, %d left", evicted, size());
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package org.erlide.core.erlang.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.erlide.core.erlang.IErlElement;
+import org.erlide.core.erlang.IErlModule;
+import org.erlide.core.erlang.IParent;
+
+/**
+ * Finds modules by name without walking the model. The model manager adds the
+ * modules it creates and removes them when their resources are removed.
+ * <p>
+ * A module is found by its name with or without extension, or by the same in
+ * lower case for the case insensitive lookups. Not all modules are in the
+ * index, for example the external ones, so a name that isn't found still
+ * needs a walk.
+ */
+final class ModuleIndex {
+
+	private final Map<String, List<IErlModule>> byName = new HashMap<String, List<IErlModule>>();
+	private final Map<String, List<IErlModule>> byLowerName = new HashMap<String, List<IErlModule>>();
+
+	synchronized void add(final IErlModule module) {
+		// replaces a module created earlier for the same file
+		remove(module);
+		for (final String key : keys(module)) {
+			put(byName, key, module);
+			put(byLowerName, key.toLowerCase(), module);
+		}
+	}
+
+	synchronized void remove(final IErlModule module) {
+		for (final String key : keys(module)) {
+			remove(byName, key, module);
+			remove(byLowerName, key.toLowerCase(), module);
+		}
+	}
+
+	/**
+	 * Remove the modules in a project or folder that was removed.
+	 */
+	synchronized void removeAll(final IErlElement parent) {
+		removeAll(byName, parent);
+		removeAll(byLowerName, parent);
+	}
+
+	/**
+	 * @return the first module with the name in the scope, or null
+	 */
+	synchronized IErlModule find(final IParent scope, final String name,
+			final boolean caseinsensitive) {
+		final List<IErlModule> modules = caseinsensitive ? byLowerName
+				.get(name.toLowerCase()) : byName.get(name);
+		if (modules == null) {
+			return null;
+		}
+		for (final IErlModule module : modules) {
+			if (isAncestor((IErlElement) scope, module)) {
+				return module;
+			}
+		}
+		return null;
+	}
+
+	synchronized int size() {
+		final Set<IErlModule> all = new HashSet<IErlModule>();
+		for (final List<IErlModule> modules : byName.values()) {
+			all.addAll(modules);
+		}
+		return all.size();
+	}
+
+	private static String[] keys(final IErlModule module) {
+		final String name = module.getName();
+		final String moduleName = module.getModuleName();
+		return name.equals(moduleName) ? new String[] { name } : new String[] {
+				name, moduleName };
+	}
+
+	private static boolean isAncestor(final IErlElement parent,
+			final IErlElement e) {
+		IErlElement p = e.getParent();
+		while (p != null && !p.equals(parent)) {
+			p = p.getParent();
+		}
+		return p != null;
+	}
+
+	private static void put(final Map<String, List<IErlModule>> map,
+			final String key, final IErlModule module) {
+		List<IErlModule> modules = map.get(key);
+		if (modules == null) {
+			modules = new ArrayList<IErlModule>(1);
+			map.put(key, modules);
+		}
+		modules.add(module);
+	}
+
+	private static void removeAll(final Map<String, List<IErlModule>> map,
+			final IErlElement parent) {
+		for (final Iterator<List<IErlModule>> i = map.values().iterator(); i
+				.hasNext();) {
+			final List<IErlModule> modules = i.next();
+			for (final Iterator<IErlModule> j = modules.iterator(); j.hasNext();) {
+				if (isAncestor(parent, j.next())) {
+					j.remove();
+				}
+			}
+			if (modules.isEmpty()) {
+				i.remove();
+			}
+		}
+	}
+
+	private static void remove(final Map<String, List<IErlModule>> map,
+			final String key, final IErlModule module) {
+		final List<IErlModule> modules = map.get(key);
+		if (modules != null) {
+			modules.remove(module);
+			if (modules.isEmpty()) {
+				map.remove(key);
+			}
+		}
+	}
+}
@@ -243,6 +243,15 @@ abstract class SourceRefElement extends ErlElement implements ISourceReference {
         return lineEnd;
     }
 
+    /**
+     * Move the element, when text was changed before it.
+     */
+    void shift(final int lineDelta, final int offsetDelta) {
+        fSourceRangeOffset += offsetDelta;
+        lineStart += lineDelta;
+        lineEnd += lineDelta;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (!super.equals(o) || !(o instanceof SourceRefElement)) {
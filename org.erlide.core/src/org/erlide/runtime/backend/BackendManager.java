@@ -78,10 +78,13 @@ public final class BackendManager extends OtpNodeStatus implements
 		DEBUG, AUTOSTART, TRAP_EXIT, NO_CONSOLE, INTERNAL, IDE, LOAD_ALL_NODES
 	}
 
+	private static final int BUILD_NODES = Math.max(1, Integer.getInteger(
+			"erlide.builder.nodes", 1).intValue());
+
 	private volatile ErlideBackend ideBackend;
 	private final Object ideBackendLock = new Object();
 	private final Map<IProject, Set<ErlideBackend>> executionBackends;
-	private final Map<String, ErlideBackend> buildBackends;
+	private final Map<String, List<ErlideBackend>> buildBackends;
 	final List<BackendListener> listeners;
 	private final Map<Bundle, CodeBundle> codeBundles;
 
@@ -100,7 +103,7 @@ public final class BackendManager extends OtpNodeStatus implements
 	private BackendManager() {
 		ideBackend = null;
 		executionBackends = new HashMap<IProject, Set<ErlideBackend>>();
-		buildBackends = new HashMap<String, ErlideBackend>();
+		buildBackends = new HashMap<String, List<ErlideBackend>>();
 		allBackends = Sets.newHashSet();
 		listeners = new ArrayList<BackendListener>();
 		codeBundles = Maps.newHashMap();
@@ -189,9 +192,26 @@ public final class BackendManager extends OtpNodeStatus implements
 
 	public Backend getBuildBackend(final IProject project)
 			throws BackendException {
+		return getBuildBackends(project, 1).get(0);
+	}
+
+	/**
+	 * Get the nodes that can be used to build the project. There are up to
+	 * <code>erlide.builder.nodes</code> of them for each runtime version
+	 * (default 1); the first is the one returned by
+	 * {@link #getBuildBackend(IProject)}.
+	 */
+	public List<Backend> getBuildBackends(final IProject project)
+			throws BackendException {
+		return getBuildBackends(project, BUILD_NODES);
+	}
+
+	private List<Backend> getBuildBackends(final IProject project,
+			final int count) throws BackendException {
 		final IOldErlangProjectProperties prefs = ErlangCore
 				.getProjectProperties(project);
 		final RuntimeInfo info = prefs.getRuntimeInfo();
+		final List<Backend> result = Lists.newArrayList();
 		if (info == null) {
 			ErlLogger.info("Project %s has no runtime info, using ide", project
 					.getName());
@@ -200,26 +220,54 @@ public final class BackendManager extends OtpNodeStatus implements
 						"IDE backend is not created - check configuration!");
 			}
 			ideBackend.addProjectPath(project);
-			return ideBackend;
+			result.add(ideBackend);
+			return result;
 		}
 		final String version = info.getVersion().asMajor().toString();
-		ErlideBackend b = buildBackends.get(version);
-		if (b == null) {
-			info.setNodeName(version);
-			info.setNodeNameSuffix("_" + BackendUtils.getErlideNameTag());
-			info.setCookie("erlide");
-			info.hasConsole(false);
-			// will add workspace unique id
-			final EnumSet<BackendOptions> options = EnumSet.of(
-					BackendOptions.AUTOSTART, BackendOptions.NO_CONSOLE,
-					BackendOptions.INTERNAL);
-			b = createInternalBackend(info, options, null);
-			buildBackends.put(version, b);
+		List<ErlideBackend> bs;
+		synchronized (buildBackends) {
+			bs = buildBackends.get(version);
+			if (bs == null) {
+				bs = Lists.newArrayList();
+				buildBackends.put(version, bs);
+			}
+			while (bs.size() < count) {
+				final ErlideBackend b = createBuildBackend(info, version, bs
+						.size());
+				if (b == null) {
+					break;
+				}
+				bs.add(b);
+			}
+			bs = Lists.newArrayList(bs.subList(0, Math.min(count, bs.size())));
+		}
+		if (bs.isEmpty()) {
+			throw new BackendException("Could not start build backend for "
+					+ version);
+		}
+		for (final ErlideBackend b : bs) {
+			b.addProjectPath(project);
+			result.add(b);
 		}
-		b.addProjectPath(project);
 
-		ErlLogger.info("BUILD project %s on %s", project.getName(), info);
-		return b;
+		ErlLogger.info("BUILD project %s on %s (%d node(s))",
+				project.getName(), info, Integer.valueOf(result.size()));
+		return result;
+	}
+
+	private ErlideBackend createBuildBackend(final RuntimeInfo info0,
+			final String version, final int index) throws BackendException {
+		final RuntimeInfo info = index == 0 ? info0 : RuntimeInfo.copy(info0,
+				false);
+		info.setNodeName(index == 0 ? version : version + "_" + index);
+		info.setNodeNameSuffix("_" + BackendUtils.getErlideNameTag());
+		info.setCookie("erlide");
+		info.hasConsole(false);
+		// will add workspace unique id
+		final EnumSet<BackendOptions> options = EnumSet.of(
+				BackendOptions.AUTOSTART, BackendOptions.NO_CONSOLE,
+				BackendOptions.INTERNAL);
+		return createInternalBackend(info, options, null);
 	}
 
 	private ILaunchConfiguration getLaunchConfiguration(RuntimeInfo info,
@@ -11,7 +11,9 @@
 package org.erlide.runtime.debug;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
@@ -50,6 +52,16 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
 	public static final String STATUS_BREAK = "break";
 	public static final String STATUS_IDLE = "idle";
 
+	// the process info items fetched together; the messages and the
+	// dictionary can be big, so they are only fetched when asked for
+	private static final String[][] PROCESS_INFO_GROUPS = {
+			{ "registered_name", "current_function", "reductions",
+					"error_handler", "group_leader", "heap_size",
+					"message_queue_len", "priority", "stack_size", "trap_exit",
+					"memory" },
+			{ "links", "last_calls", "monitored_by", "monitors" },
+			{ "dictionary" }, { "messages" } };
+
 	private final OtpErlangPid fPid;
 
 	private OtpErlangPid fCachedMetaPid = null;
@@ -65,6 +77,10 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
 	private boolean stepping;
 	private ErlangFunctionCall fInitialCall;
 	private boolean fTracing;
+	private final Map<String, OtpErlangObject> fProcessInfo = new HashMap<String, OtpErlangObject>();
+	// incremented when the process info is cleared
+	private int fProcessInfoVersion = 0;
+	private boolean[] fProcessKind = null;
 
 	public ErlangProcess(final IDebugTarget target, final Backend backend,
 			final OtpErlangPid pid) {
@@ -78,9 +94,75 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
 		fTracing = false;
 	}
 
+	/**
+	 * Get a process info item. The first getter after the info was cleared
+	 * fetches the item together with the others of its group, in a single
+	 * call. The getters return these values until the process is suspended,
+	 * resumed or changed.
+	 */
+	private OtpErlangObject getProcessInfo(final String item) {
+		final int version;
+		synchronized (this) {
+			if (fProcessInfo.containsKey(item)) {
+				return fProcessInfo.get(item);
+			}
+			version = fProcessInfoVersion;
+		}
+		final String[] group = getProcessInfoGroup(item);
+		final OtpErlangObject[] values = ErlideDebug.getProcessInfos(fBackend,
+				fPid, group);
+		OtpErlangObject result = null;
+		synchronized (this) {
+			for (int i = 0; i < group.length; i++) {
+				// don't keep values fetched before the info was cleared
+				if (version == fProcessInfoVersion) {
+					fProcessInfo.put(group[i], values[i]);
+				}
+				if (group[i].equals(item)) {
+					result = values[i];
+				}
+			}
+		}
+		return result;
+	}
+
+	private static String[] getProcessInfoGroup(final String item) {
+		for (final String[] group : PROCESS_INFO_GROUPS) {
+			for (final String i : group) {
+				if (i.equals(item)) {
+					return group;
+				}
+			}
+		}
+		return new String[] { item };
+	}
+
+	private synchronized void clearProcessInfo() {
+		fProcessInfo.clear();
+		fProcessInfoVersion++;
+	}
+
+	// the views are refreshed after these events, so they get fresh info
+	@Override
+	public void fireSuspendEvent(final int detail) {
+		clearProcessInfo();
+		super.fireSuspendEvent(detail);
+	}
+
+	@Override
+	public void fireResumeEvent(final int detail) {
+		clearProcessInfo();
+		super.fireResumeEvent(detail);
+	}
+
+	@Override
+	public void fireChangeEvent(final int detail) {
+		clearProcessInfo();
+		super.fireChangeEvent(detail);
+	}
+
 	public String getRegisteredName() {
-		final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend, fPid,
-				"registered_name");
+		final OtpErlangObject res = getProcessInfo("registered_name");
 		if (res != null) {
 			return res.toString();
 		}
@@ -88,8 +170,7 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
 	}
 
 	public OtpErlangTuple getCurrentFunction() {
-		final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend, fPid,
-				"current_function");
+		final OtpErlangObject res = getProcessInfo("current_function");
 		return (OtpErlangTuple) res;
 	}
 
@@ -101,8 +182,7 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
 	}
 
 	public long getReductions() {
-		final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend, fPid,
-				"reductions");
+		final OtpErlangObject res = getProcessInfo("reductions");
 		if (res != null) {
 			return ((OtpErlangLong) res).longValue();
 		}
@@ -110,26 +190,22 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
 	}
 
 	public OtpErlangObject getDictionary() {
-		final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend, fPid,
-				"dictionary");
+		final OtpErlangObject res = getProcessInfo("dictionary");
 		return res;
 	}
 
 	public OtpErlangObject getErrorHandler() {
-		final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend, fPid,
-				"error_handler");
+		final OtpErlangObject res = getProcessInfo("error_handler");
 		return res;
 	}
 
 	public OtpErlangObject getGroupLeader() {
-		final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend, fPid,
-				"group_leader");
+		final OtpErlangObject res = getProcessInfo("group_leader");
 		return res;
 	}
 
 	public OtpErlangObject getHeapSize() {
-		final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend, fPid,
-				"heap_size");
+		final OtpErlangObject res = getProcessInfo("heap_size");
 		return res;
 	}
 
@@ -142,32 +218,27 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
 	}
 
 	public OtpErlangObject getLinks() {
-		final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend, fPid,
-				"links");
+		final OtpErlangObject res = getProcessInfo("links");
 		return res;
 	}
 
 	public OtpErlangObject getMessageQueueLen() {
-		final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend, fPid,
-				"message_queue_len");
+		final OtpErlangObject res = getProcessInfo("message_queue_len");
 		return res;
 	}
 
 	public OtpErlangObject getMessages() {
-		final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend, fPid,
-				"messages");
+		final OtpErlangObject res = getProcessInfo("messages");
 		return res;
 	}
 
 	public OtpErlangObject getErlPriority() {
-		final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend, fPid,
-				"priority");
+		final OtpErlangObject res = getProcessInfo("priority");
 		return res;
 	}
 
 	public OtpErlangObject getStackSize() {
-		final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend, fPid,
-				"stack_size");
+		final OtpErlangObject res = getProcessInfo("stack_size");
 		return res;
 	}
 
@@ -186,11 +257,11 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
 
 	public void setStatus(final String status) {
 		fStatus = status;
+		clearProcessInfo();
 	}
 
 	public boolean getTrapExit() {
-		final OtpErlangAtom res = (OtpErlangAtom) ErlideDebug.getProcessInfo(
-				fBackend, fPid, "trap_exit");
+		final OtpErlangAtom res = (OtpErlangAtom) getProcessInfo("trap_exit");
 		return "true".equals(res.atomValue());
 	}
 
@@ -272,26 +343,22 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
 	}
 
 	public OtpErlangObject getLastCalls() {
-		final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend, fPid,
-				"last_calls");
+		final OtpErlangObject res = getProcessInfo("last_calls");
 		return res;
 	}
 
 	public OtpErlangObject getMemory() {
-		final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend, fPid,
-				"memory");
+		final OtpErlangObject res = getProcessInfo("memory");
 		return res;
 	}
 
 	public OtpErlangObject getMonitoredBy() {
-		final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend, fPid,
-				"monitored_by");
+		final OtpErlangObject res = getProcessInfo("monitored_by");
 		return res;
 	}
 
 	public OtpErlangObject getMonitors() {
-		final OtpErlangObject res = ErlideDebug.getProcessInfo(fBackend, fPid,
-				"monitors");
+		final OtpErlangObject res = getProcessInfo("monitors");
 		return res;
 	}
 
@@ -369,11 +436,13 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
 	}
 
 	public void resume() throws DebugException {
+		clearProcessInfo();
 		stepping = false;
 		ErlideDebug.resume(fBackend, getMeta());
 	}
 
 	public void suspend() throws DebugException {
+		clearProcessInfo();
 		stepping = false;
 		ErlideDebug.suspend(fBackend, getMeta());
 	}
@@ -407,16 +476,19 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
 	}
 
 	public void stepInto() throws DebugException {
+		clearProcessInfo();
 		stepping = true;
 		ErlideDebug.stepInto(fBackend, getMeta());
 	}
 
 	public void stepOver() throws DebugException {
+		clearProcessInfo();
 		stepping = true;
 		ErlideDebug.stepOver(fBackend, getMeta());
 	}
 
 	public void stepReturn() throws DebugException {
+		clearProcessInfo();
 		stepping = true;
 		ErlideDebug.stepReturn(fBackend, getMeta());
 	}
@@ -430,11 +502,19 @@ public class ErlangProcess extends ErlangDebugElement implements IThread {
 	}
 
 	public boolean isSystemProcess() {
-		return ErlideDebug.isSystemProcess(fBackend, fPid);
+		return getProcessKind()[0];
 	}
 
 	public boolean isErlideProcess() {
-		return ErlideDebug.isErlideProcess(fBackend, fPid);
+		return getProcessKind()[1];
+	}
+
+	private synchronized boolean[] getProcessKind() {
+		// these don't change during the life of the process
+		if (fProcessKind == null) {
+			fProcessKind = ErlideDebug.getProcessKind(fBackend, fPid);
+		}
+		return fProcessKind;
 	}
 
 	/**
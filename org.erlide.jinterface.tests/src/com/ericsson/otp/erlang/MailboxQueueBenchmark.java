@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package com.ericsson.otp.erlang;
+
+/**
+ * Measures the throughput of a mailbox queue with 1, 2, 4 and 8 threads
+ * putting messages and one thread receiving them, for the synchronized
+ * {@link GenericQueue} and the lock-free {@link MailboxQueue}.
+ */
+public class MailboxQueueBenchmark {
+
+	private static final int MESSAGES = 2000000;
+	private static final int[] PRODUCERS = { 1, 2, 4, 8 };
+
+	private interface Queue {
+		void put(Object o);
+
+		Object get() throws InterruptedException;
+	}
+
+	public static void main(final String[] args) throws Exception {
+		for (final int producers : PRODUCERS) {
+			// warm up
+			run(generic(), producers);
+			run(mailbox(), producers);
+			final double g = run(generic(), producers);
+			final double m = run(mailbox(), producers);
+			System.out.println(String.format(
+					"%d producers: GenericQueue %6.1f Mmsg/s, "
+							+ "MailboxQueue %6.1f Mmsg/s", producers, g, m));
+		}
+	}
+
+	private static Queue generic() {
+		final GenericQueue q = new GenericQueue();
+		return new Queue() {
+			public void put(final Object o) {
+				q.put(o);
+			}
+
+			public Object get() throws InterruptedException {
+				return q.get();
+			}
+		};
+	}
+
+	private static Queue mailbox() {
+		final MailboxQueue q = new MailboxQueue();
+		return new Queue() {
+			public void put(final Object o) {
+				q.put(o);
+			}
+
+			public Object get() {
+				return q.get();
+			}
+		};
+	}
+
+	/**
+	 * @return millions of messages per second
+	 */
+	private static double run(final Queue q, final int producers)
+			throws Exception {
+		final Object msg = new Object();
+		final int perProducer = MESSAGES / producers;
+		final Thread[] threads = new Thread[producers];
+		for (int i = 0; i < producers; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < perProducer; j++) {
+						q.put(msg);
+					}
+				}
+			};
+		}
+		final long start = System.nanoTime();
+		for (final Thread t : threads) {
+			t.start();
+		}
+		for (int i = 0; i < perProducer * producers; i++) {
+			q.get();
+		}
+		final long time = System.nanoTime() - start;
+		for (final Thread t : threads) {
+			t.join();
+		}
+		return perProducer * producers * 1000.0 / time;
+	}
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package com.ericsson.otp.erlang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MailboxQueueTest {
+
+	@Test
+	public void fifoAcrossSegments() throws Exception {
+		final MailboxQueue q = new MailboxQueue();
+		for (int i = 0; i < 1000; i++) {
+			q.put(Integer.valueOf(i));
+		}
+		assertEquals(1000, q.getCount());
+		assertEquals(Integer.valueOf(0), q.peek());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(Integer.valueOf(i), q.get(0));
+		}
+		assertNull(q.tryGet());
+		assertNull(q.peek());
+		assertEquals(0, q.getCount());
+	}
+
+	@Test
+	public void getTimesOut() {
+		final MailboxQueue q = new MailboxQueue();
+		final long start = System.currentTimeMillis();
+		try {
+			q.get(50);
+			fail("get should time out");
+		} catch (final InterruptedException e) {
+			assertTrue(System.currentTimeMillis() - start >= 45);
+		}
+	}
+
+	@Test
+	public void blockedGetIsWokenUp() throws Exception {
+		final MailboxQueue q = new MailboxQueue();
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+				} catch (final InterruptedException e) {
+				}
+				q.put("hello");
+			}
+		}.start();
+		assertEquals("hello", q.get());
+	}
+
+	@Test
+	public void manyProducers() throws Exception {
+		final MailboxQueue q = new MailboxQueue();
+		final int producers = 4;
+		final int n = 20000;
+		for (int p = 0; p < producers; p++) {
+			final int id = p;
+			new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < n; i++) {
+						q.put(new int[] { id, i });
+					}
+				}
+			}.start();
+		}
+		// each producer's messages arrive in order
+		final int[] next = new int[producers];
+		for (int i = 0; i < producers * n; i++) {
+			final int[] m = (int[]) q.get(5000);
+			assertEquals(next[m[0]], m[1]);
+			next[m[0]]++;
+		}
+		assertNull(q.tryGet());
+	}
+
+	@Test
+	public void receiveMsgsStopsAtExit() throws Exception {
+		final OtpErlangPid from = new OtpErlangPid("a@localhost", 1, 0, 0);
+		final OtpMbox mbox = new OtpMbox(null, new OtpErlangPid(
+				"b@localhost", 2, 0, 0));
+		for (int i = 0; i < 5; i++) {
+			mbox.deliver(new OtpMsg(mbox.self(), new OtpErlangLong(i)));
+		}
+		mbox.deliver(new OtpMsg(OtpMsg.exit2Tag, from, mbox.self(),
+				new OtpErlangAtom("kill")));
+		mbox.deliver(new OtpMsg(mbox.self(), new OtpErlangLong(5)));
+		final List<OtpMsg> msgs = new ArrayList<OtpMsg>();
+		assertEquals(3, mbox.receiveMsgs(msgs, 3, 0));
+		assertEquals(2, mbox.receiveMsgs(msgs, 100, 0));
+		assertEquals(5, msgs.size());
+		assertEquals(new OtpErlangLong(4), msgs.get(4).getMsg());
+		try {
+			mbox.receiveMsgs(msgs, 100, 0);
+			fail("the exit should be received");
+		} catch (final OtpErlangExit e) {
+			assertEquals(new OtpErlangAtom("kill"), e.reason());
+		}
+		assertEquals(1, mbox.receiveMsgs(msgs, 100, 0));
+	}
+}
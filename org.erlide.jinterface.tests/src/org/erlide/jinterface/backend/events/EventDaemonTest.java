@@ -0,0 +1,104 @@
+package org.erlide.jinterface.backend.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+
+public class EventDaemonTest {
+
+	private static class CollectingHandler extends EventHandler {
+		final List<OtpErlangObject> msgs = Collections
+				.synchronizedList(new ArrayList<OtpErlangObject>());
+		final CountDownLatch done;
+
+		CollectingHandler(final int expected) {
+			done = new CountDownLatch(expected);
+		}
+
+		@Override
+		protected void doHandleMsg(final OtpErlangObject msg) throws Exception {
+			msgs.add(msg);
+			done.countDown();
+		}
+	}
+
+	private static OtpErlangObject event(final String topic, final int i) {
+		return new OtpErlangTuple(new OtpErlangObject[] {
+				new OtpErlangAtom("event"), new OtpErlangAtom(topic),
+				new OtpErlangLong(i), new OtpErlangAtom("pid") });
+	}
+
+	@Test
+	public void getTopic() {
+		assertEquals("log", EventDaemon.getTopic(event("log", 1)));
+		assertNull(EventDaemon.getTopic(new OtpErlangAtom("event")));
+		assertNull(EventDaemon.getTopic(new OtpErlangTuple(
+				new OtpErlangObject[] { new OtpErlangAtom("call"),
+						new OtpErlangAtom("log"), new OtpErlangLong(1) })));
+	}
+
+	@Test
+	public void eventsGoToTheirTopic() throws Exception {
+		final EventDaemon daemon = new EventDaemon(null);
+		final CollectingHandler log = new CollectingHandler(2);
+		final CollectingHandler io = new CollectingHandler(1);
+		final CollectingHandler all = new CollectingHandler(4);
+		daemon.addHandler("log", log);
+		daemon.addHandler("io_server", io);
+		daemon.addHandler(all);
+		final OtpErlangObject other = new OtpErlangAtom("other");
+		daemon.dispatch(Arrays.asList(event("log", 1), event("io_server", 2),
+				other, event("log", 3)));
+		assertTrue(log.done.await(5, TimeUnit.SECONDS));
+		assertTrue(io.done.await(5, TimeUnit.SECONDS));
+		assertTrue(all.done.await(5, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList(event("log", 1), event("log", 3)), log.msgs);
+		assertEquals(Arrays.asList(event("io_server", 2)), io.msgs);
+		assertEquals(4, all.msgs.size());
+		assertEquals(3, daemon.getHandlers().size());
+
+		daemon.removeHandler(log);
+		daemon.dispatch(Arrays.asList(event("log", 4)));
+		Thread.sleep(100);
+		assertEquals(2, log.msgs.size());
+	}
+
+	@Test
+	public void slowHandlerOnlyDelaysItsTopic() throws Exception {
+		final EventDaemon daemon = new EventDaemon(null);
+		final CountDownLatch release = new CountDownLatch(1);
+		daemon.addHandler("slow", new EventHandler() {
+			@Override
+			protected void doHandleMsg(final OtpErlangObject msg)
+					throws Exception {
+				release.await();
+			}
+		});
+		final CollectingHandler fast = new CollectingHandler(1);
+		daemon.addHandler("fast", fast);
+		daemon.dispatch(Arrays.asList(event("slow", 1), event("slow", 2)));
+		daemon.dispatch(Arrays.asList(event("slow", 3), event("fast", 4)));
+		assertTrue(fast.done.await(5, TimeUnit.SECONDS));
+		assertEquals(3, daemon.getQueueDepth("slow"));
+		assertEquals(Integer.valueOf(3), daemon.getQueueDepths().get("slow"));
+		release.countDown();
+		for (int i = 0; i < 50 && daemon.getQueueDepth("slow") > 0; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(0, daemon.getQueueDepth("slow"));
+	}
+}
@@ -0,0 +1,75 @@
+package org.erlide.jinterface.backend.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.erlide.jinterface.util.TermParser;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangObject;
+
+public class ConcurrentLRUCacheTest {
+
+	@Test
+	public void hitsAndMisses() {
+		final ConcurrentLRUCache<String, String> cache = new ConcurrentLRUCache<String, String>(
+				10);
+		assertNull(cache.get("a"));
+		cache.put("a", "1");
+		assertEquals("1", cache.get("a"));
+		assertEquals("1", cache.get("a"));
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void bounded() {
+		final ConcurrentLRUCache<String, String> cache = new ConcurrentLRUCache<String, String>(
+				100);
+		for (int i = 0; i < 1000; i++) {
+			cache.put("key" + i, "value" + i);
+			// keep one entry in use
+			cache.get("key0");
+		}
+		assertTrue(cache.size() <= 100);
+		assertEquals("value0", cache.get("key0"));
+	}
+
+	@Test
+	public void parseConcurrently() throws Exception {
+		final int threads = 8;
+		final CountDownLatch done = new CountDownLatch(threads);
+		final AtomicInteger failures = new AtomicInteger();
+		for (int t = 0; t < threads; t++) {
+			final int seed = t;
+			new Thread(new Runnable() {
+				public void run() {
+					try {
+						for (int i = 0; i < 2000; i++) {
+							final int n = (i * 7 + seed) % 1500;
+							final OtpErlangObject term = TermParser
+									.parse("{x, " + n + ", [a, b]}");
+							if (!term.toString().equals(
+									"{x," + n + ",[a,b]}")) {
+								failures.incrementAndGet();
+							}
+						}
+					} catch (final Exception e) {
+						failures.incrementAndGet();
+					} finally {
+						done.countDown();
+					}
+				}
+			}).start();
+		}
+		done.await();
+		assertEquals(0, failures.get());
+		assertTrue(TermParser.getCache().size() <= 1000);
+	}
+}
@@ -14,6 +14,7 @@ import junit.framework.Assert;
 import org.erlide.jinterface.util.Bindings;
 import org.erlide.jinterface.util.ErlUtils;
 import org.erlide.jinterface.util.ParserException;
+import org.erlide.jinterface.util.PatternMatcher;
 import org.erlide.jinterface.util.TermParser;
 import org.junit.Test;
 
@@ -173,4 +174,22 @@ public class PatternMatchTest {
 		Assert.assertEquals(r.getAs("V", Integer.class), Integer.valueOf(1));
 	}
 
+	@Test
+	public void testMatcher_slots() throws Exception {
+		final PatternMatcher m = PatternMatcher.compile("{ok, X, [Y | T], X}");
+		final OtpErlangObject[] r = m.match(ErlUtils.parse("{ok, a, [b, c], a}"));
+		Assert.assertNotNull(r);
+		Assert.assertEquals(new OtpErlangAtom("a"), r[m.slot("X")]);
+		Assert.assertEquals(new OtpErlangAtom("b"), r[m.slot("Y")]);
+		Assert.assertEquals(TermParser.parse("[c]"), r[m.slot("T")]);
+		Assert.assertEquals(-1, m.slot("Z"));
+		Assert.assertNull(m.match(ErlUtils.parse("{ok, a, [b, c], b}")));
+	}
+
+	@Test
+	public void testMatcher_cached() throws Exception {
+		Assert.assertSame(PatternMatcher.compile("{X, _}"), PatternMatcher
+				.compile("{X, _}"));
+	}
+
 }
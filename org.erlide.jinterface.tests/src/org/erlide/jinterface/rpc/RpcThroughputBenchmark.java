@@ -0,0 +1,82 @@
+package org.erlide.jinterface.rpc;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpNode;
+
+/**
+ * Measures RPC throughput against a running local node, with 1 to 16 caller
+ * threads, for both the pooled and the one-mailbox-per-call paths.
+ *
+ * Start a node with <code>erl -sname bench -setcookie bench</code> and run
+ * with arguments <code>bench@host bench</code>.
+ */
+public class RpcThroughputBenchmark {
+
+	private static final long DURATION_MS = 3000;
+	private static final OtpErlangObject GLEADER = new OtpErlangAtom("user");
+
+	public static void main(final String[] args) throws Exception {
+		final String peer = args.length > 0 ? args[0] : "bench@localhost";
+		final String cookie = args.length > 1 ? args[1] : "bench";
+		final OtpNode node = new OtpNode("rpcbench", cookie);
+		if (!node.ping(peer, 5000)) {
+			System.err.println("can't reach " + peer);
+			return;
+		}
+		final RpcMboxPool pool = new RpcMboxPool(node);
+		try {
+			for (int threads = 1; threads <= 16; threads *= 2) {
+				final double pooled = run(threads, node, pool, peer);
+				final double plain = run(threads, node, null, peer);
+				System.out.println(String.format(
+						"%2d threads: pooled %8.0f calls/s, plain %8.0f calls/s",
+						threads, pooled, plain));
+			}
+		} finally {
+			pool.dispose();
+			node.close();
+		}
+	}
+
+	private static double run(final int threads, final OtpNode node,
+			final RpcMboxPool pool, final String peer)
+			throws InterruptedException {
+		final AtomicLong calls = new AtomicLong();
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threads);
+		final long[] end = new long[1];
+		for (int i = 0; i < threads; i++) {
+			final Thread t = new Thread(new Runnable() {
+				public void run() {
+					try {
+						start.await();
+						while (System.currentTimeMillis() < end[0]) {
+							if (pool != null) {
+								RpcUtil.rpcCall(pool, peer, GLEADER, "erlang",
+										"node", 5000, "");
+							} else {
+								RpcUtil.rpcCall(node, peer, GLEADER, "erlang",
+										"node", 5000, "");
+							}
+							calls.incrementAndGet();
+						}
+					} catch (final Exception e) {
+						e.printStackTrace();
+					} finally {
+						done.countDown();
+					}
+				}
+			});
+			t.setDaemon(true);
+			t.start();
+		}
+		end[0] = System.currentTimeMillis() + DURATION_MS;
+		start.countDown();
+		done.await();
+		return calls.get() * 1000.0 / DURATION_MS;
+	}
+}
@@ -0,0 +1,66 @@
+package org.erlide.jinterface.util;
+
+import com.ericsson.otp.erlang.OtpErlangObject;
+
+/**
+ * Measures matching terms against patterns given as text, by parsing the
+ * pattern each time and walking it, as it used to be, through the
+ * {@link ErlUtils} facade, and with a {@link PatternMatcher} compiled once.
+ */
+public class PatternMatchBenchmark {
+
+	private static final int ROUNDS = 100000;
+
+	private static final String[][] CASES = {
+			{ "{ok, {_, Forms, Comments}, _}",
+					"{ok, {mod, [{function, f, 1}, {function, g, 2}], []}, 3}" },
+			{ "[{K, V} | T]", "[{a, 1}, {b, 2}, {c, 3}, {d, 4}]" },
+			{ "{trace, N:i, call, {M:a, F:a, Args}}",
+					"{trace, 7, call, {lists, reverse, [[1, 2, 3]]}}" } };
+
+	public static void main(final String[] args) throws Exception {
+		for (int round = 0; round < 3; round++) {
+			for (final String[] c : CASES) {
+				final String pattern = c[0];
+				final OtpErlangObject term = TermParser.parse(c[1]);
+				// the parsed pattern without the matcher, to check the results
+				final OtpErlangObject parsed = TermParser.parse(pattern);
+				final Bindings expected = ErlUtils.match(parsed, term,
+						new Bindings());
+				final Bindings actual = ErlUtils.match(pattern, term);
+				final PatternMatcher matcher = PatternMatcher.compile(pattern);
+				for (final String var : matcher.getVariables()) {
+					if (expected == null
+							|| !expected.get(var).equals(actual.get(var))) {
+						throw new IllegalStateException("different bindings for "
+								+ pattern);
+					}
+				}
+
+				long t = System.nanoTime();
+				for (int i = 0; i < ROUNDS; i++) {
+					ErlUtils.match(parsed, term, new Bindings());
+				}
+				final long interpreted = System.nanoTime() - t;
+
+				t = System.nanoTime();
+				for (int i = 0; i < ROUNDS; i++) {
+					ErlUtils.match(pattern, term);
+				}
+				final long facade = System.nanoTime() - t;
+
+				t = System.nanoTime();
+				for (int i = 0; i < ROUNDS; i++) {
+					matcher.match(term);
+				}
+				final long compiled = System.nanoTime() - t;
+
+				System.out.println(String.format(
+						"%-40s interpreted %5.0f ns, facade %5.0f ns, "
+								+ "compiled %5.0f ns", pattern, (double) interpreted
+								/ ROUNDS, (double) facade / ROUNDS,
+						(double) compiled / ROUNDS));
+			}
+		}
+	}
+}
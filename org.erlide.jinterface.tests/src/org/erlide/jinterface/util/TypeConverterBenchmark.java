@@ -0,0 +1,97 @@
+package org.erlide.jinterface.util;
+
+import java.lang.reflect.Method;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangRangeException;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+
+/**
+ * Measures converting a list of 10000 tuples to Java objects with a
+ * fromErlangObject method and back, and the same conversion to Java with the
+ * method looked up for every element, as it used to be.
+ */
+public class TypeConverterBenchmark {
+
+	private static final int SIZE = 10000;
+	private static final int ROUNDS = 20;
+
+	public static class Item implements IConvertible {
+		final String name;
+		final long value;
+		final String text;
+
+		Item(final String name, final long value, final String text) {
+			this.name = name;
+			this.value = value;
+			this.text = text;
+		}
+
+		public static Item fromErlangObject(final OtpErlangObject obj)
+				throws OtpErlangRangeException {
+			final OtpErlangTuple t = (OtpErlangTuple) obj;
+			return new Item(((OtpErlangAtom) t.elementAt(0)).atomValue(),
+					((OtpErlangLong) t.elementAt(1)).longValue(),
+					((OtpErlangString) t.elementAt(2)).stringValue());
+		}
+
+		public OtpErlangObject toErlangObject() {
+			return new OtpErlangTuple(new OtpErlangObject[] {
+					new OtpErlangAtom(name), new OtpErlangLong(value),
+					new OtpErlangString(text) });
+		}
+	}
+
+	public static void main(final String[] args) throws Exception {
+		final OtpErlangObject[] tuples = new OtpErlangObject[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			tuples[i] = new Item("item", i, "text " + i).toErlangObject();
+		}
+		final OtpErlangList list = new OtpErlangList(tuples);
+		for (int round = 0; round < 3; round++) {
+			long t = System.nanoTime();
+			Item[] items = null;
+			for (int i = 0; i < ROUNDS; i++) {
+				items = (Item[]) TypeConverter.erlang2java(list, Item[].class);
+			}
+			final long toJava = System.nanoTime() - t;
+
+			t = System.nanoTime();
+			for (int i = 0; i < ROUNDS; i++) {
+				lookupEachTime(list);
+			}
+			final long uncached = System.nanoTime() - t;
+
+			t = System.nanoTime();
+			OtpErlangObject back = null;
+			for (int i = 0; i < ROUNDS; i++) {
+				back = TypeConverter.java2erlang(items, "lj");
+			}
+			final long toErlang = System.nanoTime() - t;
+			if (!list.equals(back)) {
+				throw new IllegalStateException("conversion changed the list");
+			}
+			System.out.println(String.format(
+					"%d tuples: to Java %6.2f ms (lookup each time %6.2f ms), "
+							+ "to Erlang %6.2f ms", SIZE, toJava / 1e6
+							/ ROUNDS, uncached / 1e6 / ROUNDS, toErlang / 1e6
+							/ ROUNDS));
+		}
+	}
+
+	private static Item[] lookupEachTime(final OtpErlangList list)
+			throws Exception {
+		final Item[] items = new Item[list.arity()];
+		for (int i = 0; i < items.length; i++) {
+			final Method method = Item.class.getMethod("fromErlangObject",
+					new Class<?>[] { OtpErlangObject.class });
+			method.setAccessible(true);
+			items[i] = (Item) method.invoke(null, list.elementAt(i));
+		}
+		return items;
+	}
+}
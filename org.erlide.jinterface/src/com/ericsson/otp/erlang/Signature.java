@@ -11,13 +11,14 @@
 package com.ericsson.otp.erlang;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+
+import org.erlide.jinterface.backend.util.ConcurrentLRUCache;
 
 public class Signature {
-	private static final Map<String, Signature[]> CACHE = new HashMap<String, Signature[]>();
-	private static boolean useCache = true;
+	private static final ConcurrentLRUCache<String, Signature[]> CACHE = new ConcurrentLRUCache<String, Signature[]>(
+			500);
+	private static volatile boolean useCache = true;
 
 	public char kind = 'x';
 	public Signature[] content = null;
@@ -50,7 +51,7 @@ public class Signature {
 		return this.kind + res.toString();
 	}
 
-	public static synchronized Signature[] parse(final String signature)
+	public static Signature[] parse(final String signature)
 			throws SignatureException {
 		if (signature == null) {
 			return null;
@@ -109,6 +110,13 @@ public class Signature {
 		}
 	}
 
+	/**
+	 * @return the cache of parsed signatures, for its statistics
+	 */
+	public static ConcurrentLRUCache<String, Signature[]> getCache() {
+		return CACHE;
+	}
+
 	/** To be used only by the unit tests. */
 	static void setUseCache(final boolean use) {
 		useCache = use;
@@ -12,13 +12,19 @@ package org.erlide.jinterface.backend;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 
 import org.erlide.jinterface.backend.events.EventDaemon;
 import org.erlide.jinterface.backend.events.LogEventHandler;
+import org.erlide.jinterface.rpc.RpcBatchFuture;
+import org.erlide.jinterface.rpc.RpcCall;
+import org.erlide.jinterface.rpc.RpcCompletionQueue;
 import org.erlide.jinterface.rpc.RpcException;
 import org.erlide.jinterface.rpc.RpcFuture;
+import org.erlide.jinterface.rpc.RpcMboxPool;
 import org.erlide.jinterface.rpc.RpcResult;
 import org.erlide.jinterface.rpc.RpcUtil;
 import org.erlide.jinterface.util.ErlLogger;
@@ -31,6 +37,7 @@ import com.ericsson.otp.erlang.OtpErlangPid;
 import com.ericsson.otp.erlang.OtpErlangString;
 import com.ericsson.otp.erlang.OtpErlangTuple;
 import com.ericsson.otp.erlang.OtpMbox;
+import com.ericsson.otp.erlang.OtpMsg;
 import com.ericsson.otp.erlang.OtpNode;
 import com.ericsson.otp.erlang.OtpNodeStatus;
 import com.ericsson.otp.erlang.SignatureException;
@@ -57,6 +64,7 @@ public class Backend extends OtpNodeStatus {
 	private boolean fDebug;
 	private final RuntimeInfo fInfo;
 	private OtpNode fNode;
+	private volatile RpcMboxPool rpcPool;
 	private String fPeer;
 	private int restarted = 0;
 	private boolean stopped = false;
@@ -163,6 +171,58 @@ public class Backend extends OtpNodeStatus {
 		}
 	}
 
+	/**
+	 * Send many calls in a single RPC. The returned future holds one result
+	 * per call, in the same order.
+	 */
+	public RpcBatchFuture async_call_batch(final List<RpcCall> calls)
+			throws BackendException {
+		try {
+			checkAvailability();
+			return RpcUtil.sendRpcBatch(getRpcPool(), getPeer(),
+					new OtpErlangAtom("user"), calls);
+		} catch (final RpcException e) {
+			throw new BackendException(e);
+		} catch (SignatureException e) {
+			throw new BackendException(e);
+		}
+	}
+
+	public List<RpcResult> call_batch(final List<RpcCall> calls)
+			throws BackendException {
+		return call_batch(DEFAULT_TIMEOUT, calls);
+	}
+
+	/**
+	 * Batched RPC with timeout, throws Exception if the batch as a whole
+	 * failed. Failures of individual calls are reported in their result.
+	 */
+	public List<RpcResult> call_batch(final int timeout,
+			final List<RpcCall> calls) throws BackendException {
+		final RpcBatchFuture future = async_call_batch(calls);
+		try {
+			return future.get(timeout);
+		} catch (final RpcException e) {
+			future.cancel();
+			throw new BackendException(e);
+		}
+	}
+
+	/**
+	 * Create a queue for running many calls whose results are to be handled
+	 * as soon as they arrive. It must be closed after use.
+	 */
+	public <T> RpcCompletionQueue<T> createCompletionQueue()
+			throws BackendException {
+		try {
+			checkAvailability();
+		} catch (final RpcException e) {
+			throw new BackendException(e);
+		}
+		return new RpcCompletionQueue<T>(createMbox(), getPeer(),
+				new OtpErlangAtom("user"));
+	}
+
 	public void send(final OtpErlangPid pid, final Object msg) {
 		if (!available) {
 			return;
@@ -195,6 +255,31 @@ public class Backend extends OtpNodeStatus {
 		return eventBox.receive(timeout);
 	}
 
+	/**
+	 * Wait for an event, then take all the events that are waiting, up to
+	 * max.
+	 *
+	 * @return the number of events added to the list; 0 if none arrived
+	 *         before the timeout
+	 */
+	public int receiveEvents(final List<OtpErlangObject> events,
+			final int max, final long timeout) throws OtpErlangExit,
+			OtpErlangDecodeException {
+		if (eventBox == null) {
+			return 0;
+		}
+		final List<OtpMsg> msgs = new ArrayList<OtpMsg>();
+		try {
+			eventBox.receiveMsgs(msgs, max, timeout);
+		} catch (final InterruptedException e) {
+			return 0;
+		}
+		for (final OtpMsg m : msgs) {
+			events.add(m.getMsg());
+		}
+		return msgs.size();
+	}
+
 	private synchronized void checkAvailability() throws RpcException {
 		if (!available) {
 			if (exitStatus >= 0 && restarted < 3) {
@@ -221,6 +306,7 @@ public class Backend extends OtpNodeStatus {
 			shellManager.dispose();
 		}
 
+		disposeRpcPool();
 		if (getNode() != null) {
 			getNode().close();
 		}
@@ -246,6 +332,8 @@ public class Backend extends OtpNodeStatus {
 			} else {
 				fNode = new OtpNode(BackendUtil.createJavaNodeName(), cookie);
 			}
+			disposeRpcPool();
+			rpcPool = new RpcMboxPool(fNode);
 			final String nodeCookie = fNode.cookie();
 			final int len = nodeCookie.length();
 			final String trimmed = (len > 7) ? nodeCookie.substring(0, 7)
@@ -326,6 +414,29 @@ public class Backend extends OtpNodeStatus {
 		return fNode;
 	}
 
+	/**
+	 * RPC reply mailboxes are pooled per backend, so that concurrent calls
+	 * don't have to create (and register) a new mailbox each time.
+	 * 
+	 * @throws RpcException
+	 *             if the backend is not connected, the pool is disposed then
+	 */
+	protected RpcMboxPool getRpcPool() throws RpcException {
+		final RpcMboxPool pool = rpcPool;
+		if (pool == null) {
+			throw new RpcException("backend not connected");
+		}
+		return pool;
+	}
+
+	private void disposeRpcPool() {
+		final RpcMboxPool pool = rpcPool;
+		if (pool != null) {
+			pool.dispose();
+			rpcPool = null;
+		}
+	}
+
 	private String getScriptId() throws BackendException {
 		OtpErlangObject r;
 		r = call("init", "script_id", "");
@@ -363,7 +474,9 @@ public class Backend extends OtpNodeStatus {
 		this.watch = watch;
 		eventDaemon = new EventDaemon(this);
 		eventDaemon.start();
-		eventDaemon.addHandler(new LogEventHandler());
+		final LogEventHandler logHandler = new LogEventHandler();
+		eventDaemon.addHandler("log", logHandler);
+		eventDaemon.addHandler("erlang_log", logHandler);
 	}
 
 	public void initializeRuntime() {
@@ -383,8 +496,8 @@ public class Backend extends OtpNodeStatus {
 			final String module, final String fun, final String signature,
 			final Object... args0) throws RpcException, SignatureException {
 		checkAvailability();
-		return RpcUtil.sendRpcCall(getNode(), getPeer(), gleader, module, fun,
-				signature, args0);
+		return RpcUtil.sendRpcCall(getRpcPool(), getPeer(), gleader, module,
+				fun, signature, args0);
 	}
 
 	protected RpcFuture makeAsyncCall(final String module, final String fun,
@@ -414,8 +527,8 @@ public class Backend extends OtpNodeStatus {
 			throws RpcException, SignatureException {
 		checkAvailability();
 
-		final RpcFuture future = RpcUtil.sendRpcCall(fNode, fPeer, gleader,
-				module, fun, signature, args);
+		final RpcFuture future = RpcUtil.sendRpcCall(getRpcPool(), getPeer(),
+				gleader, module, fun, signature, args);
 		Runnable target = new Runnable() {
 			public void run() {
 				OtpErlangObject result;
@@ -441,8 +554,8 @@ public class Backend extends OtpNodeStatus {
 			final String fun, final String signature, final Object... args0)
 			throws RpcException, SignatureException {
 		checkAvailability();
-		final OtpErlangObject result = RpcUtil.rpcCall(getNode(), getPeer(),
-				gleader, module, fun, timeout, signature, args0);
+		final OtpErlangObject result = RpcUtil.rpcCall(getRpcPool(),
+				getPeer(), gleader, module, fun, timeout, signature, args0);
 		return result;
 	}
 
@@ -481,6 +594,7 @@ public class Backend extends OtpNodeStatus {
 		}
 		restarted++;
 		ErlLogger.info("restarting runtime for %s", toString());
+		disposeRpcPool();
 		if (getNode() != null) {
 			getNode().close();
 			fNode = null;
@@ -43,7 +43,7 @@ public class BackendShell {
 				ErlLogger.warn(e);
 			}
 			handler = new ConsoleEventHandler();
-			backend.getEventDaemon().addHandler(handler);
+			backend.getEventDaemon().addHandler("io_server", handler);
 		}
 		requests = new ArrayList<IoRequest>(1000);
 		listeners = new ArrayList<BackendShellListener>();
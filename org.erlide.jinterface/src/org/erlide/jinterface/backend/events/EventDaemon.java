@@ -1,24 +1,56 @@
 package org.erlide.jinterface.backend.events;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.erlide.jinterface.backend.Backend;
 import org.erlide.jinterface.backend.BackendListener;
 import org.erlide.jinterface.util.ErlLogger;
 
+import com.ericsson.otp.erlang.OtpErlangAtom;
 import com.ericsson.otp.erlang.OtpErlangExit;
 import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangTuple;
 
+/**
+ * Receives the events sent by the backend and hands them to the handlers.
+ * <p>
+ * Handlers can subscribe to a topic, and then only get the
+ * <code>{event, Topic, Payload}</code> messages with that topic. Handlers
+ * added without a topic get all messages. The handlers of each topic run on
+ * an executor, one batch at a time, so that a slow handler only delays the
+ * events of its own topic.
+ */
 public class EventDaemon implements BackendListener {
 
+	/**
+	 * The key of the handlers that get all messages, in
+	 * {@link #getQueueDepths()}.
+	 */
+	public static final String ALL_TOPICS = "*";
+
 	private Backend runtime;
 	volatile boolean stopped = false;
-	List<EventHandler> handlers = new ArrayList<EventHandler>();
-	final Object handlersLock = new Object();
+	private final TopicQueue all;
+	private final Map<String, TopicQueue> topics = new ConcurrentHashMap<String, TopicQueue>();
+	// created when the daemon is started and shut down when it is stopped
+	private volatile ExecutorService executor;
 
 	final static boolean DEBUG = "true".equals(System
 			.getProperty("erlide.event.daemon"));
+	// the most events handed to the handlers at once
+	final static int MAX_BATCH = 1000;
 
 	private final class HandlerJob implements Runnable {
 		private final Backend backend;
@@ -29,33 +61,19 @@ public class EventDaemon implements BackendListener {
 
 		public void run() {
 			try {
-				OtpErlangObject msg = null;
 				final List<OtpErlangObject> msgs = new ArrayList<OtpErlangObject>();
 				do {
 					try {
-						msg = backend.receiveEvent(200);
-						if (msg != null) {
-							msgs.add(msg);
-							// if there are more queued events, retrieve not
-							// more than 10 of them
-							int count = 0;
-							do {
-								msg = backend.receiveEvent(0);
-								if (msg != null) {
-									msgs.add(msg);
-									count++;
-								}
-							} while (count < 10 && msg != null && !stopped);
-						}
+						// take all the queued events at once, so that the
+						// handlers see them in a single batch
+						backend.receiveEvents(msgs, MAX_BATCH, 200);
 						if (msgs.size() != 0) {
 							if (DEBUG) {
 								for (OtpErlangObject m : msgs) {
 									ErlLogger.debug("MSG: %s", m);
 								}
 							}
-							for (final EventHandler handler : getHandlers()) {
-								handler.handleMsgs(msgs);
-							}
+							dispatch(msgs);
 							msgs.clear();
 						}
 					} catch (final OtpErlangExit e) {
@@ -68,25 +86,97 @@ public class EventDaemon implements BackendListener {
 					}
 				} while (!stopped);
 			} finally {
-				synchronized (handlersLock) {
-					handlers.clear();
+				all.handlers.clear();
+				topics.clear();
+			}
+		}
+	}
+
+	/**
+	 * The handlers of a topic and the events waiting for them. At most one
+	 * batch is handled at a time, so the handlers see the events in order.
+	 */
+	private final class TopicQueue implements Runnable {
+		final List<EventHandler> handlers = new CopyOnWriteArrayList<EventHandler>();
+		private final ConcurrentLinkedQueue<OtpErlangObject> pending = new ConcurrentLinkedQueue<OtpErlangObject>();
+		// the events posted but not handled yet
+		private final AtomicInteger depth = new AtomicInteger();
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		void post(final List<OtpErlangObject> msgs) {
+			pending.addAll(msgs);
+			depth.addAndGet(msgs.size());
+			schedule();
+		}
+
+		private void schedule() {
+			if (scheduled.compareAndSet(false, true)) {
+				try {
+					executor.execute(this);
+				} catch (final RejectedExecutionException e) {
+					// the daemon was stopped
+					scheduled.set(false);
 				}
 			}
 		}
+
+		public void run() {
+			final List<OtpErlangObject> batch = new ArrayList<OtpErlangObject>();
+			OtpErlangObject msg;
+			while (batch.size() < MAX_BATCH && (msg = pending.poll()) != null) {
+				batch.add(msg);
+			}
+			try {
+				for (final EventHandler handler : handlers) {
+					handler.handleMsgs(batch);
+				}
+			} catch (final Exception e) {
+				ErlLogger.warn(e);
+			} finally {
+				depth.addAndGet(-batch.size());
+				scheduled.set(false);
+				if (!pending.isEmpty()) {
+					schedule();
+				}
+			}
+		}
+
+		int getDepth() {
+			return depth.get();
+		}
 	}
 
 	public EventDaemon(final Backend b) {
 		runtime = b;
+		executor = createExecutor();
+		all = new TopicQueue();
+	}
+
+	private static ExecutorService createExecutor() {
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(final Runnable r) {
+				final Thread t = new Thread(r, "EventDaemon handler "
+						+ count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
 	}
 
 	public synchronized void start() {
 		stopped = false;
+		if (executor.isShutdown()) {
+			executor = createExecutor();
+		}
 		new Thread(new HandlerJob(runtime)).start();
 		addHandler(new RpcHandler(runtime));
 	}
 
 	public synchronized void stop() {
 		stopped = true;
+		executor.shutdown();
 	}
 
 	public void runtimeAdded(final Backend b) {
@@ -99,23 +189,132 @@ public class EventDaemon implements BackendListener {
 		}
 	}
 
+	/**
+	 * Hand the messages to the handlers of all messages, and each event to
+	 * the handlers of its topic.
+	 */
+	void dispatch(final List<OtpErlangObject> msgs) {
+		if (!all.handlers.isEmpty()) {
+			all.post(msgs);
+		}
+		final Map<TopicQueue, List<OtpErlangObject>> batches = new HashMap<TopicQueue, List<OtpErlangObject>>();
+		for (final OtpErlangObject msg : msgs) {
+			final String topic = getTopic(msg);
+			if (topic == null) {
+				continue;
+			}
+			final TopicQueue queue = topics.get(topic);
+			if (queue == null) {
+				continue;
+			}
+			List<OtpErlangObject> batch = batches.get(queue);
+			if (batch == null) {
+				batch = new ArrayList<OtpErlangObject>();
+				batches.put(queue, batch);
+			}
+			batch.add(msg);
+		}
+		for (final Map.Entry<TopicQueue, List<OtpErlangObject>> e : batches
+				.entrySet()) {
+			e.getKey().post(e.getValue());
+		}
+	}
+
+	/**
+	 * @return the topic of an <code>{event, Topic, Payload, ...}</code>
+	 *         message, or null for other messages
+	 */
+	static String getTopic(final OtpErlangObject msg) {
+		if (!(msg instanceof OtpErlangTuple)) {
+			return null;
+		}
+		final OtpErlangTuple t = (OtpErlangTuple) msg;
+		if (t.arity() < 3) {
+			return null;
+		}
+		final OtpErlangObject tag = t.elementAt(0);
+		final OtpErlangObject topic = t.elementAt(1);
+		if (!(tag instanceof OtpErlangAtom)
+				|| !"event".equals(((OtpErlangAtom) tag).atomValue())
+				|| !(topic instanceof OtpErlangAtom)) {
+			return null;
+		}
+		return ((OtpErlangAtom) topic).atomValue();
+	}
+
 	public List<EventHandler> getHandlers() {
-		synchronized (handlersLock) {
-			return new ArrayList<EventHandler>(handlers);
+		final List<EventHandler> result = new ArrayList<EventHandler>(
+				all.handlers);
+		for (final TopicQueue queue : topics.values()) {
+			for (final EventHandler handler : queue.handlers) {
+				if (!result.contains(handler)) {
+					result.add(handler);
+				}
+			}
 		}
+		return result;
 	}
 
+	/**
+	 * Add a handler that gets all messages.
+	 */
 	public void addHandler(final EventHandler l) {
-		synchronized (handlersLock) {
-			if (!handlers.contains(l)) {
-				handlers.add(l);
+		synchronized (all) {
+			if (!all.handlers.contains(l)) {
+				all.handlers.add(l);
+			}
+		}
+	}
+
+	/**
+	 * Add a handler that gets the <code>{event, Topic, Payload}</code>
+	 * messages with the given topic.
+	 */
+	public void addHandler(final String topic, final EventHandler l) {
+		synchronized (all) {
+			TopicQueue queue = topics.get(topic);
+			if (queue == null) {
+				queue = new TopicQueue();
+				topics.put(topic, queue);
+			}
+			if (!queue.handlers.contains(l)) {
+				queue.handlers.add(l);
 			}
 		}
 	}
 
+	/**
+	 * Remove a handler, from all the topics it was added to.
+	 */
 	public void removeHandler(final EventHandler l) {
-		synchronized (handlersLock) {
-			handlers.remove(l);
+		synchronized (all) {
+			all.handlers.remove(l);
+			for (final TopicQueue queue : topics.values()) {
+				queue.handlers.remove(l);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of events of the topic that were received but not
+	 *         handled yet
+	 */
+	public int getQueueDepth(final String topic) {
+		final TopicQueue queue = ALL_TOPICS.equals(topic) ? all : topics
+				.get(topic);
+		return queue == null ? 0 : queue.getDepth();
+	}
+
+	/**
+	 * @return the number of events that were received but not handled yet,
+	 *         for each topic that has handlers, and for {@link #ALL_TOPICS}
+	 */
+	public Map<String, Integer> getQueueDepths() {
+		final Map<String, Integer> result = new HashMap<String, Integer>();
+		result.put(ALL_TOPICS, Integer.valueOf(all.getDepth()));
+		for (final Map.Entry<String, TopicQueue> e : topics.entrySet()) {
+			result.put(e.getKey(), Integer.valueOf(e.getValue().getDepth()));
 		}
+		return result;
 	}
 }
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.jinterface.backend.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe cache that stores a finite number of elements, and counts
+ * the hits and misses of its lookups.
+ * <p>
+ * The elements are spread over segments by the hash of their key. Each
+ * segment is an {@link LRUCache} with its own lock, so threads using
+ * different keys seldom wait for each other. When a segment is full, its
+ * least recently used values are discarded.
+ */
+public class ConcurrentLRUCache<K, V> {
+	private static final int SEGMENTS = 16;
+
+	private final List<LRUCache<K, V>> segments;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public ConcurrentLRUCache(final int maxEntries) {
+		final int n = Math.max(1, Math.min(SEGMENTS, maxEntries / SEGMENTS));
+		segments = new ArrayList<LRUCache<K, V>>(n);
+		for (int i = 0; i < n; i++) {
+			segments.add(new LRUCache<K, V>(Math.max(1, maxEntries / n)));
+		}
+	}
+
+	/**
+	 * @return the value for the key, or null if it isn't in the cache
+	 */
+	public V get(final K key) {
+		final LRUCache<K, V> segment = segment(key);
+		V value;
+		synchronized (segment) {
+			value = segment.get(key);
+		}
+		if (value == null) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return value;
+	}
+
+	public void put(final K key, final V value) {
+		final LRUCache<K, V> segment = segment(key);
+		synchronized (segment) {
+			segment.put(key, value);
+		}
+	}
+
+	public void clear() {
+		for (final LRUCache<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (final LRUCache<K, V> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d entries, %d hits, %d misses", size(),
+				getHits(), getMisses());
+	}
+
+	private LRUCache<K, V> segment(final K key) {
+		int h = key.hashCode();
+		// the low bits of String hash codes vary little for similar keys
+		h ^= h >>> 16;
+		return segments.get((h & 0x7fffffff) % segments.size());
+	}
+}
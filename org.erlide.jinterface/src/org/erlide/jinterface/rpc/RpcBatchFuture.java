@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available
+ * at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.jinterface.rpc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+
+/**
+ * The pending results of a batch of calls that were sent as a single RPC. The
+ * results are in the same order as the calls.
+ */
+public class RpcBatchFuture {
+
+	private final RpcFuture future;
+	private final int size;
+	private List<RpcResult> results = null;
+
+	RpcBatchFuture(final RpcFuture future, final int size) {
+		this.future = future;
+		this.size = size;
+	}
+
+	public List<RpcResult> get() throws RpcException {
+		return get(RpcUtil.INFINITY);
+	}
+
+	public synchronized List<RpcResult> get(final long timeout)
+			throws RpcException {
+		if (results != null) {
+			return results;
+		}
+		final OtpErlangObject res = future.get(timeout);
+		if (RpcUtil.isBadRpc(res)) {
+			throw new RpcException(res.toString());
+		}
+		if (!(res instanceof OtpErlangTuple)
+				|| ((OtpErlangTuple) res).arity() != size) {
+			throw new RpcException("bad batch result: " + res);
+		}
+		final OtpErlangTuple t = (OtpErlangTuple) res;
+		final List<RpcResult> list = new ArrayList<RpcResult>(size);
+		for (int i = 0; i < size; i++) {
+			list.add(new RpcResult(t.elementAt(i)));
+		}
+		results = list;
+		return results;
+	}
+
+	public RpcResult get(final int index, final long timeout)
+			throws RpcException {
+		return get(timeout).get(index);
+	}
+
+	public boolean isDone() {
+		return future.isDone();
+	}
+
+	public void cancel() {
+		future.cancel();
+	}
+
+	public int size() {
+		return size;
+	}
+}
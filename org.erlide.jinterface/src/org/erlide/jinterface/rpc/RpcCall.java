@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available
+ * at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.jinterface.rpc;
+
+import com.ericsson.otp.erlang.OtpErlang;
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.SignatureException;
+
+/**
+ * One call in a batch, see {@link RpcUtil#sendRpcBatch}.
+ */
+public final class RpcCall {
+
+	private final String module;
+	private final String fun;
+	private final String signature;
+	private final Object[] args;
+
+	public RpcCall(final String module, final String fun,
+			final String signature, final Object... args) {
+		this.module = module;
+		this.fun = fun;
+		this.signature = signature;
+		this.args = args;
+	}
+
+	public String getModule() {
+		return module;
+	}
+
+	public String getFunction() {
+		return fun;
+	}
+
+	/**
+	 * @return {Module, Function, Args}
+	 */
+	OtpErlangObject toErlang() throws SignatureException {
+		final OtpErlangObject[] eargs = RpcUtil.convertArgs(signature, args);
+		return OtpErlang.mkTuple(new OtpErlangAtom(module), new OtpErlangAtom(
+				fun), new OtpErlangList(eargs));
+	}
+
+	@Override
+	public String toString() {
+		return module + ":" + fun + "/" + (args == null ? 0 : args.length);
+	}
+}
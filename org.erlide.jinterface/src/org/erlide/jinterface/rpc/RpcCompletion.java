@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available
+ * at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.jinterface.rpc;
+
+import com.ericsson.otp.erlang.OtpErlangObject;
+
+/**
+ * A finished call from a {@link RpcCompletionQueue}, with the key it was
+ * submitted with.
+ */
+public class RpcCompletion<T> {
+
+	private final T key;
+	private final OtpErlangObject result;
+
+	RpcCompletion(final T key, final OtpErlangObject result) {
+		this.key = key;
+		this.result = result;
+	}
+
+	public T getKey() {
+		return key;
+	}
+
+	/**
+	 * @return the value returned by the call, or {badrpc, Reason} if it
+	 *         crashed
+	 */
+	public OtpErlangObject getResult() {
+		return result;
+	}
+
+	public boolean isBadRpc() {
+		return RpcUtil.isBadRpc(result);
+	}
+}
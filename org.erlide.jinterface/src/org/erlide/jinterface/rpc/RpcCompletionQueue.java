@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available
+ * at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.jinterface.rpc;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.erlide.jinterface.util.ErlLogger;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangDecodeException;
+import com.ericsson.otp.erlang.OtpErlangExit;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.ericsson.otp.erlang.OtpMbox;
+import com.ericsson.otp.erlang.SignatureException;
+
+/**
+ * Runs many calls whose results are all delivered to a single mailbox, in the
+ * order in which they finish. Each call is submitted with a key, that is
+ * returned together with its result by {@link #poll(long)}.
+ * 
+ * The calls are started with <code>erlide_rpc_batch:tagged_call/5</code>,
+ * that sends back <code>{Tag, Result}</code>; the tags are used to find the
+ * keys again.
+ */
+public final class RpcCompletionQueue<T> {
+
+	private final OtpMbox mbox;
+	private final String peer;
+	private final OtpErlangObject gleader;
+	private final Map<Long, Call<T>> pending;
+	private final AtomicLong nextTag;
+
+	private static final class Call<T> {
+		final T key;
+		final String peer;
+
+		Call(final T key, final String peer) {
+			this.key = key;
+			this.peer = peer;
+		}
+	}
+
+	public RpcCompletionQueue(final OtpMbox mbox, final String peer,
+			final OtpErlangObject gleader) {
+		this(mbox, peer, gleader, new ConcurrentHashMap<Long, Call<T>>(),
+				new AtomicLong());
+	}
+
+	private RpcCompletionQueue(final OtpMbox mbox, final String peer,
+			final OtpErlangObject gleader, final Map<Long, Call<T>> pending,
+			final AtomicLong nextTag) {
+		this.mbox = mbox;
+		this.peer = peer;
+		this.gleader = gleader;
+		this.pending = pending;
+		this.nextTag = nextTag;
+	}
+
+	/**
+	 * Get a queue that runs its calls on another node, but shares this
+	 * queue's mailbox and pending calls: the results of calls submitted to
+	 * either of them can be polled from both. The node must accept
+	 * connections with this node's cookie.
+	 */
+	public RpcCompletionQueue<T> forPeer(final String otherPeer) {
+		if (otherPeer.equals(peer)) {
+			return this;
+		}
+		return new RpcCompletionQueue<T>(mbox, otherPeer, gleader, pending,
+				nextTag);
+	}
+
+	public String getPeer() {
+		return peer;
+	}
+
+	/**
+	 * Start a call; its result will be returned by {@link #poll(long)}.
+	 */
+	public void submit(final T key, final String module, final String fun,
+			final String signature, final Object... args0)
+			throws SignatureException {
+		final OtpErlangObject[] args = RpcUtil.convertArgs(signature, args0);
+		final long tag = nextTag.incrementAndGet();
+		pending.put(Long.valueOf(tag), new Call<T>(key, peer));
+		final OtpErlangObject msg = RpcUtil.buildRpcCastMsg(gleader,
+				"erlide_rpc_batch", "tagged_call", new OtpErlangObject[] {
+						mbox.self(), new OtpErlangLong(tag),
+						new OtpErlangAtom(module), new OtpErlangAtom(fun),
+						new OtpErlangList(args) });
+		mbox.send("rex", peer, msg);
+	}
+
+	/**
+	 * Wait for the next call to finish.
+	 * 
+	 * @param timeout
+	 *            in milliseconds, or {@link RpcUtil#INFINITY}
+	 * @return the finished call, or null if none finished in time
+	 * @throws RpcException
+	 */
+	public RpcCompletion<T> poll(final long timeout) throws RpcException {
+		final long deadline = System.currentTimeMillis() + timeout;
+		long left = timeout;
+		try {
+			while (timeout == RpcUtil.INFINITY || left >= 0) {
+				final OtpErlangObject msg = timeout == RpcUtil.INFINITY ? mbox
+						.receive() : mbox.receive(left);
+				if (msg == null) {
+					return null;
+				}
+				final RpcCompletion<T> result = complete(msg);
+				if (result != null) {
+					return result;
+				}
+				left = deadline - System.currentTimeMillis();
+			}
+			return null;
+		} catch (final OtpErlangExit e) {
+			throw new RpcException(e);
+		} catch (final OtpErlangDecodeException e) {
+			throw new RpcException(e);
+		}
+	}
+
+	private RpcCompletion<T> complete(final OtpErlangObject msg) {
+		if (msg instanceof OtpErlangTuple) {
+			final OtpErlangTuple t = (OtpErlangTuple) msg;
+			if (t.arity() == 2 && t.elementAt(0) instanceof OtpErlangLong) {
+				final Long tag = Long.valueOf(((OtpErlangLong) t.elementAt(0))
+						.longValue());
+				final Call<T> call = pending.remove(tag);
+				if (call != null) {
+					return new RpcCompletion<T>(call.key, t.elementAt(1));
+				}
+			}
+		}
+		ErlLogger.warn("unexpected message in completion queue: %s", msg);
+		return null;
+	}
+
+	/**
+	 * @return the number of submitted calls that haven't been returned by
+	 *         {@link #poll(long)} yet
+	 */
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * Forget the calls submitted to this queue's node, for example because
+	 * the node went down and their results will never come.
+	 * 
+	 * @return the keys of the dropped calls
+	 */
+	public List<T> dropPending() {
+		final List<T> result = new ArrayList<T>();
+		for (final Iterator<Call<T>> i = pending.values().iterator(); i
+				.hasNext();) {
+			final Call<T> call = i.next();
+			if (call.peer.equals(peer)) {
+				result.add(call.key);
+				i.remove();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Results of calls still running when the queue is closed are dropped.
+	 */
+	public void close() {
+		pending.clear();
+		mbox.close();
+	}
+}
@@ -17,11 +17,17 @@ import com.ericsson.otp.erlang.OtpMbox;
 public class RpcFuture {
 
 	private final OtpMbox mbox;
-	private OtpErlangObject result = null;
+	private final RpcMboxPool pool;
+	private volatile OtpErlangObject result = null;
 	private String env;
 
 	public RpcFuture(final OtpMbox mbox, String env) {
+		this(mbox, null, env);
+	}
+
+	public RpcFuture(final OtpMbox mbox, final RpcMboxPool pool, String env) {
 		this.mbox = mbox;
+		this.pool = pool;
 		this.env = env;
 	}
 
@@ -32,11 +38,25 @@ public class RpcFuture {
 		return get(RpcUtil.INFINITY);
 	}
 
-	public OtpErlangObject get(final long timeout) throws RpcException {
+	public synchronized OtpErlangObject get(final long timeout)
+			throws RpcException {
 		if (isDone()) {
 			return result;
 		}
-		result = RpcUtil.getRpcResult(mbox, timeout, env);
+		if (pool == null) {
+			result = RpcUtil.getRpcResult(mbox, timeout, env);
+			return result;
+		}
+		try {
+			result = RpcUtil.receiveRpcResult(mbox, timeout, env);
+		} catch (final RpcTimeoutException e) {
+			// the reply may still arrive, keep the mailbox for a later get()
+			throw e;
+		} catch (final RpcException e) {
+			pool.discard(mbox);
+			throw e;
+		}
+		pool.release(mbox);
 		return result;
 	}
 
@@ -44,4 +64,18 @@ public class RpcFuture {
 		return result != null;
 	}
 
+	/**
+	 * Stop waiting for the result. A reply that arrives later is dropped.
+	 */
+	public synchronized void cancel() {
+		if (isDone()) {
+			return;
+		}
+		if (pool != null) {
+			pool.discard(mbox);
+		} else {
+			mbox.close();
+		}
+	}
+
 }
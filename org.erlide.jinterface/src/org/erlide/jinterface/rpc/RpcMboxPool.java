@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available
+ * at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.jinterface.rpc;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ericsson.otp.erlang.OtpMbox;
+import com.ericsson.otp.erlang.OtpNode;
+
+/**
+ * A pool of reply mailboxes for RPCs on a node. A mailbox is taken from the
+ * pool when a call is sent and given back once its single reply has been
+ * received, so it is guaranteed to be empty when reused. Mailboxes whose
+ * reply never arrived (timeouts, errors) must be discarded instead, as a late
+ * reply would otherwise be delivered to an unrelated call.
+ */
+public final class RpcMboxPool {
+
+	private static final int DEFAULT_MAX_IDLE = Integer.parseInt(System
+			.getProperty("erlide.rpc.pool", "16"));
+
+	private final OtpNode node;
+	private final int maxIdle;
+	private final ConcurrentLinkedQueue<OtpMbox> idle = new ConcurrentLinkedQueue<OtpMbox>();
+	private final AtomicInteger idleCount = new AtomicInteger();
+	private volatile boolean disposed = false;
+
+	public RpcMboxPool(final OtpNode node) {
+		this(node, DEFAULT_MAX_IDLE);
+	}
+
+	public RpcMboxPool(final OtpNode node, final int maxIdle) {
+		this.node = node;
+		this.maxIdle = maxIdle;
+	}
+
+	public OtpNode getNode() {
+		return node;
+	}
+
+	/**
+	 * Get an empty mailbox, reusing an idle one if available.
+	 */
+	public OtpMbox acquire() {
+		final OtpMbox mbox = idle.poll();
+		if (mbox != null) {
+			idleCount.decrementAndGet();
+			return mbox;
+		}
+		return node.createMbox();
+	}
+
+	/**
+	 * Give back a mailbox whose reply has been consumed.
+	 */
+	public void release(final OtpMbox mbox) {
+		if (mbox == null) {
+			return;
+		}
+		if (disposed || idleCount.incrementAndGet() > maxIdle) {
+			idleCount.decrementAndGet();
+			mbox.close();
+			return;
+		}
+		idle.offer(mbox);
+	}
+
+	/**
+	 * Drop a mailbox that may still receive a message.
+	 */
+	public void discard(final OtpMbox mbox) {
+		if (mbox != null) {
+			mbox.close();
+		}
+	}
+
+	public int getIdleCount() {
+		return idleCount.get();
+	}
+
+	public void dispose() {
+		disposed = true;
+		OtpMbox mbox;
+		while ((mbox = idle.poll()) != null) {
+			idleCount.decrementAndGet();
+			mbox.close();
+		}
+	}
+
+}
@@ -10,6 +10,8 @@
  *******************************************************************************/
 package org.erlide.jinterface.rpc;
 
+import java.util.List;
+
 import org.erlide.jinterface.util.ErlLogger;
 import org.erlide.jinterface.util.TypeConverter;
 
@@ -100,8 +102,43 @@ public final class RpcUtil {
 			SignatureException {
 		final RpcFuture future = sendRpcCall(node, peer, gleader, module, fun,
 				signature, args0);
+		return getCallResult(future, timeout);
+	}
+
+	/**
+	 * Make a regular RPC to the given node, with the given arguments. The
+	 * reply mailbox is taken from (and given back to) the pool.
+	 * 
+	 * @param pool
+	 * @param peer
+	 * @param module
+	 * @param fun
+	 * @param timeout
+	 * @param signature
+	 * @param args0
+	 * @return
+	 * @throws RpcException
+	 */
+	public static OtpErlangObject rpcCall(final RpcMboxPool pool,
+			final String peer, final OtpErlangObject gleader,
+			final String module, final String fun, final int timeout,
+			final String signature, final Object... args0) throws RpcException,
+			SignatureException {
+		final RpcFuture future = sendRpcCall(pool, peer, gleader, module, fun,
+				signature, args0);
+		return getCallResult(future, timeout);
+	}
+
+	private static OtpErlangObject getCallResult(final RpcFuture future,
+			final int timeout) throws RpcException {
 		OtpErlangObject result;
-		result = future.get(timeout);
+		try {
+			result = future.get(timeout);
+		} catch (final RpcTimeoutException e) {
+			// nobody will wait for this reply anymore
+			future.cancel();
+			throw e;
+		}
 		if (CHECK_RPC) {
 			debug("RPC result:: " + result);
 		}
@@ -152,20 +189,78 @@ public final class RpcUtil {
 	 * @return
 	 * @throws RpcException
 	 */
-	public static synchronized RpcFuture sendRpcCall(final OtpNode node,
+	public static RpcFuture sendRpcCall(final OtpNode node,
 			final String peer, final OtpErlangObject gleader,
 			final String module, final String fun, final String signature,
 			final Object... args0) throws SignatureException {
 		final OtpErlangObject[] args = convertArgs(signature, args0);
 
-		OtpErlangObject res = null;
 		final OtpMbox mbox = node.createMbox();
-		res = RpcUtil.buildRpcCall(mbox.self(), gleader, module, fun, args);
+		doSendRpcCall(mbox, peer, gleader, module, fun, args);
+		return new RpcFuture(mbox, module + ":" + fun + "/" + args.length);
+	}
+
+	/**
+	 * Send a RPC request using a reply mailbox from the pool. The mailbox is
+	 * given back to the pool when the returned future gets its result.
+	 * 
+	 * @param pool
+	 * @param peer
+	 * @param module
+	 * @param fun
+	 * @param signature
+	 * @param args0
+	 * @return
+	 * @throws SignatureException
+	 */
+	public static RpcFuture sendRpcCall(final RpcMboxPool pool,
+			final String peer, final OtpErlangObject gleader,
+			final String module, final String fun, final String signature,
+			final Object... args0) throws SignatureException {
+		final OtpErlangObject[] args = convertArgs(signature, args0);
+
+		final OtpMbox mbox = pool.acquire();
+		doSendRpcCall(mbox, peer, gleader, module, fun, args);
+		return new RpcFuture(mbox, pool, module + ":" + fun + "/"
+				+ args.length);
+	}
+
+	/**
+	 * Send a batch of calls as a single RPC. They are executed in order by
+	 * <code>erlide_rpc_batch</code> on the remote node and all results come
+	 * back in one reply.
+	 * 
+	 * @param pool
+	 * @param peer
+	 * @param gleader
+	 * @param calls
+	 * @return
+	 * @throws SignatureException
+	 */
+	public static RpcBatchFuture sendRpcBatch(final RpcMboxPool pool,
+			final String peer, final OtpErlangObject gleader,
+			final List<RpcCall> calls) throws SignatureException {
+		final OtpErlangObject[] ecalls = new OtpErlangObject[calls.size()];
+		for (int i = 0; i < ecalls.length; i++) {
+			ecalls[i] = calls.get(i).toErlang();
+		}
+		final OtpMbox mbox = pool.acquire();
+		doSendRpcCall(mbox, peer, gleader, "erlide_rpc_batch", "call",
+				new OtpErlangObject[] { new OtpErlangList(ecalls) });
+		final RpcFuture future = new RpcFuture(mbox, pool, "batch of "
+				+ ecalls.length);
+		return new RpcBatchFuture(future, ecalls.length);
+	}
+
+	private static void doSendRpcCall(final OtpMbox mbox, final String peer,
+			final OtpErlangObject gleader, final String module,
+			final String fun, final OtpErlangObject[] args) {
+		final OtpErlangObject res = RpcUtil.buildRpcCall(mbox.self(), gleader,
+				module, fun, args);
 		mbox.send("rex", peer, res);
 		if (CHECK_RPC) {
 			debug("RPC " + mbox.hashCode() + "=> " + res);
 		}
-		return new RpcFuture(mbox, module + ":" + fun + "/" + args0.length);
 	}
 
 	/**
@@ -191,6 +286,27 @@ public final class RpcUtil {
 	 */
 	public static OtpErlangObject getRpcResult(final OtpMbox mbox,
 			final long timeout, final String env) throws RpcException {
+		return getRpcResult(mbox, timeout, env, true);
+	}
+
+	/**
+	 * Retrieve the result of a RPC, leaving the mailbox open so that it can be
+	 * reused.
+	 * 
+	 * @param mbox
+	 * @param timeout
+	 * @param env
+	 * @return
+	 * @throws RpcException
+	 */
+	static OtpErlangObject receiveRpcResult(final OtpMbox mbox,
+			final long timeout, final String env) throws RpcException {
+		return getRpcResult(mbox, timeout, env, false);
+	}
+
+	private static OtpErlangObject getRpcResult(final OtpMbox mbox,
+			final long timeout, final String env, final boolean close)
+			throws RpcException {
 		assert mbox != null;
 
 		OtpErlangObject res = null;
@@ -205,7 +321,7 @@ public final class RpcUtil {
 					debug("RPC " + mbox.hashCode() + "<= " + res);
 				}
 			} finally {
-				if (res != null) {
+				if (res != null && close) {
 					mbox.close();
 				}
 			}
@@ -265,7 +381,7 @@ public final class RpcUtil {
 		}
 	}
 
-	private static OtpErlangObject[] convertArgs(final String signature,
+	static OtpErlangObject[] convertArgs(final String signature,
 			Object... args0) throws SignatureException {
 		if (args0 == null) {
 			args0 = new OtpErlangObject[] {};
@@ -291,7 +407,7 @@ public final class RpcUtil {
 		return args;
 	}
 
-	private static OtpErlangObject buildRpcCastMsg(
+	static OtpErlangObject buildRpcCastMsg(
 			final OtpErlangObject gleader, final String module,
 			final String fun, final OtpErlangObject[] args) {
 		final OtpErlangObject m = new OtpErlangAtom(module);
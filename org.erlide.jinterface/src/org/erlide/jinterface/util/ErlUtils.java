@@ -58,25 +58,28 @@ public final class ErlUtils {
 		return result;
 	}
 
+	// patterns given as text are compiled once, see PatternMatcher
+
 	public static Bindings match(final String pattern, final String term)
 			throws ParserException {
-		return match(parse(pattern), parse(term), new Bindings());
+		return PatternMatcher.compile(pattern).match(parse(term),
+				new Bindings());
 	}
 
 	public static Bindings match(final String pattern,
 			final OtpErlangObject term) throws ParserException {
-		return match(parse(pattern), term, new Bindings());
+		return PatternMatcher.compile(pattern).match(term, new Bindings());
 	}
 
 	public static Bindings match(final String pattern,
 			final OtpErlangObject term, final Bindings bindings)
 			throws ParserException {
-		return match(parse(pattern), term, bindings);
+		return PatternMatcher.compile(pattern).match(term, bindings);
 	}
 
 	public static Bindings match(final String pattern, final String term,
 			final Bindings bindings) throws ParserException {
-		return match(parse(pattern), parse(term), bindings);
+		return PatternMatcher.compile(pattern).match(parse(term), bindings);
 	}
 
 	public static Bindings match(final OtpErlangObject pattern,
@@ -12,11 +12,16 @@ package org.erlide.jinterface.util;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.erlide.jinterface.backend.util.ConcurrentLRUCache;
 
 import com.ericsson.otp.erlang.OtpErlang;
 import com.ericsson.otp.erlang.OtpErlangAtom;
@@ -36,6 +41,12 @@ public class JRpcUtil {
 	// we can access even the UI classes (which are actually most interesting)
 	public static ClassLoader loader = JRpcUtil.class.getClassLoader();
 
+	// the descriptions of the methods called recently, by their term, found
+	// with descriptionsLoader
+	private static final ConcurrentLRUCache<OtpErlangObject, MethodDescription> descriptions = new ConcurrentLRUCache<OtpErlangObject, MethodDescription>(
+			500);
+	private static volatile ClassLoader descriptionsLoader = loader;
+
 	public static OtpErlangObject execute(final OtpErlangObject target,
 			final OtpErlangObject method, final OtpErlangObject[] args) {
 
@@ -103,8 +114,25 @@ public class JRpcUtil {
 						.getMessage())));
 	}
 
+	private static MethodDescription getDescription(final OtpErlangObject target) {
+		if (loader != descriptionsLoader) {
+			// the loader was replaced, like TypeConverter's classes the
+			// argument types may resolve differently
+			descriptions.clear();
+			descriptionsLoader = loader;
+		}
+		MethodDescription description = descriptions.get(target);
+		if (description == null) {
+			description = makeDescription(target);
+			if (description != null) {
+				descriptions.put(target, description);
+			}
+		}
+		return description;
+	}
+
 	@SuppressWarnings("unchecked")
-	private static MethodDescription getDescription(OtpErlangObject target) {
+	private static MethodDescription makeDescription(OtpErlangObject target) {
 		if (!(target instanceof OtpErlangTuple)) {
 			target = OtpErlang.mkTuple(target, new OtpErlangList());
 		}
@@ -154,16 +182,14 @@ public class JRpcUtil {
 
 		try {
 			if (method.name.equals(cls.getName())) {
-				Constructor<?> ctr;
-				ctr = cls.getConstructor(method.argTypes);
+				final Constructor<?> ctr = method.getConstructor(cls);
 				// meth.setAccessible(true);
 				final Object o = ctr.newInstance(args);
 				debug(String.format("** %s() returned %s", ctr, o));
 
 				return TypeConverter.java2erlang(o, "x");
 			}
-			Method meth;
-			meth = cls.getMethod(method.name, method.argTypes);
+			final Method meth = method.getMethod(cls);
 			// meth.setAccessible(true);
 			final Object o = meth.invoke(rcvr, args);
 			debug(String.format("** %s() returned %s", meth, o));
@@ -338,6 +364,27 @@ public class JRpcUtil {
 
 		String name;
 		Class<?>[] argTypes;
+		// the methods or constructors found, by receiver class
+		private final ConcurrentMap<Class<?>, Member> members = new ConcurrentHashMap<Class<?>, Member>();
+
+		Method getMethod(final Class<?> cls) throws NoSuchMethodException {
+			Member member = members.get(cls);
+			if (member == null) {
+				member = cls.getMethod(name, argTypes);
+				members.putIfAbsent(cls, member);
+			}
+			return (Method) member;
+		}
+
+		Constructor<?> getConstructor(final Class<?> cls)
+				throws NoSuchMethodException {
+			Member member = members.get(cls);
+			if (member == null) {
+				member = cls.getConstructor(argTypes);
+				members.putIfAbsent(cls, member);
+			}
+			return (Constructor<?>) member;
+		}
 	}
 
 	private JRpcUtil() {
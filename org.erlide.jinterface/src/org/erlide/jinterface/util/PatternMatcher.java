@@ -0,0 +1,307 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package org.erlide.jinterface.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.erlide.jinterface.backend.util.ConcurrentLRUCache;
+
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.ericsson.otp.erlang.OtpPatternVariable;
+import com.ericsson.otp.erlang.Signature;
+
+/**
+ * A pattern compiled for matching many terms, with the same meaning as
+ * {@link ErlUtils#match(OtpErlangObject, OtpErlangObject, Bindings)}.
+ * <p>
+ * Each variable of the pattern gets a slot, in the order they first appear.
+ * {@link #match(OtpErlangObject)} returns the values of the variables in an
+ * array indexed by slot, without building a {@link Bindings} map.
+ *
+ * <pre>
+ * final PatternMatcher m = PatternMatcher.compile(&quot;{ok, Forms, _}&quot;);
+ * final int forms = m.slot(&quot;Forms&quot;);
+ * ...
+ * final OtpErlangObject[] values = m.match(term);
+ * if (values != null) {
+ *     use(values[forms]);
+ * }
+ * </pre>
+ */
+public final class PatternMatcher {
+
+	private static final ConcurrentLRUCache<String, PatternMatcher> cache = new ConcurrentLRUCache<String, PatternMatcher>(
+			500);
+
+	private final Node root;
+	private final String[] variables;
+
+	private PatternMatcher(final Node root, final String[] variables) {
+		this.root = root;
+		this.variables = variables;
+	}
+
+	/**
+	 * Compile a pattern in text form. The compiled patterns are cached.
+	 */
+	public static PatternMatcher compile(final String pattern)
+			throws ParserException {
+		PatternMatcher matcher = cache.get(pattern);
+		if (matcher == null) {
+			matcher = compile(TermParser.parse(pattern));
+			cache.put(pattern, matcher);
+		}
+		return matcher;
+	}
+
+	public static PatternMatcher compile(final OtpErlangObject pattern) {
+		final List<String> variables = new ArrayList<String>();
+		final Node root = compile(pattern, variables);
+		return new PatternMatcher(root, variables.toArray(new String[variables
+				.size()]));
+	}
+
+	/**
+	 * @return the values of the variables, by slot, or null if the term
+	 *         doesn't match
+	 */
+	public OtpErlangObject[] match(final OtpErlangObject term) {
+		final OtpErlangObject[] values = new OtpErlangObject[variables.length];
+		return match(root, term, values) ? values : null;
+	}
+
+	/**
+	 * Match with some variables already bound, like
+	 * {@link ErlUtils#match(OtpErlangObject, OtpErlangObject, Bindings)}.
+	 *
+	 * @return the given bindings and the new ones, or null if the term
+	 *         doesn't match
+	 */
+	public Bindings match(final OtpErlangObject term, final Bindings bindings) {
+		final OtpErlangObject[] values = new OtpErlangObject[variables.length];
+		for (int i = 0; i < variables.length; i++) {
+			values[i] = bindings.get(variables[i]);
+		}
+		if (!match(root, term, values)) {
+			return null;
+		}
+		final Bindings result = new Bindings(bindings);
+		for (int i = 0; i < variables.length; i++) {
+			result.put(variables[i], values[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the slot of the variable, or -1 if it isn't in the pattern
+	 */
+	public int slot(final String variable) {
+		for (int i = 0; i < variables.length; i++) {
+			if (variables[i].equals(variable)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public String[] getVariables() {
+		return variables.clone();
+	}
+
+	private static Node compile(final OtpErlangObject pattern,
+			final List<String> variables) {
+		if (pattern == null) {
+			return null;
+		}
+		if (pattern instanceof OtpPatternVariable) {
+			final OtpPatternVariable var = (OtpPatternVariable) pattern;
+			if (var.getName().equals("_")) {
+				return new Variable(-1, var.getSignature());
+			}
+			int slot = variables.indexOf(var.getName());
+			if (slot < 0) {
+				slot = variables.size();
+				variables.add(var.getName());
+			}
+			return new Variable(slot, var.getSignature());
+		}
+		if (!hasVariables(pattern)) {
+			return new Literal(pattern);
+		}
+		if (pattern instanceof OtpErlangTuple) {
+			return new TupleNode(compile(((OtpErlangTuple) pattern).elements(),
+					variables));
+		}
+		final OtpErlangList list = (OtpErlangList) pattern;
+		return new ListNode(compile(list.elements(), variables), compile(list
+				.getLastTail(), variables), list.isProper());
+	}
+
+	private static Node[] compile(final OtpErlangObject[] patterns,
+			final List<String> variables) {
+		final Node[] nodes = new Node[patterns.length];
+		for (int i = 0; i < patterns.length; i++) {
+			nodes[i] = compile(patterns[i], variables);
+		}
+		return nodes;
+	}
+
+	private static boolean hasVariables(final OtpErlangObject pattern) {
+		if (pattern instanceof OtpPatternVariable) {
+			return true;
+		}
+		if (pattern instanceof OtpErlangTuple) {
+			for (final OtpErlangObject e : ((OtpErlangTuple) pattern)
+					.elements()) {
+				if (hasVariables(e)) {
+					return true;
+				}
+			}
+		} else if (pattern instanceof OtpErlangList) {
+			final OtpErlangList list = (OtpErlangList) pattern;
+			for (final OtpErlangObject e : list.elements()) {
+				if (hasVariables(e)) {
+					return true;
+				}
+			}
+			return hasVariables(list.getLastTail());
+		}
+		return false;
+	}
+
+	private static boolean match(final Node node, final OtpErlangObject term,
+			final OtpErlangObject[] values) {
+		if (node == null) {
+			return term == null;
+		}
+		return term != null && node.match(term, values);
+	}
+
+	private abstract static class Node {
+		/**
+		 * @param term
+		 *            not null
+		 */
+		abstract boolean match(OtpErlangObject term, OtpErlangObject[] values);
+	}
+
+	private static final class Literal extends Node {
+		private final OtpErlangObject value;
+
+		Literal(final OtpErlangObject value) {
+			this.value = value;
+		}
+
+		@Override
+		boolean match(final OtpErlangObject term, final OtpErlangObject[] values) {
+			return value.getClass() == term.getClass() && value.equals(term);
+		}
+	}
+
+	private static final class Variable extends Node {
+		// -1 for _
+		private final int slot;
+		private final Signature signature;
+
+		Variable(final int slot, final Signature signature) {
+			this.slot = slot;
+			this.signature = signature;
+		}
+
+		@Override
+		boolean match(final OtpErlangObject term, final OtpErlangObject[] values) {
+			if (signature.kind != 'x'
+					&& !TypeConverter.matchSignature(term, signature)) {
+				return false;
+			}
+			if (slot < 0) {
+				return true;
+			}
+			final OtpErlangObject old = values[slot];
+			if (old == null) {
+				values[slot] = term;
+				return true;
+			}
+			return old.equals(term);
+		}
+	}
+
+	private static final class TupleNode extends Node {
+		private final Node[] elements;
+
+		TupleNode(final Node[] elements) {
+			this.elements = elements;
+		}
+
+		@Override
+		boolean match(final OtpErlangObject term, final OtpErlangObject[] values) {
+			if (term.getClass() != OtpErlangTuple.class) {
+				return false;
+			}
+			final OtpErlangTuple tuple = (OtpErlangTuple) term;
+			if (tuple.arity() != elements.length) {
+				return false;
+			}
+			for (int i = 0; i < elements.length; i++) {
+				if (!PatternMatcher.match(elements[i], tuple.elementAt(i),
+						values)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static final class ListNode extends Node {
+		private final Node[] elements;
+		// null for a proper list
+		private final Node tail;
+		private final boolean proper;
+
+		ListNode(final Node[] elements, final Node tail, final boolean proper) {
+			this.elements = elements;
+			this.tail = tail;
+			this.proper = proper;
+		}
+
+		@Override
+		boolean match(final OtpErlangObject term, final OtpErlangObject[] values) {
+			if (term.getClass() != OtpErlangList.class) {
+				return false;
+			}
+			final OtpErlangList list = (OtpErlangList) term;
+			final int arity = list.arity();
+			if (elements.length > arity) {
+				return false;
+			}
+			if (elements.length < arity && proper) {
+				return false;
+			}
+			if (elements.length == arity && proper != list.isProper()) {
+				return false;
+			}
+			for (int i = 0; i < elements.length; i++) {
+				if (!PatternMatcher.match(elements[i], list.elementAt(i),
+						values)) {
+					return false;
+				}
+			}
+			if (elements.length < arity && tail instanceof Variable) {
+				// the variable gets the rest of the list
+				return PatternMatcher.match(tail, list
+						.getNthTail(elements.length), values);
+			}
+			return PatternMatcher.match(tail, list.getLastTail(), values);
+		}
+	}
+}
@@ -10,11 +10,11 @@
 package org.erlide.jinterface.util;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Stack;
 
+import org.erlide.jinterface.backend.util.ConcurrentLRUCache;
+
 import com.ericsson.otp.erlang.OtpErlangAtom;
 import com.ericsson.otp.erlang.OtpErlangException;
 import com.ericsson.otp.erlang.OtpErlangList;
@@ -30,17 +30,27 @@ public class TermParser {
 	private TermParser() {
 	}
 
-	private static Map<String, OtpErlangObject> cache = new HashMap<String, OtpErlangObject>();
+	private static final ConcurrentLRUCache<String, OtpErlangObject> cache = new ConcurrentLRUCache<String, OtpErlangObject>(
+			1000);
 
 	public static OtpErlangObject parse(final String s) throws ParserException {
 		OtpErlangObject value = cache.get(s);
 		if (value == null) {
 			value = parse(scan(s));
-			cache.put(s, value);
+			if (value != null) {
+				cache.put(s, value);
+			}
 		}
 		return value;
 	}
 
+	/**
+	 * @return the cache of parsed terms, for its statistics
+	 */
+	public static ConcurrentLRUCache<String, OtpErlangObject> getCache() {
+		return cache;
+	}
+
 	private static OtpErlangObject parse(final List<Token> tokens)
 			throws ParserException {
 		if (tokens.size() == 0) {
@@ -18,6 +18,8 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.ericsson.otp.erlang.OtpErlang;
 import com.ericsson.otp.erlang.OtpErlangAtom;
@@ -74,6 +76,13 @@ import com.ericsson.otp.erlang.SignatureException;
  */
 public final class TypeConverter {
 
+    // the fromErlangObject methods of the classes converted to, and the
+    // classes found by getClassByName. Both are cleared when JRpcUtil.loader
+    // is replaced, so that they don't keep the classes of the old loader
+    private static final ConcurrentMap<Class<?>, Converter> converters = new ConcurrentHashMap<Class<?>, Converter>();
+    private static final ConcurrentMap<String, Class<?>> classes = new ConcurrentHashMap<String, Class<?>>();
+    private static volatile ClassLoader classesLoader = null;
+
     public static Class<?> getClassByName(final String arg) {
         if (arg.equals("char")) {
             return char.class;
@@ -99,8 +108,15 @@ public final class TypeConverter {
         if (arg.equals("double")) {
             return double.class;
         }
+        final ClassLoader loader = checkLoader();
+        final Class<?> cached = classes.get(arg);
+        if (cached != null) {
+            return cached;
+        }
         try {
-            return Class.forName(arg, true, JRpcUtil.loader);
+            final Class<?> cls = Class.forName(arg, true, loader);
+            classes.put(arg, cls);
+            return cls;
         } catch (final ClassNotFoundException e) {
             ErlLogger.warn("Rpc TypeConverter: can't find class " + arg);
             return Object.class;
@@ -153,13 +169,9 @@ public final class TypeConverter {
                 return obj;
             }
             // if the conversion method exists, use it
-            try {
-                final Method method = cls.getMethod("fromErlangObject",
-                        new Class<?>[] { OtpErlangObject.class });
-                method.setAccessible(true);
-                final Object o = method.invoke(null, obj);
-                return o;
-            } catch (final NoSuchMethodException e) {
+            final Method method = getConverter(cls);
+            if (method != null) {
+                return method.invoke(null, obj);
             }
 
             if (cls.isArray()) {
@@ -240,6 +252,46 @@ public final class TypeConverter {
         }
     }
 
+    /**
+     * @return the fromErlangObject method of the class, or null. The lookup is
+     *         done once per class.
+     */
+    private static Method getConverter(final Class<?> cls) {
+        checkLoader();
+        Converter converter = converters.get(cls);
+        if (converter == null) {
+            Method method = null;
+            try {
+                method = cls.getMethod("fromErlangObject",
+                        new Class<?>[] { OtpErlangObject.class });
+                method.setAccessible(true);
+            } catch (final NoSuchMethodException e) {
+            }
+            converter = new Converter(method);
+            converters.putIfAbsent(cls, converter);
+        }
+        return converter.method;
+    }
+
+    private static ClassLoader checkLoader() {
+        final ClassLoader loader = JRpcUtil.loader;
+        if (loader != classesLoader) {
+            // the loader was replaced, the names may resolve differently
+            classes.clear();
+            converters.clear();
+            classesLoader = loader;
+        }
+        return loader;
+    }
+
+    private static final class Converter {
+        final Method method;
+
+        Converter(final Method method) {
+            this.method = method;
+        }
+    }
+
     private static String cvtString(final OtpErlangObject obj)
             throws SignatureException {
         if (obj instanceof OtpErlangString) {
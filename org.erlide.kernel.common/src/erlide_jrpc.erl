@@ -59,14 +59,14 @@ manager(State) ->
 							 end
 					 end,
 			manager(State2);
-		{get, Service, From} ->
+		{get, Service, From, Ref} ->
 			Value = case lists:keysearch(Service, 1, State) of
 						false ->
 							[];
 						{value, {Service, Pids}} ->
 							Pids
 					end,
-			From ! Value,
+			From ! {Ref, Value},
 			manager(State);
 		stop ->
 			ok;
@@ -77,9 +77,18 @@ manager(State) ->
 add_service(Service, Pid) when is_atom(Service), is_pid(Pid) ->
 	?MANAGER ! {add, Service, Pid}.
 
+%% only the tagged reply is received, so that servers calling notify/2 don't
+%% lose messages of their own
 get_service_listeners(Service) when is_atom(Service) ->
-	?MANAGER ! {get, Service, self()},
-	receive X -> X end.
+	Ref = erlang:monitor(process, ?MANAGER),
+	?MANAGER ! {get, Service, self(), Ref},
+	receive
+		{Ref, Listeners} ->
+			erlang:demonitor(Ref, [flush]),
+			Listeners;
+		{'DOWN', Ref, process, _, _} ->
+			[]
+	end.
 
 notify(Service, Message) when is_atom(Service) ->
 	L = case get_service_listeners(Service) of 
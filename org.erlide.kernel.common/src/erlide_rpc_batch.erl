@@ -0,0 +1,59 @@
+%%% ******************************************************************************
+%%%  Copyright (c) 2010 Vlad Dumitrescu and others.
+%%%  All rights reserved. This program and the accompanying materials
+%%%  are made available under the terms of the Eclipse Public License v1.0
+%%%  which accompanies this distribution, and is available at
+%%%  http://www.eclipse.org/legal/epl-v10.html
+%%%
+%%%  Contributors:
+%%%      Vlad Dumitrescu
+%%% ******************************************************************************/
+%% Description: Helpers for the IDE's rpc: runs a batch of calls sent in a
+%%   single rpc, so that many small requests cost only one round trip, and
+%%   runs calls whose results are multiplexed over a single mailbox.
+
+-module(erlide_rpc_batch).
+
+%%
+%% Include files
+%%
+
+%%-define(DEBUG, 1).
+
+-include("erlide.hrl").
+
+%%
+%% Exported Functions
+%%
+-export([
+     call/1,
+     tagged_call/5
+    ]).
+
+%% Calls is a list of {Module, Function, Args}. The result is a tuple with
+%% one element per call, in the same order. A call that crashes gets
+%% {badrpc, {'EXIT', Reason}}, like with rpc:call/4.
+call(Calls) when is_list(Calls) ->
+  ?D({batch, length(Calls)}),
+  list_to_tuple([do_call(Call) || Call <- Calls]).
+
+%% Meant to be started with an rpc cast. The result is sent to ReplyTo as
+%% {Tag, Result}, so that the IDE can match it with the request even if many
+%% calls share the same mailbox.
+tagged_call(ReplyTo, Tag, M, F, A) ->
+  ReplyTo ! {Tag, do_call({M, F, A})},
+  ok.
+
+%%
+%% Local Functions
+%%
+
+do_call({M, F, A}) when is_atom(M), is_atom(F), is_list(A) ->
+  case catch apply(M, F, A) of
+    {'EXIT', _}=Error ->
+      {badrpc, Error};
+    Result ->
+      Result
+  end;
+do_call(Other) ->
+  {badrpc, {'EXIT', {badarg, Other}}}.
@@ -25,7 +25,11 @@
 %% called from Java
 -export([start/0, 
          stop/0,
-         find_refs/3]).
+         find_refs/3,
+         start_find_refs/4,
+         cancel_find_refs/1,
+         index_stats/0,
+         rebuild_index/2]).
 
 %% called from Erlang
 -export([remove_module/1,
@@ -48,9 +52,22 @@
 %%
 
 -define(SERVER, erlide_search_server).
-
--record(state, {modules=[], dummy}). %% FIXME still too simple data mode
--record(module, {scanner_name, module_name, refs}).
+-define(INDEX_VERSION, 2).
+%% the index is saved when the server has been idle this long after a change
+-define(SAVE_DELAY, 5000).
+%% the number of modules searched before sending the refs found to Java
+-define(SEARCH_CHUNK, 50).
+
+%% The refs of all modules are kept in an inverted index:
+%% refs is a bag of {{Key, ScannerName}, Data, {F, A, C, S, O, L, IsDef}},
+%% where Key is the #ref.data, or var_key(F, A, C) for variables, whose
+%% searches are always in one clause. So a module's refs never share a key
+%% with other modules, and are removed without looking at theirs. modules
+%% has an #indexed{} with the keys of each module in refs. Modules updated
+%% by the noparse (editor buffers) are live, the others are indexed from
+%% their .refs file and reindexed when it changes.
+-record(state, {refs, modules, live=[], index_dir, dirty=false, searches=[]}).
+-record(indexed, {scanner_name, keys, source}).
 
 %%
 %% API Functions
@@ -84,6 +101,26 @@ find_refs(Pattern, Modules, StateDir)
     ?D(R),
     R.
 
+%% search in chunks of modules, the refs found are sent to Java as
+%% {find_refs, {Id, {ok, Refs}}} events, and {find_refs, {Id, done}} at the end
+start_find_refs(Pattern, Modules, StateDir, Id) when is_tuple(Pattern) ->
+    start_find_refs([Pattern], Modules, StateDir, Id);
+start_find_refs(Pattern, Modules, StateDir, Id)
+  when is_list(Pattern), is_list(Modules), is_list(StateDir) ->
+    server_cmd(start_find_refs, {Pattern, Modules, StateDir, Id}).
+
+%% stop a search started with start_find_refs, no more events are sent for it
+cancel_find_refs(Id) ->
+    server_cmd(cancel_find_refs, Id).
+
+%% returns {ok, [{modules, N}, {live, N}, {refs, N}, {memory, Bytes}]}
+index_stats() ->
+    server_cmd(index_stats).
+
+%% drop the index of the non-live modules and read the given ones again
+rebuild_index(Modules, StateDir) when is_list(Modules), is_list(StateDir) ->
+    server_cmd(rebuild_index, {Modules, StateDir}).
+
 remove_module(ScannerName) ->
     server_cmd(remove_module, ScannerName).
 
@@ -101,7 +138,7 @@ start(undefined) ->
                   erlang:yield(),
                   erlang:register(?SERVER, self()),
                   Self ! started,
-                  loop(#state{})
+                  loop(new_state())
           end),
     receive
         started ->
@@ -133,12 +170,17 @@ loop(State) ->
     ?D(State),
     receive
         {stop, From, []} ->
+            save_index(State),
             reply(stop, From, stopped);
+        {find_refs_chunk, Id, Pattern, Modules, StateDir} ->
+            ?MODULE:loop(find_refs_chunk(Id, Pattern, Modules, StateDir, State));
         {Cmd, From, Args} ->
             ?D(Cmd),
             NewState = cmd(Cmd, From, Args, State),
             ?D(NewState),
             ?MODULE:loop(NewState)
+    after save_delay(State) ->
+            ?MODULE:loop(save_index(State))
     end.
 
 cmd(Cmd, From, Args, State) ->
@@ -172,50 +214,279 @@ cmd(Cmd, From, Args, State) ->
 reply(Cmd, From, R) ->
     From ! {Cmd, self(), R}.
 
-do_cmd(add_module_refs, {ScannerName, Refs}, State) ->
-    do_add_module_refs(ScannerName, Refs, State);
-do_cmd(find_refs, {Ref, Modules, StateDir}, State) ->
-    ?D(Ref),
+do_cmd(add_module_refs, {ScannerName, Refs}, #state{live=Live} = State) ->
+    index_module(ScannerName, Refs, live, State),
+    State#state{live=[ScannerName | lists:delete(ScannerName, Live)]};
+do_cmd(find_refs, {Pattern, Modules, StateDir}, State0) ->
+    ?D(Pattern),
     ?D(Modules),
-    ?D(State),
-    R = do_find_refs(Modules, Ref, StateDir, State, []),
+    State1 = use_index_dir(StateDir, State0),
+    State2 = update_index(Modules, StateDir, State1),
+    R = do_find_refs(Pattern, Modules, State2),
     ?D(R),
-    R;
-do_cmd(remove_module, Module, #state{modules=Modules0} = State) ->
-    Modules1 = lists:keydelete(Module, #module.scanner_name, Modules0),
-    State#state{modules=Modules1};
+    {{ok, R}, State2};
+do_cmd(start_find_refs, {Pattern, Modules, StateDir, Id},
+       #state{searches=Searches} = State) ->
+    %% the chunks are interleaved with the other commands, so that a search
+    %% can be cancelled
+    self() ! {find_refs_chunk, Id, Pattern, Modules, StateDir},
+    State#state{searches=[Id | Searches]};
+do_cmd(cancel_find_refs, Id, #state{searches=Searches} = State) ->
+    State#state{searches=lists:delete(Id, Searches)};
+do_cmd(index_stats, _, State) ->
+    {{ok, index_stats(State)}, State};
+do_cmd(rebuild_index, {Modules, StateDir}, State0) ->
+    #state{modules=Indexed, live=Live} = State1 = use_index_dir(StateDir, State0),
+    Old = [M || #indexed{scanner_name=M} <- ets:tab2list(Indexed),
+                not lists:member(M, Live)],
+    lists:foreach(fun(M) -> unindex_module(M, State1) end, Old),
+    State2 = update_index(Modules, StateDir, State1#state{dirty=true}),
+    {{ok, index_stats(State2)}, State2};
+do_cmd(remove_module, Module, #state{live=Live} = State) ->
+    unindex_module(Module, State),
+    State#state{live=lists:delete(Module, Live)};
 do_cmd(state, _, State) ->
     {State, State};
-do_cmd(modules, _, #state{modules=Modules} = State) ->
-    Names = [M || #module{scanner_name=M} <- Modules],
+do_cmd(modules, _, #state{modules=Indexed} = State) ->
+    Names = [M || #indexed{scanner_name=M} <- ets:tab2list(Indexed)],
     {Names, State}.
 
-do_find_refs([], _, _, State, Acc) ->
-    {{ok, Acc}, State};
-do_find_refs([{ScannerName, ModulePath} | Rest], Pattern, StateDir, 
-             #state{modules=Modules} = State, Acc0) ->
-    ?D(ScannerName),
-    Refs = get_module_refs(ScannerName, ModulePath, StateDir, Modules),
-    Mod = get_module_name(ModulePath),
-    Acc1 = find_data(Refs, Pattern, Mod, ModulePath, Acc0),
-    ?D(Acc1),
-    do_find_refs(Rest, Pattern, StateDir, State, Acc1).
+new_state() ->
+    #state{refs=ets:new(erlide_search_refs, [bag]),
+           modules=ets:new(erlide_search_modules,
+                           [set, {keypos, #indexed.scanner_name}])}.
+
+%% the index is saved in the state dir of the find_refs calls
+use_index_dir(Dir, #state{index_dir=Dir} = State) ->
+    State;
+use_index_dir(Dir, #state{refs=Refs, modules=Indexed, live=Live} = State) ->
+    save_index(State),
+    NewState = case load_index(Dir) of
+                   {ok, Refs1, Indexed1} ->
+                       #state{refs=Refs1, modules=Indexed1, live=Live, index_dir=Dir};
+                   _ ->
+                       (new_state())#state{live=Live, index_dir=Dir}
+               end,
+    %% the live modules aren't in the saved index, or are out of date there
+    lists:foreach(fun(M) -> move_module(M, State, NewState) end, Live),
+    ets:delete(Refs),
+    ets:delete(Indexed),
+    NewState.
+
+move_module(ScannerName, #state{refs=Refs0, modules=Indexed0},
+            #state{refs=Refs1, modules=Indexed1} = NewState) ->
+    case ets:lookup(Indexed0, ScannerName) of
+        [#indexed{keys=Keys} = I] ->
+            unindex_module(ScannerName, NewState),
+            ets:insert(Refs1, lists:append([ets:lookup(Refs0, Key) || Key <- Keys])),
+            ets:insert(Indexed1, I);
+        [] ->
+            ok
+    end.
+
+load_index("") ->
+    none;
+load_index(Dir) ->
+    case ets:file2tab(index_file(Dir, refs), [{verify, true}]) of
+        {ok, Refs} ->
+            case ets:file2tab(index_file(Dir, modules), [{verify, true}]) of
+                {ok, Indexed} ->
+                    {ok, Refs, Indexed};
+                Error ->
+                    ets:delete(Refs),
+                    Error
+            end;
+        Error ->
+            Error
+    end.
+
+save_index(#state{dirty=false} = State) ->
+    State;
+save_index(#state{index_dir=Dir} = State) when Dir =:= undefined; Dir =:= "" ->
+    State#state{dirty=false};
+save_index(#state{refs=Refs, modules=Indexed, index_dir=Dir} = State) ->
+    ets:tab2file(Refs, index_file(Dir, refs)),
+    ets:tab2file(Indexed, index_file(Dir, modules)),
+    State#state{dirty=false}.
+
+save_delay(#state{dirty=true}) ->
+    ?SAVE_DELAY;
+save_delay(_) ->
+    infinity.
+
+index_file(Dir, Name) ->
+    filename:join(Dir, "erlide_search_index_" ++ atom_to_list(Name)
+                      ++ "." ++ integer_to_list(?INDEX_VERSION)).
+
+index_stats(#state{refs=Refs, modules=Indexed, live=Live}) ->
+    WordSize = erlang:system_info(wordsize),
+    [{modules, ets:info(Indexed, size)},
+     {live, length(Live)},
+     {refs, ets:info(Refs, size)},
+     {memory, (ets:info(Refs, memory) + ets:info(Indexed, memory)) * WordSize}].
+
+%% (re)index the modules whose .refs file has changed since they were indexed
+update_index(Modules, StateDir, #state{modules=Indexed, live=Live} = State) ->
+    lists:foldl(
+      fun({ScannerName, ModulePath}, S) ->
+              case lists:member(ScannerName, Live) of
+                  true ->
+                      S;
+                  false ->
+                      Stamp = refs_stamp(ScannerName, StateDir),
+                      case ets:lookup(Indexed, ScannerName) of
+                          [#indexed{source=Stamp}] when Stamp =/= none ->
+                              S;
+                          _ ->
+                              reindex_module(ScannerName, ModulePath, StateDir, S)
+                      end
+              end
+      end, State, Modules).
+
+%% a module that can't be read is left out, so that the rest of the index
+%% stays usable
+reindex_module(ScannerName, ModulePath, StateDir, State) ->
+    try read_module_refs(ScannerName, ModulePath, StateDir) of
+        Refs ->
+            index_module(ScannerName, Refs, refs_stamp(ScannerName, StateDir),
+                         State),
+            State#state{dirty=true}
+    catch
+        _:_Error ->
+            ?D({ScannerName, _Error}),
+            State
+    end.
+
+refs_stamp(_ScannerName, "") ->
+    none;
+refs_stamp(ScannerName, StateDir) ->
+    RefsFileName = filename:join(StateDir, atom_to_list(ScannerName)) ++ ".refs",
+    case file:read_file_info(RefsFileName) of
+        {ok, #file_info{mtime=MTime, size=Size}} ->
+            {MTime, Size};
+        _ ->
+            none
+    end.
+
+index_module(ScannerName, Refs, Source, #state{refs=Tab, modules=Indexed} = State) ->
+    unindex_module(ScannerName, State),
+    Objects = [{{ref_key(D, F, A, C), ScannerName}, D, {F, A, C, S, O, L, is_def(D)}}
+               || #ref{function=F, arity=A, clause=C, data=D, offset=O,
+                       length=L, sub_clause=S} <- Refs],
+    ets:insert(Tab, Objects),
+    Keys = lists:usort([Key || {Key, _, _} <- Objects]),
+    ets:insert(Indexed, #indexed{scanner_name=ScannerName, keys=Keys,
+                                 source=Source}).
+
+ref_key(#var_ref{}, F, A, C) ->
+    var_key(F, A, C);
+ref_key(#var_def{}, F, A, C) ->
+    var_key(F, A, C);
+ref_key(D, _F, _A, _C) ->
+    D.
+
+var_key(F, A, C) ->
+    {'$vars', F, A, C}.
+
+unindex_module(ScannerName, #state{refs=Tab, modules=Indexed}) ->
+    case ets:lookup(Indexed, ScannerName) of
+        [#indexed{keys=Keys}] ->
+            lists:foreach(fun(Key) -> ets:delete(Tab, Key) end, Keys),
+            ets:delete(Indexed, ScannerName);
+        [] ->
+            ok
+    end.
+
+do_find_refs(Patterns, Modules, #state{refs=Tab}) ->
+    Scope = dict:from_list([{ScannerName, {ModulePath, get_module_name(ModulePath)}}
+                            || {ScannerName, ModulePath} <- Modules]),
+    lists:usort(lists:append([find_pattern(P, Scope, Tab) || P <- Patterns])).
+
+find_refs_chunk(Id, Pattern, Modules, StateDir, #state{searches=Searches} = State0) ->
+    case lists:member(Id, Searches) of
+        false ->
+            %% cancelled
+            State0;
+        true ->
+            {Chunk, Rest} = split_chunk(?SEARCH_CHUNK, Modules, []),
+            State1 = use_index_dir(StateDir, State0),
+            try
+                State2 = update_index(Chunk, StateDir, State1),
+                case do_find_refs(Pattern, Chunk, State2) of
+                    [] ->
+                        ok;
+                    Refs ->
+                        search_event(Id, {ok, Refs})
+                end,
+                case Rest of
+                    [] ->
+                        search_event(Id, done),
+                        State2#state{searches=lists:delete(Id, Searches)};
+                    _ ->
+                        self() ! {find_refs_chunk, Id, Pattern, Rest, StateDir},
+                        State2
+                end
+            catch
+                _:Error ->
+                    search_event(Id, {error, Error}),
+                    State1#state{searches=lists:delete(Id, Searches)}
+            end
+    end.
+
+split_chunk(0, Rest, Acc) ->
+    {lists:reverse(Acc), Rest};
+split_chunk(_, [], Acc) ->
+    {lists:reverse(Acc), []};
+split_chunk(N, [M | Rest], Acc) ->
+    split_chunk(N-1, Rest, [M | Acc]).
+
+%% not erlide_jrpc:event/2, the events of a search must arrive in order
+search_event(Id, Msg) ->
+    erlide_jrpc:notify(find_refs, {event, find_refs, {Id, Msg}, self()}).
 
 get_module_name(ModulePath) ->
     L = filename:rootname(filename:basename(ModulePath)),
     list_to_atom(L).
 
-find_data([], _, _, _, Acc) ->
-    Acc;
-find_data([#ref{function=F, arity=A, clause=C, data=D, offset=O, length=L, sub_clause=S} | Rest],
-          Pattern, Mod, M, Acc) ->
-    NewAcc = case check_pattern(Pattern, Mod, D, F, A, C) of
-                 true ->
-                     [{M, F, A, C, S, O, L, is_def(D)} | Acc];
-                 false ->
-                     Acc
-             end,
-    find_data(Rest, Pattern, Mod, M, NewAcc).
+%% the index lookups matching the same refs as check_pattern/6
+find_pattern(#external_call{module=M, function=F, arity=A} = P, Scope, Tab) ->
+    lookup(P, any, Scope, Tab)
+        ++ lookup(#local_call{function=F, arity=A}, {module, M}, Scope, Tab);
+find_pattern(#function_def_mod{module=M, function=F, arity=A} = P, Scope, Tab) ->
+    lookup(P, any, Scope, Tab)
+        ++ lookup(#function_def{function=F, arity=A}, {module, M}, Scope, Tab);
+find_pattern(#type_ref{module='_'}, _Scope, _Tab) ->
+    [];
+find_pattern(#type_ref{module=M, type=T} = P, Scope, Tab) ->
+    lookup(P, any, Scope, Tab)
+        ++ lookup(#type_ref{module='_', type=T}, {module, M}, Scope, Tab);
+find_pattern(#var_pattern{vardefref=VL, function=F, arity=A, clause=C}, Scope, Tab) ->
+    [{M, F, A, C, S, O, L, IsDef}
+     || {ScannerName, {M, _Mod}} <- dict:to_list(Scope),
+        {_, D, {_, _, _, S, O, L, IsDef}} <- ets:lookup(Tab, {var_key(F, A, C), ScannerName}),
+        lists:member(D, VL)];
+find_pattern(#local_call{}, _Scope, _Tab) ->
+    [];
+find_pattern(#var_ref{}, _Scope, _Tab) ->
+    [];
+find_pattern(#var_def{}, _Scope, _Tab) ->
+    [];
+find_pattern(P, Scope, Tab) ->
+    lookup(P, any, Scope, Tab).
+
+%% one lookup for each module in the scope, which is a chunk of the modules
+lookup(Data, Filter, Scope, Tab) ->
+    [{M, F, A, C, S, O, L, IsDef}
+     || {ScannerName, {M, Mod}} <- dict:to_list(Scope),
+        {_, _, {F, A, C, S, O, L, IsDef}} <- ets:lookup(Tab, {Data, ScannerName}),
+        filter(Filter, Mod, F, A, C)].
+
+filter(any, _, _, _, _) ->
+    true;
+filter({module, Mod}, Mod, _, _, _) ->
+    true;
+filter(_, _, _, _, _) ->
+    false.
 
 is_def(#function_def{}) -> true;
 is_def(#macro_def{}) -> true;
@@ -248,24 +519,5 @@ check_var_pattern([#var_pattern{vardefref=VL, function=F, arity=A, clause=C} | R
 check_var_pattern([_ | Rest], V, F, A, C) ->
 	check_var_pattern(Rest, V, F, A, C).
 
-get_module_refs(ScannerName, ModulePath, StateDir, Modules) ->
-    ?D(Modules),
-    case lists:keysearch(ScannerName, #module.scanner_name, Modules) of
-        {value, #module{refs=Refs}} ->
-            ?D(ye),
-            Refs;
-        false ->
-            ?D(ok),
-            read_module_refs(ScannerName, ModulePath, StateDir)
-    end.
-
 read_module_refs(ScannerName, ModulePath, StateDir) ->
     erlide_noparse:read_module_refs(ScannerName, ModulePath, StateDir).
-
-do_add_module_refs(ScannerName, Refs, #state{modules=Modules0} = State) ->
-    ?D(ScannerName),
-    Modules1 = lists:keydelete(ScannerName, #module.scanner_name, Modules0),
-    Modules2 = [#module{scanner_name=ScannerName, refs=Refs} | Modules1],
-    ?D(Modules1),
-    ?D(Modules2),
-    State#state{modules=Modules2}.
@@ -9,7 +9,7 @@
 %%
 
 %% called from Java
--export([initial_parse/5, reparse/1]).
+-export([initial_parse/5, initial_parse_with_ids/5, reparse/1, reparse_changed/2]).
 
 %% called from Erlang
 -export([read_module_refs/3]).
@@ -140,6 +140,92 @@ do_parse2(ScannerName, RefsFileName, Toks, StateDir, UpdateSearchServer) ->
     ?D(FixedModel),
     FixedModel.
 
+%% Like reparse, but only returns the forms that changed since the last
+%% call. The forms get ids that are kept while they don't change, and the
+%% result has {same, Id, Line, Offset} for a form that is unchanged but may
+%% have moved, and {new, Id, Form} for a form that is new or changed.
+%% When Incremental is false, all forms are new.
+reparse_changed(ScannerName, Incremental) ->
+    try
+        #model{forms=Forms, comments=Comments} =
+            do_parse(ScannerName, "", "", true),
+        {OldIds, NextId0} = case Incremental of
+                                true ->
+                                    erlide_noparse_server:get_form_ids(ScannerName);
+                                false ->
+                                    {[], 1}
+                            end,
+        Old = lists:foldl(fun({Key, Id}, D) -> dict:append(Key, Id, D) end,
+                          dict:new(), OldIds),
+        {Result, Ids, NextId} = match_forms(Forms, Old, NextId0, [], []),
+        erlide_noparse_server:set_form_ids(ScannerName, {Ids, NextId}),
+        {ok, Result, Comments}
+    catch
+        error:Reason ->
+            {error, Reason}
+    end.
+
+%% Like initial_parse, and also gives the forms the ids used by
+%% reparse_changed/2, so that the first reparse is incremental too. The ids
+%% are returned in the order of the forms.
+initial_parse_with_ids(ScannerName, ModuleFileName, StateDir, UpdateCaches,
+                       UpdateSearchServer) ->
+    case initial_parse(ScannerName, ModuleFileName, StateDir, UpdateCaches,
+                       UpdateSearchServer) of
+        {ok, #model{forms=Forms}=Res, Cached} ->
+            {_Result, Ids, NextId} = match_forms(Forms, dict:new(), 1, [], []),
+            erlide_noparse_server:set_form_ids(ScannerName, {Ids, NextId}),
+            {ok, Res, Cached, [Id || {_Key, Id} <- Ids]};
+        Error ->
+            Error
+    end.
+
+match_forms([], _Old, NextId, Acc, IdsAcc) ->
+    {lists:reverse(Acc), lists:reverse(IdsAcc), NextId};
+match_forms([Form | Rest], Old, NextId, Acc, IdsAcc) ->
+    Base = form_base(Form),
+    Key = erlang:phash2(normalize_form(Form, Base)),
+    case Base =/= none andalso dict:find(Key, Old) of
+        {ok, [Id | Ids]} ->
+            {Line, Offset} = Base,
+            match_forms(Rest, dict:store(Key, Ids, Old), NextId,
+                        [{same, Id, Line, Offset} | Acc], [{Key, Id} | IdsAcc]);
+        _ ->
+            match_forms(Rest, Old, NextId+1,
+                        [{new, NextId, Form} | Acc], [{Key, NextId} | IdsAcc])
+    end.
+
+%% forms without a position, like errors, are always new
+form_base(#function{pos=Pos}) -> pos_base(Pos);
+form_base(#attribute{pos=Pos}) -> pos_base(Pos);
+form_base(#other{pos=Pos}) -> pos_base(Pos);
+form_base(_) -> none.
+
+pos_base({{Line, _LastLine, Offset}, _Length}) -> {Line, Offset};
+pos_base({{Line, Offset}, _Length}) -> {Line, Offset};
+pos_base(_) -> none.
+
+%% the form with positions relative to its start, so that a form that only
+%% moved is the same
+normalize_form(#function{pos=Pos, name_pos=NamePos, clauses=Clauses}=F, Base) ->
+    F#function{pos=normalize_pos(Pos, Base), name_pos=normalize_pos(NamePos, Base),
+               clauses=[normalize_form(C, Base) || C <- Clauses]};
+normalize_form(#clause{pos=Pos, name_pos=NamePos}=C, Base) ->
+    C#clause{pos=normalize_pos(Pos, Base), name_pos=normalize_pos(NamePos, Base)};
+normalize_form(#attribute{pos=Pos}=A, Base) ->
+    A#attribute{pos=normalize_pos(Pos, Base)};
+normalize_form(#other{pos=Pos}=O, Base) ->
+    O#other{pos=normalize_pos(Pos, Base)};
+normalize_form(Form, _Base) ->
+    Form.
+
+normalize_pos({{Line, LastLine, Offset}, Length}, {BaseLine, BaseOffset}) ->
+    {{Line-BaseLine, LastLine-BaseLine, Offset-BaseOffset}, Length};
+normalize_pos({{Line, Offset}, Length}, {BaseLine, BaseOffset}) ->
+    {{Line-BaseLine, Offset-BaseOffset}, Length};
+normalize_pos(Pos, _Base) ->
+    Pos.
+
 update_search_server(true, ScannerName, Refs) ->
     erlide_search_server:add_module_refs(ScannerName, Refs);
 update_search_server(_, _, _) ->
@@ -9,6 +9,7 @@
 
 -export([modules/0, dump_module/1, dump_log/0, create/3, destroy/1, logging/1,
          all/0, stop/0, find/3, xdump/0]).
+-export([get_form_ids/1, set_form_ids/2]).
 
 -compile(export_all).
 
@@ -28,7 +29,7 @@
 -include("erlide.hrl").
 -include("erlide_scanner.hrl").
 
--record(module, {name, erlide_path, model}).
+-record(module, {name, erlide_path, model, form_ids={[], 1}}).
 
 %%
 %% API Functions
@@ -70,6 +71,13 @@ stop() ->
 find(M, F, A) ->
     server_cmd(find, {external_call, {M, F, A}}).
 
+%% the keys and ids of the forms of a module, for erlide_noparse:reparse_changed
+get_form_ids(Module) when is_atom(Module) ->
+    server_cmd(get_form_ids, Module).
+
+set_form_ids(Module, FormIds) when is_atom(Module) ->
+    server_cmd(set_form_ids, {Module, FormIds}).
+
 
 %%
 %% Internal functions
@@ -148,6 +156,21 @@ do_cmd(update_state, {Mod, Model}, Modules) ->
                      #module{name=Mod, model=Model}
              end,
     [NewMod | lists:keydelete(Mod, #module.name, Modules)];
+do_cmd(get_form_ids, Mod, Modules) ->
+    case lists:keysearch(Mod, #module.name, Modules) of
+        {value, #module{form_ids=FormIds}} ->
+            {FormIds, Modules};
+        false ->
+            {{[], 1}, Modules}
+    end;
+do_cmd(set_form_ids, {Mod, FormIds}, Modules) ->
+    NewMod = case lists:keysearch(Mod, #module.name, Modules) of
+                 {value, OldMod} ->
+                     OldMod#module{form_ids=FormIds};
+                 false ->
+                     #module{name=Mod, form_ids=FormIds}
+             end,
+    [NewMod | lists:keydelete(Mod, #module.name, Modules)];
 do_cmd(all, [], Modules) ->
     {Modules, Modules};
 do_cmd(modules, [], Modules) ->
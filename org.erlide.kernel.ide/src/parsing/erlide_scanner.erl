@@ -18,7 +18,8 @@
 
 -export([light_scan_string/1, scan_string/1, convert_tokens/1,
          tokens_to_string/1, do_scan/2, get_all_tokens/1, initial_scan/5,
-         get_token_at/2, replace_text/4, lines_to_text/1, get_token_window/4]).
+         get_token_at/2, replace_text/4, lines_to_text/1, get_token_window/4,
+         get_all_tokens_packed/1, replace_text_packed/4]).
 
 %%
 %% API Functions
@@ -181,6 +182,25 @@ replace_text(Module, Offset, RemoveLength, NewText) ->
     NewTokens = replace_between(Line, NOldLines, LineTokens, Module#module.tokens),
     Module#module{lines=NewLines, tokens=NewTokens}.
 
+%% like replace_text, but also returns the tokens of the rescanned lines,
+%% packed like light_scan_string, with the position and the old and new
+%% length of the lines, so that a copy of the tokens can be updated
+replace_text_packed(Module, Offset, RemoveLength, NewText) ->
+    {Line, NOldLines, AffectedLines, NewLines} = 
+        replace_between_lines(Offset, RemoveLength, NewText, Module#module.lines),
+    LineTokens = [scan_line(L) || L <- AffectedLines],
+    OldTokens = Module#module.tokens,
+    {Before, After} = lists:split(Line, OldTokens),
+    {Removed, _} = lists:split(NOldLines, After),
+    Pos = lines_length(Before),
+    NewTokens = replace_between(Line, NOldLines, LineTokens, OldTokens),
+    Packed = pack_tokens(LineTokens, Line, Pos, []),
+    {{ok, Pos, lines_length(Removed), lines_length(LineTokens), Packed},
+     Module#module{lines=NewLines, tokens=NewTokens}}.
+
+lines_length(Lines) ->
+    lists:sum([Length || {Length, _} <- Lines]).
+
 get_token_at(Module, Offset) ->
     case find_line_w_offset(Offset, Module#module.tokens) of
         {N, Pos, _Length, Tokens, false} ->
@@ -278,6 +298,17 @@ get_all_tokens([{Length, Tokens} | Rest], Line, Pos, Acc) ->
     T = fix_tokens(Tokens, Pos, Line),
     get_all_tokens(Rest, Line+1, Pos+Length, [Acc, T]).
 
+get_all_tokens_packed(#module{tokens=Tokens}) ->
+    pack_tokens(Tokens, 0, 0, []).
+
+%% <<Kind, Line:24, Offset:24, Length:24>> for each token
+pack_tokens([], _Line, _Pos, Acc) ->
+    erlang:iolist_to_binary(Acc);
+pack_tokens([{Length, Tokens} | Rest], Line, Pos, Acc) ->
+    T = [<<(kind_small(K)), (Line+L):24, (Pos+O):24, G:24>>
+         || #token{kind=K, line=L, offset=O, length=G} <- Tokens],
+    pack_tokens(Rest, Line+1, Pos+Length, [Acc | T]).
+
 get_token_window(Module, Offset, Before, After) ->
     ?D({Module, Offset, Before, After}),
     A = get_tokens_at(Module, Offset, After),
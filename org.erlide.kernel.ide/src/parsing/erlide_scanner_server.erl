@@ -19,6 +19,7 @@
 
 -export([create/1, destroy/1, initialScan/5, getTokenAt/2, getTokenWindow/4, 
          getTokens/1, replaceText/4, check_all/2]).
+-export([getPackedTokens/1, replaceTextPacked/4]).
 
 %% stop/0
 
@@ -41,6 +42,7 @@ create(ScannerName) when is_atom(ScannerName) ->
 
 destroy(ScannerName) when is_atom(ScannerName) ->
     erlide_search_server:remove_module(ScannerName),
+    erlide_noparse_server:destroy(ScannerName),
     server_cmd(ScannerName, stop).
 
 getText(ScannerName) when is_atom(ScannerName) ->
@@ -52,6 +54,9 @@ getTextLine(ScannerName, Line) when is_atom(ScannerName), is_integer(Line) ->
 getTokens(ScannerName) when is_atom(ScannerName) ->
     server_cmd(ScannerName, get_tokens).
 
+getPackedTokens(ScannerName) when is_atom(ScannerName) ->
+    server_cmd(ScannerName, get_packed_tokens).
+
 getTokenWindow(ScannerName, Offset, Before, After) 
   when is_atom(ScannerName), is_integer(Offset), is_integer(Before), is_integer(After) ->
     server_cmd(ScannerName, get_token_window, {Offset, Before, After}).
@@ -88,6 +93,10 @@ replaceText(ScannerName, Offset, RemoveLength, NewText)
   when is_atom(ScannerName), is_integer(Offset), is_integer(RemoveLength), is_list(NewText) ->
     server_cmd(ScannerName, replace_text, {Offset, RemoveLength, NewText}).
 
+replaceTextPacked(ScannerName, Offset, RemoveLength, NewText)
+  when is_atom(ScannerName), is_integer(Offset), is_integer(RemoveLength), is_list(NewText) ->
+    server_cmd(ScannerName, replace_text_packed, {Offset, RemoveLength, NewText}).
+
 check_all(ScannerName, Text) when is_atom(ScannerName), is_list(Text) ->
     MatchTest = match_test(ScannerName, Text),
     ScanTest = scan_test(ScannerName),
@@ -216,6 +225,9 @@ do_cmd(get_token_at, Offset, Module) ->
 do_cmd(replace_text, {Offset, RemoveLength, NewText}, Module) ->
     ?D({replace_text, Offset, RemoveLength, length(NewText)}),
     erlide_scanner:replace_text(Module, Offset, RemoveLength, NewText);
+do_cmd(replace_text_packed, {Offset, RemoveLength, NewText}, Module) ->
+    ?D({replace_text_packed, Offset, RemoveLength, length(NewText)}),
+    erlide_scanner:replace_text_packed(Module, Offset, RemoveLength, NewText);
 do_cmd(get_text, [], Module) ->
     {erlide_scanner:lines_to_text(Module#module.lines), Module};
 do_cmd(get_text_line, Line, Module) ->
@@ -223,6 +235,8 @@ do_cmd(get_text_line, Line, Module) ->
     {L, Module};
 do_cmd(get_tokens, [], Module) ->
     {erlide_scanner:get_all_tokens(Module), Module};
+do_cmd(get_packed_tokens, [], Module) ->
+    {erlide_scanner:get_all_tokens_packed(Module), Module};
 do_cmd(dump_log, [], Module) ->
     {get(log), Module};
 do_cmd(get_token_window, {Offset, Before, After}, Module) ->
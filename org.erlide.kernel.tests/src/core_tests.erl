@@ -7,5 +7,6 @@ all_test_() ->
 	 erlide_util_tests,
 	 erlide_scanner_tests,
          erlide_parsing_tests,
+         erlide_search_server_tests,
          erlide_indent_tests
 	].
\ No newline at end of file
@@ -66,6 +66,31 @@ scanner_test_() ->
 				   test_replace("a() -> b.", 0, 1, "test"))
 	].
 
+scanner_packed_test_() ->
+	[?_assertEqual({<<?TOK_ATOM, 0:24, 0:24, 1:24,
+					  $(, 0:24, 1:24, 1:24,
+					  $), 0:24, 2:24, 1:24,
+					  ?TOK_OTHER, 0:24, 4:24, 2:24,
+					  ?TOK_ATOM, 0:24, 7:24, 1:24,
+					  ?TOK_DOT, 0:24, 8:24, 1:24>>,
+					{ok, 0, 9, 12,
+					 <<?TOK_ATOM, 0:24, 0:24, 4:24,
+					   $(, 0:24, 4:24, 1:24,
+					   $), 0:24, 5:24, 1:24,
+					   ?TOK_OTHER, 0:24, 7:24, 2:24,
+					   ?TOK_ATOM, 0:24, 10:24, 1:24,
+					   ?TOK_DOT, 0:24, 11:24, 1:24>>}},
+				   test_replace_packed("a() -> b.", 0, 1, "test")),
+	 ?_assertEqual({<<?TOK_ATOM, 0:24, 0:24, 1:24,
+					  ?TOK_DOT, 0:24, 1:24, 1:24,
+					  ?TOK_ATOM, 1:24, 3:24, 1:24,
+					  ?TOK_DOT, 1:24, 4:24, 1:24>>,
+					{ok, 3, 2, 3,
+					 <<?TOK_ATOM, 1:24, 3:24, 2:24,
+					   ?TOK_DOT, 1:24, 5:24, 1:24>>}},
+				   test_replace_packed("a.\nb.", 3, 0, "c"))
+	].
+
 %%
 %% Local Functions
 %%
@@ -83,3 +108,10 @@ test_replace(S, Pos, RemoveLength, NewText) ->
 	R2 = erlide_scanner_server:getTokens(testing),
 	erlide_scanner_server:destroy(testing),
 	{R1, R2}.
+
+test_replace_packed(S, Pos, RemoveLength, NewText) ->
+	erlide_scanner_server:initialScan(testing, "", S, "/tmp", false), 
+	R1 = erlide_scanner_server:getPackedTokens(testing),
+	R2 = erlide_scanner_server:replaceTextPacked(testing, Pos, RemoveLength, NewText),
+	erlide_scanner_server:destroy(testing),
+	{R1, R2}.
@@ -0,0 +1,59 @@
+%% Description: Tests for the search server index
+-module(erlide_search_server_tests).
+
+%%
+%% Include files
+%%
+
+-include_lib("eunit/include/eunit.hrl").
+-include("erlide_search_server.hrl").
+
+%%
+%% API Functions
+%%
+
+find_refs_test_() ->
+    {setup,
+     fun() ->
+             erlide_search_server:add_module_refs(
+               scan_a, [ref(#local_call{function=f, arity=0}, g, 10),
+                        ref(#function_def{function=f, arity=0}, f, 0)]),
+             erlide_search_server:add_module_refs(
+               scan_b, [ref(#external_call{module=a, function=f, arity=0}, h, 20),
+                        ref(#local_call{function=f, arity=0}, h, 30)])
+     end,
+     fun(_) ->
+             erlide_search_server:remove_module(scan_a),
+             erlide_search_server:remove_module(scan_b)
+     end,
+     [?_assertEqual({ok, [{"/p/a.erl", g, 0, "", false, 10, 1, false},
+                          {"/p/b.erl", h, 0, "", false, 20, 1, false}]},
+                    find(#external_call{module=a, function=f, arity=0})),
+      ?_assertEqual({ok, [{"/p/a.erl", f, 0, "", false, 0, 1, true}]},
+                    find(#function_def_mod{module=a, function=f, arity=0})),
+      ?_assertEqual({ok, []},
+                    find(#function_def_mod{module=b, function=f, arity=0})),
+      ?_assertEqual({ok, [{"/p/b.erl", h, 0, "", false, 30, 1, false}]},
+                    find(#external_call{module=b, function=f, arity=0}))]}.
+
+remove_module_test() ->
+    erlide_search_server:add_module_refs(
+      scan_c, [ref(#macro_ref{macro='X'}, f, 5)]),
+    ?assertEqual({ok, [{"/p/c.erl", f, 0, "", false, 5, 1, false}]},
+                 erlide_search_server:find_refs(#macro_ref{macro='X'},
+                                                [{scan_c, "/p/c.erl"}], "")),
+    erlide_search_server:remove_module(scan_c),
+    ?assertEqual(false,
+                 lists:member(scan_c, erlide_search_server:modules())).
+
+%%
+%% Local Functions
+%%
+
+ref(Data, F, Offset) ->
+    #ref{data=Data, offset=Offset, length=1, function=F, arity=0,
+         clause="", sub_clause=false}.
+
+find(Pattern) ->
+    erlide_search_server:find_refs(Pattern, [{scan_a, "/p/a.erl"},
+                                             {scan_b, "/p/b.erl"}], "").
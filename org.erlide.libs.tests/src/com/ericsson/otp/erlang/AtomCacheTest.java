@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package com.ericsson.otp.erlang;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AtomCacheTest {
+
+	private final AtomCache sender = new AtomCache();
+	private final AtomCache receiver = new AtomCache();
+
+	/**
+	 * Encode like a connection does: header, then the term.
+	 */
+	private byte[] encode(final OtpErlangObject term) {
+		final AtomCache.Refs refs = new AtomCache.Refs();
+		final OtpOutputStream payload = OtpOutputStream.acquire(term, refs);
+		final OtpOutputStream packet = new OtpOutputStream();
+		sender.writeHeader(packet, refs);
+		packet.write(payload.toByteArray());
+		OtpOutputStream.release(payload);
+		return packet.toByteArray();
+	}
+
+	private OtpErlangObject decode(final byte[] packet)
+			throws OtpErlangDecodeException {
+		final OtpInputStream in = new OtpInputStream(packet, 0);
+		assertEquals(OtpExternal.versionTag, in.read1());
+		assertEquals(AtomCache.distHeaderTag, in.read1());
+		in.setAtomRefs(receiver.readHeader(in));
+		return in.read_any();
+	}
+
+	@Test
+	public void headerLayout() {
+		final byte[] packet = encode(new OtpErlangAtom("ab"));
+		final int slot = AtomCache.slot("ab");
+		final byte[] expected = { (byte) 131, 68, 1,
+				(byte) (8 | slot >> 8 & 7), (byte) (slot & 0xff), 2, 'a', 'b',
+				(byte) OtpExternal.atomCacheRefTag, 0 };
+		assertArrayEquals(expected, packet);
+	}
+
+	@Test
+	public void roundTrip() throws OtpErlangDecodeException {
+		final OtpErlangObject term = new OtpErlangTuple(new OtpErlangObject[] {
+				new OtpErlangAtom("rex"), new OtpErlangAtom("ok"),
+				new OtpErlangList(new OtpErlangObject[] {
+						new OtpErlangAtom("rex"), new OtpErlangString("s"),
+						new OtpErlangPid("node@host", 1, 2, 3) }) });
+		final byte[] first = encode(term);
+		assertEquals(term, decode(first));
+		// now the atoms are in the caches, only their indexes are sent
+		final byte[] second = encode(term);
+		assertTrue(second.length < first.length);
+		assertEquals(term, decode(second));
+	}
+
+	@Test
+	public void manyAtoms() throws OtpErlangDecodeException {
+		// more atoms than fit in a header, some of them in the same slot
+		final OtpErlangObject[] atoms = new OtpErlangObject[3000];
+		for (int i = 0; i < atoms.length; i++) {
+			atoms[i] = new OtpErlangAtom("atom" + i);
+		}
+		final OtpErlangList term = new OtpErlangList(atoms);
+		assertEquals(term, decode(encode(term)));
+		assertEquals(term, decode(encode(term)));
+	}
+
+	@Test
+	public void longAtoms() throws OtpErlangDecodeException {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 255; i++) {
+			sb.append('x');
+		}
+		final OtpErlangObject term = new OtpErlangTuple(new OtpErlangObject[] {
+				new OtpErlangAtom(sb.toString()), new OtpErlangAtom("y") });
+		assertEquals(term, decode(encode(term)));
+	}
+
+	@Test
+	public void decodedAtomsAreShared() throws OtpErlangDecodeException {
+		final byte[] bytes = new OtpOutputStream(new OtpErlangAtom(
+				"shared_atom")).toByteArray();
+		final OtpErlangObject a1 = new OtpInputStream(bytes, 0).read_any();
+		final OtpErlangObject a2 = new OtpInputStream(bytes, 0).read_any();
+		assertSame(a1, a2);
+	}
+}
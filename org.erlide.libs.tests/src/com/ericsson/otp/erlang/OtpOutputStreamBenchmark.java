@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package com.ericsson.otp.erlang;
+
+/**
+ * Measures the time to encode terms of about 1 KB, 100 KB and 10 MB, with a
+ * new stream each time and with a pooled one.
+ */
+public class OtpOutputStreamBenchmark {
+
+	private static final int[] SIZES = { 1024, 100 * 1024, 10 * 1024 * 1024 };
+
+	public static void main(final String[] args) {
+		for (final int size : SIZES) {
+			final OtpErlangObject term = makeTerm(size);
+			final int n = Math.max(5, 50 * 1024 * 1024 / size);
+			// warm up
+			run(term, n, false);
+			run(term, n, true);
+			final double fresh = run(term, n, false);
+			final double pooled = run(term, n, true);
+			System.out.println(String.format(
+					"%9d bytes: new %10.1f us/term, pooled %10.1f us/term",
+					new OtpOutputStream(term).size(), fresh, pooled));
+		}
+	}
+
+	/**
+	 * A list of small tuples, roughly like a parse tree.
+	 */
+	private static OtpErlangObject makeTerm(final int size) {
+		final int n = size / 32;
+		final OtpErlangObject[] elems = new OtpErlangObject[n];
+		for (int i = 0; i < n; i++) {
+			elems[i] = new OtpErlangTuple(new OtpErlangObject[] {
+					new OtpErlangAtom("attr"), new OtpErlangLong(i),
+					new OtpErlangString("some text") });
+		}
+		return new OtpErlangList(elems);
+	}
+
+	private static double run(final OtpErlangObject term, final int n,
+			final boolean pooled) {
+		final long start = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			if (pooled) {
+				final OtpOutputStream s = OtpOutputStream.acquire(term);
+				OtpOutputStream.release(s);
+			} else {
+				new OtpOutputStream(term);
+			}
+		}
+		return (System.nanoTime() - start) / 1000.0 / n;
+	}
+}
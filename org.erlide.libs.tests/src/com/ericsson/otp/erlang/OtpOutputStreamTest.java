@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package com.ericsson.otp.erlang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class OtpOutputStreamTest {
+
+	@Test
+	public void growsGeometrically() {
+		final OtpOutputStream s = new OtpOutputStream(16);
+		final byte[] chunk = new byte[10];
+		int grows = 0;
+		int len = s.length();
+		for (int i = 0; i < 10000; i++) {
+			s.write(chunk);
+			if (s.length() != len) {
+				grows++;
+				len = s.length();
+			}
+		}
+		assertEquals(100000, s.size());
+		assertTrue("too many grows: " + grows, grows < 20);
+	}
+
+	@Test
+	public void encodesLikeBefore() throws OtpErlangDecodeException {
+		final OtpErlangObject[] elems = new OtpErlangObject[5000];
+		for (int i = 0; i < elems.length; i++) {
+			elems[i] = new OtpErlangTuple(new OtpErlangObject[] {
+					new OtpErlangAtom("a" + i), new OtpErlangString("s" + i),
+					new OtpErlangLong(i), new OtpErlangBinary(new byte[i % 7]) });
+		}
+		final OtpErlangList term = new OtpErlangList(elems);
+		final OtpOutputStream s = new OtpOutputStream(term);
+		assertEquals(term, s.getOtpInputStream(0).read_any());
+		// the estimate shouldn't be too far off
+		assertTrue(s.length() < 2 * s.size());
+	}
+
+	@Test
+	public void pooledStreamsAreReused() {
+		final OtpOutputStream s1 = OtpOutputStream.acquire(10);
+		s1.write_atom("hello");
+		OtpOutputStream.release(s1);
+		final OtpOutputStream s2 = OtpOutputStream.acquire(10);
+		assertSame(s1, s2);
+		assertEquals(0, s2.size());
+		final OtpOutputStream s3 = OtpOutputStream.acquire(10);
+		assertNotSame(s2, s3);
+		OtpOutputStream.release(s2);
+		OtpOutputStream.release(s3);
+	}
+
+	@Test
+	public void largeStreamsAreNotPooled() {
+		final OtpOutputStream big = OtpOutputStream.acquire(1024 * 1024);
+		OtpOutputStream.release(big);
+		final OtpOutputStream s1 = OtpOutputStream.acquire(10);
+		final OtpOutputStream s2 = OtpOutputStream.acquire(10);
+		assertNotSame(big, s1);
+		assertNotSame(big, s2);
+		OtpOutputStream.release(s1);
+		OtpOutputStream.release(s2);
+	}
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package com.ericsson.otp.erlang;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PacketReaderTest {
+
+	/**
+	 * Returns at most 1000 bytes per read, like a socket would.
+	 */
+	private static class SlowStream extends ByteArrayInputStream {
+		SlowStream(final byte[] buf) {
+			super(buf);
+		}
+
+		@Override
+		public synchronized int read(final byte[] b, final int off,
+				final int len) {
+			return super.read(b, off, Math.min(len, 1000));
+		}
+	}
+
+	@Test
+	public void packetsAreIntactAfterLaterReads() throws Exception {
+		final OtpOutputStream out = new OtpOutputStream();
+		final List<OtpErlangObject> terms = new ArrayList<OtpErlangObject>();
+		for (int i = 0; i < 2000; i++) {
+			// small ones, some big ones and ticks
+			final OtpErlangObject t = i % 500 == 7 ? new OtpErlangBinary(
+					new byte[PacketReader.chunkSize]) : new OtpErlangTuple(
+					new OtpErlangObject[] { new OtpErlangLong(i),
+							new OtpErlangString("message " + i) });
+			final OtpOutputStream p = new OtpOutputStream(t);
+			out.write4BE(p.size());
+			out.write(p.toByteArray());
+			if (i % 100 == 0) {
+				out.write4BE(0);
+			}
+			terms.add(t);
+		}
+		final PacketReader reader = new PacketReader(new SlowStream(out
+				.toByteArray()));
+		final List<OtpInputStream> packets = new ArrayList<OtpInputStream>();
+		int ticks = 0;
+		while (packets.size() < terms.size()) {
+			final int len = reader.readPacket();
+			if (len == 0) {
+				ticks++;
+				continue;
+			}
+			packets.add(new OtpInputStream(reader.getBuffer(), reader
+					.getOffset(), len, 0));
+		}
+		assertEquals(20, ticks);
+		// decode only now, all buffers must still hold their data
+		for (int i = 0; i < terms.size(); i++) {
+			assertEquals(terms.get(i), packets.get(i).read_any());
+		}
+	}
+
+	@Test
+	public void smallPacketsHaveTheirOwnBuffer() throws Exception {
+		final OtpOutputStream out = new OtpOutputStream();
+		final int[] sizes = { 10, PacketReader.copySize - 1,
+				PacketReader.copySize, PacketReader.chunkSize / 4 };
+		for (final int size : sizes) {
+			out.write4BE(size);
+			out.write(new byte[size]);
+		}
+		final PacketReader reader = new PacketReader(new SlowStream(out
+				.toByteArray()));
+		for (final int size : sizes) {
+			assertEquals(size, reader.readPacket());
+			final boolean copied = size < PacketReader.copySize;
+			assertEquals(copied, reader.getBuffer().length == size);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void truncatedPacket() throws IOException {
+		final OtpOutputStream out = new OtpOutputStream();
+		out.write4BE(100);
+		out.write(new byte[10]);
+		new PacketReader(new ByteArrayInputStream(out.toByteArray()))
+				.readPacket();
+	}
+}
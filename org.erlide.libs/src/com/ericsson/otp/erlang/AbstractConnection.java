@@ -105,8 +105,15 @@ public abstract class AbstractConnection extends Thread {
 
 	protected static Random random = null;
 
+	// read incoming packets in large chunks, see PacketReader
+	protected static boolean bufferedReceive = !"false".equals(System
+			.getProperty("OtpConnection.bufferedReceive"));
+
 	private int flags = 0;
 
+	// set if both nodes use the distribution header atom cache
+	private AtomCache atomCache;
+
 	static {
 		// trace this connection?
 		final String trace = System.getProperties().getProperty(
@@ -232,34 +239,37 @@ public abstract class AbstractConnection extends Thread {
 	 */
 	protected void sendBuf(final OtpErlangPid from, final String dest,
 			final OtpOutputStream payload) throws IOException {
+		sendBuf(from, dest, payload, newAtomRefs());
+	}
+
+	/**
+	 * Like {@link #sendBuf(OtpErlangPid, String, OtpOutputStream)}, with the
+	 * atoms referenced by the payload.
+	 */
+	void sendBuf(final OtpErlangPid from, final String dest,
+			final OtpOutputStream payload, final AtomCache.Refs refs)
+			throws IOException {
 		if (!connected) {
 			throw new IOException("Not connected");
 		}
-		final OtpOutputStream header = new OtpOutputStream(headerLen);
-
-		// preamble: 4 byte length + "passthrough" tag + version
-		header.write4BE(0); // reserve space for length
-		header.write1(passThrough);
-		header.write1(version);
-
-		// header info
-		header.write_tuple_head(4);
-		header.write_long(regSendTag);
-		header.write_any(from);
-		if (sendCookie) {
-			header.write_atom(self.cookie());
-		} else {
-			header.write_atom("");
-		}
-		header.write_atom(dest);
-
-		// version for payload
-		header.write1(version);
-
-		// fix up length in preamble
-		header.poke4BE(0, header.size() + payload.size() - 4);
+		final OtpOutputStream header = OtpOutputStream.acquire(headerLen);
+		header.setAtomRefs(refs);
+		try {
+			// header info
+			header.write_tuple_head(4);
+			header.write_long(regSendTag);
+			header.write_any(from);
+			if (sendCookie) {
+				header.write_atom(self.cookie());
+			} else {
+				header.write_atom("");
+			}
+			header.write_atom(dest);
 
-		do_send(header, payload);
+			sendPacket(header, payload, refs);
+		} finally {
+			OtpOutputStream.release(header);
+		}
 	}
 
 	/**
@@ -276,33 +286,85 @@ public abstract class AbstractConnection extends Thread {
 	 */
 	protected void sendBuf(final OtpErlangPid from, final OtpErlangPid dest,
 			final OtpOutputStream payload) throws IOException {
+		sendBuf(from, dest, payload, newAtomRefs());
+	}
+
+	/**
+	 * Like {@link #sendBuf(OtpErlangPid, OtpErlangPid, OtpOutputStream)},
+	 * with the atoms referenced by the payload.
+	 */
+	void sendBuf(final OtpErlangPid from, final OtpErlangPid dest,
+			final OtpOutputStream payload, final AtomCache.Refs refs)
+			throws IOException {
 		if (!connected) {
 			throw new IOException("Not connected");
 		}
-		final OtpOutputStream header = new OtpOutputStream(headerLen);
-
-		// preamble: 4 byte length + "passthrough" tag + version
-		header.write4BE(0); // reserve space for length
-		header.write1(passThrough);
-		header.write1(version);
-
-		// header info
-		header.write_tuple_head(3);
-		header.write_long(sendTag);
-		if (sendCookie) {
-			header.write_atom(self.cookie());
-		} else {
-			header.write_atom("");
+		final OtpOutputStream header = OtpOutputStream.acquire(headerLen);
+		header.setAtomRefs(refs);
+		try {
+			// header info
+			header.write_tuple_head(3);
+			header.write_long(sendTag);
+			if (sendCookie) {
+				header.write_atom(self.cookie());
+			} else {
+				header.write_atom("");
+			}
+			header.write_any(dest);
+
+			sendPacket(header, payload, refs);
+		} finally {
+			OtpOutputStream.release(header);
 		}
-		header.write_any(dest);
+	}
 
-		// version for payload
-		header.write1(version);
+	/**
+	 * @return the list to collect the atoms of a new message in, or null if
+	 *         the connection doesn't use the atom cache
+	 */
+	AtomCache.Refs newAtomRefs() {
+		return atomCache != null ? new AtomCache.Refs() : null;
+	}
 
-		// fix up length in preamble
-		header.poke4BE(0, header.size() + payload.size() - 4);
+	/**
+	 * Send a control message, and the message itself if payload isn't null.
+	 * If the connection uses the atom cache, the packet starts with a
+	 * distribution header for refs, otherwise with the "passthrough" tag.
+	 */
+	private void sendPacket(final OtpOutputStream control,
+			final OtpOutputStream payload, final AtomCache.Refs refs)
+			throws IOException {
+		final int payloadSize = payload == null ? 0 : payload.size();
+		final OtpOutputStream packet = OtpOutputStream.acquire(control.size()
+				+ headerLen);
+		try {
+			// the cache has to be updated in the same order as the
+			// packets are sent
+			synchronized (this) {
+				packet.write4BE(0); // reserve space for length
+				if (refs != null) {
+					atomCache.writeHeader(packet, refs);
+				} else {
+					packet.write1(passThrough);
+					packet.write1(version);
+				}
+				control.writeTo(packet);
+				if (payload != null && refs == null) {
+					// version for payload
+					packet.write1(version);
+				}
+				// fix up length in preamble
+				packet.poke4BE(0, packet.size() + payloadSize - 4);
 
-		do_send(header, payload);
+				if (payload != null) {
+					do_send(packet, payload);
+				} else {
+					do_send(packet);
+				}
+			}
+		} finally {
+			OtpOutputStream.release(packet);
+		}
 	}
 
 	/*
@@ -385,23 +447,20 @@ public abstract class AbstractConnection extends Thread {
 		if (!connected) {
 			throw new IOException("Not connected");
 		}
-		final OtpOutputStream header = new OtpOutputStream(headerLen);
-
-		// preamble: 4 byte length + "passthrough" tag
-		header.write4BE(0); // reserve space for length
-		header.write1(passThrough);
-		header.write1(version);
-
-		// header
-		header.write_tuple_head(3);
-		header.write_long(linkTag);
-		header.write_any(from);
-		header.write_any(dest);
-
-		// fix up length in preamble
-		header.poke4BE(0, header.size() - 4);
+		final AtomCache.Refs refs = newAtomRefs();
+		final OtpOutputStream header = OtpOutputStream.acquire(headerLen);
+		header.setAtomRefs(refs);
+		try {
+			// header
+			header.write_tuple_head(3);
+			header.write_long(linkTag);
+			header.write_any(from);
+			header.write_any(dest);
 
-		do_send(header);
+			sendPacket(header, null, refs);
+		} finally {
+			OtpOutputStream.release(header);
+		}
 	}
 
 	/**
@@ -421,23 +480,20 @@ public abstract class AbstractConnection extends Thread {
 		if (!connected) {
 			throw new IOException("Not connected");
 		}
-		final OtpOutputStream header = new OtpOutputStream(headerLen);
-
-		// preamble: 4 byte length + "passthrough" tag
-		header.write4BE(0); // reserve space for length
-		header.write1(passThrough);
-		header.write1(version);
-
-		// header
-		header.write_tuple_head(3);
-		header.write_long(unlinkTag);
-		header.write_any(from);
-		header.write_any(dest);
-
-		// fix up length in preamble
-		header.poke4BE(0, header.size() - 4);
+		final AtomCache.Refs refs = newAtomRefs();
+		final OtpOutputStream header = OtpOutputStream.acquire(headerLen);
+		header.setAtomRefs(refs);
+		try {
+			// header
+			header.write_tuple_head(3);
+			header.write_long(unlinkTag);
+			header.write_any(from);
+			header.write_any(dest);
 
-		do_send(header);
+			sendPacket(header, null, refs);
+		} finally {
+			OtpOutputStream.release(header);
+		}
 	}
 
 	/* used internally when "processes" terminate */
@@ -469,24 +525,21 @@ public abstract class AbstractConnection extends Thread {
 		if (!connected) {
 			throw new IOException("Not connected");
 		}
-		final OtpOutputStream header = new OtpOutputStream(headerLen);
-
-		// preamble: 4 byte length + "passthrough" tag
-		header.write4BE(0); // reserve space for length
-		header.write1(passThrough);
-		header.write1(version);
-
-		// header
-		header.write_tuple_head(4);
-		header.write_long(tag);
-		header.write_any(from);
-		header.write_any(dest);
-		header.write_any(reason);
-
-		// fix up length in preamble
-		header.poke4BE(0, header.size() - 4);
+		final AtomCache.Refs refs = newAtomRefs();
+		final OtpOutputStream header = OtpOutputStream.acquire(headerLen);
+		header.setAtomRefs(refs);
+		try {
+			// header
+			header.write_tuple_head(4);
+			header.write_long(tag);
+			header.write_any(from);
+			header.write_any(dest);
+			header.write_any(reason);
 
-		do_send(header);
+			sendPacket(header, null, refs);
+		} finally {
+			OtpOutputStream.release(header);
+		}
 	}
 
 	@SuppressWarnings("unused")
@@ -504,6 +557,11 @@ public abstract class AbstractConnection extends Thread {
 		final byte[] tock = { 0, 0, 0, 0 };
 
 		try {
+			final PacketReader reader;
+			synchronized (this) {
+				reader = bufferedReceive && socket != null ? new PacketReader(
+						socket.getInputStream()) : null;
+			}
 			receive_loop: while (!done) {
 				// don't return until we get a real message
 				// or a failure of some kind (e.g. EXIT)
@@ -511,9 +569,13 @@ public abstract class AbstractConnection extends Thread {
 				tick_loop: do {
 					// read 4 bytes - get length of incoming packet
 					// socket.getInputStream().read(lbuf);
-					readSock(socket, lbuf);
-					ibuf = new OtpInputStream(lbuf, flags);
-					len = ibuf.read4BE();
+					if (reader != null) {
+						len = reader.readPacket();
+					} else {
+						readSock(socket, lbuf);
+						ibuf = new OtpInputStream(lbuf, flags);
+						len = ibuf.read4BE();
+					}
 
 					// received tick? send tock!
 					if (len == 0) {
@@ -525,12 +587,25 @@ public abstract class AbstractConnection extends Thread {
 				} while (len == 0); // tick_loop
 
 				// got a real message (maybe) - read len bytes
-				final byte[] tmpbuf = new byte[len];
-				// i = socket.getInputStream().read(tmpbuf);
-				readSock(socket, tmpbuf);
-				ibuf = new OtpInputStream(tmpbuf, flags);
+				if (reader != null) {
+					// a slice of the reader's buffer, that is not reused
+					ibuf = new OtpInputStream(reader.getBuffer(), reader
+							.getOffset(), len, flags);
+				} else {
+					final byte[] tmpbuf = new byte[len];
+					// i = socket.getInputStream().read(tmpbuf);
+					readSock(socket, tmpbuf);
+					ibuf = new OtpInputStream(tmpbuf, flags);
+				}
 
-				if (ibuf.read1() != passThrough) {
+				final int first = ibuf.read1();
+				if (atomCache != null && first == OtpExternal.versionTag) {
+					if (ibuf.read1() != AtomCache.distHeaderTag) {
+						break receive_loop;
+					}
+					// the atoms used by the header and the payload
+					ibuf.setAtomRefs(atomCache.readHeader(ibuf));
+				} else if (first != passThrough) {
 					break receive_loop;
 				}
 
@@ -953,6 +1028,7 @@ public abstract class AbstractConnection extends Thread {
 			final int her_challenge = recvChallengeReply(our_challenge);
 			final byte[] our_digest = genDigest(her_challenge, self.cookie());
 			sendChallengeAck(our_digest);
+			initAtomCache();
 			connected = true;
 			cookieOk = true;
 			sendCookie = false;
@@ -989,6 +1065,7 @@ public abstract class AbstractConnection extends Thread {
 			final int our_challenge = genChallenge();
 			sendChallengeReply(our_challenge, our_digest);
 			recvChallengeAck(our_challenge);
+			initAtomCache();
 			cookieOk = true;
 			sendCookie = false;
 		} catch (final OtpAuthException ae) {
@@ -1000,6 +1077,12 @@ public abstract class AbstractConnection extends Thread {
 		}
 	}
 
+	private void initAtomCache() {
+		if ((self.flags & peer.flags & AbstractNode.dFlagDistHdrAtomCache) != 0) {
+			atomCache = new AtomCache();
+		}
+	}
+
 	// This is nooo good as a challenge,
 	// XXX fix me.
 	static protected int genChallenge() {
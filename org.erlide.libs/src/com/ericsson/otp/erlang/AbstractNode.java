@@ -90,6 +90,12 @@ public class AbstractNode {
 	static final int dFlagExportPtrTag = 0x200; // NOT SUPPORTED
 	static final int dFlagBitBinaries = 0x400;
 	static final int dFlagNewFloats = 0x800;
+	static final int dFlagDistHdrAtomCache = 0x2000;
+
+	// use the distribution header atom cache only when enabled with
+	// -DOtpConnection.atomCache=true, it is not verified against erts yet
+	static final boolean useAtomCache = "true".equals(System
+			.getProperty("OtpConnection.atomCache"));
 
 	int ntype = NTYPE_R6;
 	int proto = 0; // tcp/ip
@@ -98,7 +104,7 @@ public class AbstractNode {
 	int creation = 0;
 	int flags = dFlagExtendedReferences | dFlagExtendedPidsPorts
 			| dFlagBitBinaries | dFlagNewFloats | dFlagFunTags
-			| dflagNewFunTags;
+			| dflagNewFunTags | (useAtomCache ? dFlagDistHdrAtomCache : 0);
 
 	/* initialize hostname and default cookie */
 	static {
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package com.ericsson.otp.erlang;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The distribution header atom cache of a connection, used when both nodes
+ * have the DFLAG_DIST_HDR_ATOM_CACHE flag.
+ * <p>
+ * Each message starts with a header listing the atoms it uses. An atom that
+ * is already in the cache is sent as a two byte index, and the terms refer to
+ * the header entries with ATOM_CACHE_REF instead of repeating the atom text.
+ * There is one cache for each direction: the sent atoms, updated while
+ * writing headers, and the received ones, updated while reading them.
+ * Writing a header and sending the packet must be done atomically, so that
+ * the peer sees the cache updates in the same order.
+ */
+final class AtomCache {
+
+	static final int size = 2048;
+	static final int maxRefs = 255;
+
+	static final int distHeaderTag = 68;
+
+	private final String[] sent = new String[size];
+	private final AtomTable.Entry[] received = new AtomTable.Entry[size];
+
+	/**
+	 * The atoms used by one message, in the order of their ATOM_CACHE_REF
+	 * indexes.
+	 */
+	static final class Refs {
+		final List<String> atoms = new ArrayList<String>();
+		private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+
+		/**
+		 * @return the index to use in ATOM_CACHE_REF, or -1 if the atom
+		 *         should be written out because the header is full
+		 */
+		int indexOf(final String atom) {
+			final Integer i = indexes.get(atom);
+			if (i != null) {
+				return i.intValue();
+			}
+			if (atoms.size() >= maxRefs) {
+				return -1;
+			}
+			final int n = atoms.size();
+			atoms.add(atom);
+			indexes.put(atom, Integer.valueOf(n));
+			return n;
+		}
+
+		int size() {
+			return atoms.size();
+		}
+	}
+
+	static int slot(final String atom) {
+		final int h = atom.hashCode();
+		return (h ^ h >>> 16) & size - 1;
+	}
+
+	/**
+	 * Write the distribution header (including the version and header tags)
+	 * for a message using the given atoms, and record the new atoms in the
+	 * sent cache.
+	 */
+	void writeHeader(final OtpOutputStream out, final Refs refs) {
+		out.write1(OtpExternal.versionTag);
+		out.write1(distHeaderTag);
+		final int n = refs.size();
+		out.write1(n);
+		if (n == 0) {
+			return;
+		}
+		final int[] slots = new int[n];
+		final byte[][] newAtoms = new byte[n][];
+		boolean longAtoms = false;
+		for (int i = 0; i < n; i++) {
+			final String atom = refs.atoms.get(i);
+			final int slot = slot(atom);
+			slots[i] = slot;
+			if (!atom.equals(sent[slot])) {
+				sent[slot] = atom;
+				newAtoms[i] = atom.getBytes();
+				longAtoms |= newAtoms[i].length > 255;
+			}
+		}
+		// a half byte for each ref, and one for the header itself
+		final byte[] flags = new byte[n / 2 + 1];
+		for (int i = 0; i < n; i++) {
+			final int f = (newAtoms[i] != null ? 8 : 0) | slots[i] >> 8 & 7;
+			flags[i / 2] |= i % 2 == 0 ? f : f << 4;
+		}
+		if (longAtoms) {
+			flags[n / 2] |= n % 2 == 0 ? 1 : 1 << 4;
+		}
+		out.writeN(flags);
+		for (int i = 0; i < n; i++) {
+			out.write1(slots[i] & 0xff);
+			if (newAtoms[i] != null) {
+				if (longAtoms) {
+					out.write2BE(newAtoms[i].length);
+				} else {
+					out.write1(newAtoms[i].length);
+				}
+				out.writeN(newAtoms[i]);
+			}
+		}
+	}
+
+	/**
+	 * Read a distribution header, after the version and header tags, and
+	 * record the new atoms in the received cache.
+	 *
+	 * @return the atoms that the message refers to with ATOM_CACHE_REF
+	 */
+	AtomTable.Entry[] readHeader(final OtpInputStream in)
+			throws OtpErlangDecodeException {
+		final int n = in.read1();
+		final AtomTable.Entry[] result = new AtomTable.Entry[n];
+		if (n == 0) {
+			return result;
+		}
+		final byte[] flags = new byte[n / 2 + 1];
+		for (int i = 0; i < flags.length; i++) {
+			flags[i] = (byte) in.read1();
+		}
+		final boolean longAtoms = (flags[n / 2] >> n % 2 * 4 & 1) != 0;
+		for (int i = 0; i < n; i++) {
+			final int f = flags[i / 2] >> i % 2 * 4 & 0xf;
+			final int slot = (f & 7) << 8 | in.read1();
+			if ((f & 8) != 0) {
+				final int len = longAtoms ? in.read2BE() : in.read1();
+				received[slot] = in.read_atom_text(len);
+			} else if (received[slot] == null) {
+				throw new OtpErlangDecodeException(
+						"reference to empty atom cache entry " + slot);
+			}
+			result[i] = received[slot];
+		}
+		return result;
+	}
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package com.ericsson.otp.erlang;
+
+/**
+ * A bounded table of decoded atoms, so that the same atom received many times
+ * is represented by a shared String and {@link OtpErlangAtom}, instead of new
+ * ones each time.
+ * <p>
+ * The table has a fixed number of slots, indexed by a hash of the encoded
+ * atom; a new atom replaces the one in its slot. Entries are immutable, so
+ * the table can be read and updated without locking: a lost update only
+ * means that an atom is decoded again later.
+ */
+final class AtomTable {
+
+	static final int size = 4096;
+
+	static final class Entry {
+		final byte[] bytes;
+		final int hash;
+		final String atom;
+		final OtpErlangAtom term;
+
+		Entry(final byte[] bytes, final int hash) {
+			this.bytes = bytes;
+			this.hash = hash;
+			String s = OtpErlangString.newString(bytes);
+			if (s.length() > OtpExternal.maxAtomLength) {
+				s = s.substring(0, OtpExternal.maxAtomLength);
+			}
+			atom = s;
+			term = new OtpErlangAtom(s);
+		}
+	}
+
+	private static final Entry[] entries = new Entry[size];
+
+	private AtomTable() {
+	}
+
+	/**
+	 * Get the entry for the atom whose text is in buf[off..off+len).
+	 */
+	static Entry get(final byte[] buf, final int off, final int len) {
+		int hash = len;
+		for (int i = off; i < off + len; i++) {
+			hash = 31 * hash + buf[i];
+		}
+		final int slot = (hash ^ hash >>> 16) & size - 1;
+		final Entry e = entries[slot];
+		if (e != null && e.hash == hash && sameBytes(e.bytes, buf, off, len)) {
+			return e;
+		}
+		final byte[] bytes = new byte[len];
+		System.arraycopy(buf, off, bytes, 0, len);
+		final Entry ne = new Entry(bytes, hash);
+		entries[slot] = ne;
+		return ne;
+	}
+
+	private static boolean sameBytes(final byte[] a, final byte[] buf,
+			final int off, final int len) {
+		if (a.length != len) {
+			return false;
+		}
+		for (int i = 0; i < len; i++) {
+			if (a[i] != buf[off + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
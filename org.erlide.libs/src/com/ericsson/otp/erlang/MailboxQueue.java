@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package com.ericsson.otp.erlang;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An unbounded FIFO queue for mailboxes, with the same operations as
+ * {@link GenericQueue}. Many threads can put objects without locking; the
+ * objects are stored in linked segments of slots, so that most puts don't
+ * allocate.
+ * <p>
+ * There is normally only one thread receiving from a mailbox; the receiving
+ * side is guarded by a lock only so that it stays correct if there are more.
+ * A receiver that has to wait parks until a producer wakes it up, and it
+ * keeps the lock while it waits. With several receivers, one waiting in
+ * {@link #get(long)} blocks the others for up to its whole timeout. This is
+ * intended: mailboxes have a single receiver, and only one waiting thread
+ * is woken up by {@link #put(Object)}.
+ */
+public final class MailboxQueue {
+
+	private static final int segmentSize = 32;
+
+	private static final class Segment {
+		final AtomicReferenceArray<Object> slots = new AtomicReferenceArray<Object>(
+				segmentSize);
+		// the number of slots taken by producers, may exceed segmentSize
+		final AtomicInteger claimed = new AtomicInteger();
+		volatile Segment next;
+	}
+
+	private static final AtomicReferenceFieldUpdater<Segment, Segment> nextUpdater = AtomicReferenceFieldUpdater
+			.newUpdater(Segment.class, Segment.class, "next");
+	private static final AtomicReferenceFieldUpdater<MailboxQueue, Segment> tailUpdater = AtomicReferenceFieldUpdater
+			.newUpdater(MailboxQueue.class, Segment.class, "tail");
+
+	// producers
+	private volatile Segment tail;
+	private final AtomicInteger count = new AtomicInteger();
+	private volatile Thread waiter;
+
+	// consumers, guarded by takeLock
+	private final ReentrantLock takeLock = new ReentrantLock();
+	private Segment head;
+	private int headIndex;
+
+	/** Create an empty queue */
+	public MailboxQueue() {
+		head = tail = new Segment();
+		headIndex = 0;
+	}
+
+	/** Clear a queue */
+	public void flush() {
+		takeLock.lock();
+		try {
+			while (poll() != null) {
+				// drop it
+			}
+		} finally {
+			takeLock.unlock();
+		}
+	}
+
+	public void close() {
+		// nothing to release
+	}
+
+	/**
+	 * Add an object to the tail of the queue.
+	 *
+	 * @param o
+	 *            Object to insert in the queue
+	 */
+	public void put(final Object o) {
+		if (o == null) {
+			throw new NullPointerException();
+		}
+		while (true) {
+			final Segment s = tail;
+			final int i = s.claimed.getAndIncrement();
+			if (i < segmentSize) {
+				s.slots.set(i, o);
+				break;
+			}
+			// full, move on to the next segment, creating it if needed
+			Segment n = s.next;
+			if (n == null) {
+				final Segment ns = new Segment();
+				n = nextUpdater.compareAndSet(s, null, ns) ? ns : s.next;
+			}
+			tailUpdater.compareAndSet(this, s, n);
+		}
+		count.incrementAndGet();
+		final Thread w = waiter;
+		if (w != null) {
+			LockSupport.unpark(w);
+		}
+	}
+
+	/**
+	 * Retrieve an object from the head of the queue, or block until one
+	 * arrives.
+	 *
+	 * @return The object at the head of the queue.
+	 */
+	public Object get() {
+		takeLock.lock();
+		try {
+			Object o;
+			while ((o = poll()) == null) {
+				waiter = Thread.currentThread();
+				if ((o = poll()) != null) {
+					break;
+				}
+				LockSupport.park();
+				// interrupts are ignored, like in GenericQueue
+				Thread.interrupted();
+			}
+			return o;
+		} finally {
+			waiter = null;
+			takeLock.unlock();
+		}
+	}
+
+	/**
+	 * Retrieve an object from the head of the queue, blocking until one arrives
+	 * or until timeout occurs. Other receivers are blocked meanwhile, see
+	 * {@link MailboxQueue}.
+	 *
+	 * @param timeout
+	 *            Maximum time to block on queue, in ms. Use 0 to poll the
+	 *            queue.
+	 *
+	 * @exception InterruptedException
+	 *                if the operation times out.
+	 *
+	 * @return The object at the head of the queue.
+	 */
+	public Object get(final long timeout) throws InterruptedException {
+		final long stopTime = System.nanoTime()
+				+ TimeUnit.MILLISECONDS.toNanos(timeout);
+		if (!takeLock.tryLock(timeout, TimeUnit.MILLISECONDS)) {
+			throw new InterruptedException("Get operation timed out");
+		}
+		try {
+			Object o;
+			while ((o = poll()) == null) {
+				final long left = stopTime - System.nanoTime();
+				if (left <= 0) {
+					throw new InterruptedException("Get operation timed out");
+				}
+				waiter = Thread.currentThread();
+				if ((o = poll()) != null) {
+					break;
+				}
+				LockSupport.parkNanos(left);
+				Thread.interrupted();
+			}
+			return o;
+		} finally {
+			waiter = null;
+			takeLock.unlock();
+		}
+	}
+
+	/**
+	 * Retrieve an object from the head of the queue without blocking.
+	 *
+	 * @return the object, or null if the queue is empty.
+	 */
+	public Object tryGet() {
+		takeLock.lock();
+		try {
+			return poll();
+		} finally {
+			takeLock.unlock();
+		}
+	}
+
+	/**
+	 * @return the object at the head of the queue, without removing it, or
+	 *         null if the queue is empty.
+	 */
+	public Object peek() {
+		takeLock.lock();
+		try {
+			final Segment s = headSegment();
+			return s == null ? null : s.slots.get(headIndex);
+		} finally {
+			takeLock.unlock();
+		}
+	}
+
+	public int getCount() {
+		return count.get();
+	}
+
+	// with takeLock held
+	private Object poll() {
+		final Segment s = headSegment();
+		if (s == null) {
+			return null;
+		}
+		// null if the slot is empty, or taken by a producer that didn't
+		// store its object yet; the producer wakes us up when it does
+		final Object o = s.slots.get(headIndex);
+		if (o == null) {
+			return null;
+		}
+		s.slots.set(headIndex, null);
+		headIndex++;
+		count.decrementAndGet();
+		return o;
+	}
+
+	// with takeLock held; null if the next segment doesn't exist yet
+	private Segment headSegment() {
+		if (headIndex == segmentSize) {
+			final Segment n = head.next;
+			if (n == null) {
+				return null;
+			}
+			head = n;
+			headIndex = 0;
+		}
+		return head;
+	}
+}
@@ -357,7 +357,13 @@ public class OtpConnection extends AbstractConnection {
 	public void send(final OtpErlangPid dest, final OtpErlangObject msg)
 			throws IOException {
 		// encode and send the message
-		super.sendBuf(self.pid(), dest, new OtpOutputStream(msg));
+		final AtomCache.Refs refs = newAtomRefs();
+		final OtpOutputStream payload = OtpOutputStream.acquire(msg, refs);
+		try {
+			super.sendBuf(self.pid(), dest, payload, refs);
+		} finally {
+			OtpOutputStream.release(payload);
+		}
 	}
 
 	/**
@@ -375,7 +381,13 @@ public class OtpConnection extends AbstractConnection {
 	public void send(final String dest, final OtpErlangObject msg)
 			throws IOException {
 		// encode and send the message
-		super.sendBuf(self.pid(), dest, new OtpOutputStream(msg));
+		final AtomCache.Refs refs = newAtomRefs();
+		final OtpOutputStream payload = OtpOutputStream.acquire(msg, refs);
+		try {
+			super.sendBuf(self.pid(), dest, payload, refs);
+		} finally {
+			OtpOutputStream.release(payload);
+		}
 	}
 
 	/**
@@ -152,7 +152,13 @@ public class OtpCookedConnection extends AbstractConnection {
 	void send(final OtpErlangPid from, final OtpErlangPid dest,
 			final OtpErlangObject msg) throws IOException {
 		// encode and send the message
-		sendBuf(from, dest, new OtpOutputStream(msg));
+		final AtomCache.Refs refs = newAtomRefs();
+		final OtpOutputStream payload = OtpOutputStream.acquire(msg, refs);
+		try {
+			sendBuf(from, dest, payload, refs);
+		} finally {
+			OtpOutputStream.release(payload);
+		}
 	}
 
 	/*
@@ -162,7 +168,13 @@ public class OtpCookedConnection extends AbstractConnection {
 	void send(final OtpErlangPid from, final String dest,
 			final OtpErlangObject msg) throws IOException {
 		// encode and send the message
-		sendBuf(from, dest, new OtpOutputStream(msg));
+		final AtomCache.Refs refs = newAtomRefs();
+		final OtpOutputStream payload = OtpOutputStream.acquire(msg, refs);
+		try {
+			sendBuf(from, dest, payload, refs);
+		} finally {
+			OtpOutputStream.release(payload);
+		}
 	}
 
 	@Override
@@ -91,6 +91,9 @@ public class OtpExternal {
 	/** The tag used for compressed terms */
 	public static final int compressedTag = 80;
 
+	/** The tag used for references to the distribution atom cache */
+	public static final int atomCacheRefTag = 82;
+
 	/** The version number used to mark serialized Erlang terms */
 	public static final int versionTag = 131;
 
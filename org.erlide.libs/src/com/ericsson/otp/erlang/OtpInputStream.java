@@ -35,6 +35,9 @@ public class OtpInputStream extends ByteArrayInputStream {
 
 	private final int flags;
 
+	// the atoms listed in the distribution header, if any
+	private AtomTable.Entry[] atomRefs;
+
 	/**
 	 * @param buf
 	 */
@@ -344,30 +347,44 @@ public class OtpInputStream extends ByteArrayInputStream {
 	 *                if the next term in the stream is not an atom.
 	 */
 	public String read_atom() throws OtpErlangDecodeException {
-		int tag;
-		int len;
-		byte[] strbuf;
-		String atom;
+		return read_atom_entry().atom;
+	}
 
-		tag = read1skip_version();
+	private AtomTable.Entry read_atom_entry() throws OtpErlangDecodeException {
+		final int tag = read1skip_version();
 
+		if (tag == OtpExternal.atomCacheRefTag) {
+			final int i = read1();
+			if (atomRefs == null || i >= atomRefs.length) {
+				throw new OtpErlangDecodeException("bad atom cache reference "
+						+ i);
+			}
+			return atomRefs[i];
+		}
 		if (tag != OtpExternal.atomTag) {
 			throw new OtpErlangDecodeException(
 					"wrong tag encountered, expected " + OtpExternal.atomTag
 							+ ", got " + tag);
 		}
 
-		len = read2BE();
-
-		strbuf = new byte[len];
-		this.readN(strbuf);
-		atom = OtpErlangString.newString(strbuf);
+		return read_atom_text(read2BE());
+	}
 
-		if (atom.length() > OtpExternal.maxAtomLength) {
-			atom = atom.substring(0, OtpExternal.maxAtomLength);
+	/**
+	 * Read the text of an atom. Atoms are shared through {@link AtomTable}.
+	 */
+	AtomTable.Entry read_atom_text(final int len)
+			throws OtpErlangDecodeException {
+		if (available() < len) {
+			throw new OtpErlangDecodeException("Cannot read from input stream");
 		}
+		final AtomTable.Entry e = AtomTable.get(super.buf, super.pos, len);
+		super.pos += len;
+		return e;
+	}
 
-		return atom;
+	void setAtomRefs(final AtomTable.Entry[] atomRefs) {
+		this.atomRefs = atomRefs;
 	}
 
 	/**
@@ -1143,7 +1160,8 @@ public class OtpInputStream extends ByteArrayInputStream {
 			return new OtpErlangLong(this);
 
 		case OtpExternal.atomTag:
-			return new OtpErlangAtom(this);
+		case OtpExternal.atomCacheRefTag:
+			return read_atom_entry().term;
 
 		case OtpExternal.floatTag:
 		case OtpExternal.newFloatTag:
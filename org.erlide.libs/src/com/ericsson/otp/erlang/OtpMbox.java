@@ -18,6 +18,8 @@
  */
 package com.ericsson.otp.erlang;
 
+import java.util.Collection;
+
 /**
  * <p>
  * Provides a simple mechanism for exchanging messages with Erlang processes or
@@ -79,7 +81,7 @@ package com.ericsson.otp.erlang;
 public class OtpMbox {
     OtpNode home;
     OtpErlangPid self;
-    GenericQueue queue;
+    MailboxQueue queue;
     String name;
     Links links;
 
@@ -89,7 +91,7 @@ public class OtpMbox {
         this.self = self;
         this.home = home;
         this.name = name;
-        queue = new GenericQueue();
+        queue = new MailboxQueue();
         links = new Links(10);
     }
 
@@ -262,19 +264,7 @@ public class OtpMbox {
 
         final OtpMsg m = (OtpMsg) queue.get();
 
-        switch (m.type()) {
-        case OtpMsg.exitTag:
-        case OtpMsg.exit2Tag:
-            try {
-                final OtpErlangObject o = m.getMsg();
-                throw new OtpErlangExit(o, m.getSenderPid());
-            } catch (final OtpErlangDecodeException e) {
-                throw new OtpErlangExit("unknown", m.getSenderPid());
-            }
-
-        default:
-            return m;
-        }
+        return checkExit(m);
     }
 
     /**
@@ -302,6 +292,10 @@ public class OtpMbox {
             return null;
         }
 
+        return checkExit(m);
+    }
+
+    private OtpMsg checkExit(final OtpMsg m) throws OtpErlangExit {
         switch (m.type()) {
         case OtpMsg.exitTag:
         case OtpMsg.exit2Tag:
@@ -317,6 +311,55 @@ public class OtpMbox {
         }
     }
 
+    /**
+     * Wait for messages to arrive for this mailbox, and take all the messages
+     * that are waiting, up to a maximum number.
+     * <p>
+     * An exit signal is only raised when it is first in the queue; the
+     * messages received before it are returned, and it is raised by the next
+     * call.
+     * </p>
+     *
+     * @param msgs
+     *            the collection to add the messages to.
+     *
+     * @param max
+     *            the maximum number of messages to take.
+     *
+     * @param timeout
+     *            the time, in milliseconds, to wait for the first message.
+     *
+     * @return the number of messages added to msgs.
+     *
+     * @exception OtpErlangExit
+     *                if a linked {@link OtpErlangPid pid} has exited or has
+     *                sent an exit signal to this mailbox.
+     *
+     * @exception InterruptedException
+     *                if the method times out before a message becomes
+     *                available.
+     */
+    public int receiveMsgs(final Collection<OtpMsg> msgs, final int max,
+            final long timeout) throws InterruptedException, OtpErlangExit {
+        msgs.add(receiveMsg(timeout));
+        int n = 1;
+        while (n < max) {
+            final OtpMsg m = (OtpMsg) queue.peek();
+            if (m == null || m.type() == OtpMsg.exitTag
+                    || m.type() == OtpMsg.exit2Tag) {
+                break;
+            }
+            // normally m itself, unless another thread took it
+            final OtpMsg next = (OtpMsg) queue.tryGet();
+            if (next == null) {
+                break;
+            }
+            msgs.add(checkExit(next));
+            n++;
+        }
+        return n;
+    }
+
     /**
      * Send a message to a remote {@link OtpErlangPid pid}, representing either
      * another {@link OtpMbox mailbox} or an Erlang process.
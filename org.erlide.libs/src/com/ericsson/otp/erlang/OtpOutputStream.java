@@ -39,9 +39,23 @@ public class OtpOutputStream extends ByteArrayOutputStream {
 	/** The default initial size of the stream. * */
 	public static final int defaultInitialSize = 2048;
 
-	/** The default increment used when growing the stream. * */
+	/**
+	 * The smallest increment used when growing the stream. The stream grows
+	 * geometrically, by at least its current size.
+	 */
 	public static final int defaultIncrement = 2048;
 
+	/** Streams larger than this aren't kept for reuse. */
+	private static final int maxPooledSize = 64 * 1024;
+
+	/** Each thread keeps a couple of streams: one for headers, one for data. */
+	private static final ThreadLocal<OtpOutputStream[]> pool = new ThreadLocal<OtpOutputStream[]>() {
+		@Override
+		protected OtpOutputStream[] initialValue() {
+			return new OtpOutputStream[2];
+		}
+	};
+
 	// static formats, used to encode floats and doubles
 	@SuppressWarnings("unused")
 	private static final DecimalFormat eform = new DecimalFormat("e+00;e-00");
@@ -50,6 +64,9 @@ public class OtpOutputStream extends ByteArrayOutputStream {
 	@SuppressWarnings("unused")
 	private static final BigDecimal one = new BigDecimal(1.0);
 
+	// atoms are written as references to these, if set
+	private AtomCache.Refs atomRefs;
+
 	/**
 	 * Create a stream with the default initial size (2048 bytes).
 	 */
@@ -68,10 +85,131 @@ public class OtpOutputStream extends ByteArrayOutputStream {
 	 * Create a stream containing the encoded version of the given Erlang term.
 	 */
 	public OtpOutputStream(final OtpErlangObject o) {
-		this();
+		this(estimateSize(o));
 		write_any(o);
 	}
 
+	/**
+	 * Get an empty stream, reusing one that was released by the current
+	 * thread if possible. The stream should be given back with
+	 * {@link #release(OtpOutputStream)} when its contents have been sent.
+	 */
+	static OtpOutputStream acquire(final int size) {
+		final OtpOutputStream[] free = pool.get();
+		for (int i = 0; i < free.length; i++) {
+			final OtpOutputStream s = free[i];
+			if (s != null) {
+				free[i] = null;
+				s.ensureCapacity(size);
+				return s;
+			}
+		}
+		return new OtpOutputStream(Math.max(size, defaultInitialSize));
+	}
+
+	/**
+	 * Like {@link #acquire(int)}, with the encoded version of the term.
+	 */
+	static OtpOutputStream acquire(final OtpErlangObject o) {
+		return acquire(o, null);
+	}
+
+	/**
+	 * Like {@link #acquire(OtpErlangObject)}, with the atoms written as atom
+	 * cache references, if refs isn't null.
+	 */
+	static OtpOutputStream acquire(final OtpErlangObject o,
+			final AtomCache.Refs refs) {
+		final OtpOutputStream s = acquire(estimateSize(o));
+		s.atomRefs = refs;
+		s.write_any(o);
+		s.atomRefs = null;
+		return s;
+	}
+
+	/**
+	 * Give back a stream obtained with {@link #acquire(int)}. It must not be
+	 * used afterwards.
+	 */
+	static void release(final OtpOutputStream s) {
+		if (s.length() > maxPooledSize) {
+			return;
+		}
+		final OtpOutputStream[] free = pool.get();
+		for (int i = 0; i < free.length; i++) {
+			if (free[i] == null) {
+				s.reset();
+				s.atomRefs = null;
+				free[i] = s;
+				return;
+			}
+		}
+	}
+
+	void setAtomRefs(final AtomCache.Refs refs) {
+		atomRefs = refs;
+	}
+
+	/**
+	 * Make room for at least <code>n</code> more bytes. The buffer at least
+	 * doubles, so that writing a large term copies it only a few times.
+	 */
+	private void ensureCapacity(final int n) {
+		final int needed = super.count + n;
+		if (needed > super.buf.length) {
+			int newLength = super.buf.length
+					+ Math.max(super.buf.length, defaultIncrement);
+			if (newLength < needed || newLength < 0) {
+				newLength = needed;
+			}
+			final byte[] tmp = new byte[newLength];
+			System.arraycopy(super.buf, 0, tmp, 0, super.count);
+			super.buf = tmp;
+		}
+	}
+
+	/**
+	 * A cheap estimate of the encoded size of the term, so that the buffer
+	 * can be allocated at the right size up front. Containers are looked
+	 * into, other terms get a fixed guess.
+	 */
+	static int estimateSize(final OtpErlangObject o) {
+		final long size = estimate(o);
+		return size > Integer.MAX_VALUE - 8 ? Integer.MAX_VALUE - 8
+				: (int) size;
+	}
+
+	private static long estimate(final OtpErlangObject o) {
+		if (o instanceof OtpErlangAtom) {
+			return 3 + ((OtpErlangAtom) o).atomValue().length();
+		} else if (o instanceof OtpErlangString) {
+			return 5 + ((OtpErlangString) o).stringValue().length();
+		} else if (o instanceof OtpErlangBitstr) {
+			return 6 + ((OtpErlangBitstr) o).size();
+		} else if (o instanceof OtpErlangTuple) {
+			final OtpErlangTuple t = (OtpErlangTuple) o;
+			long size = 5;
+			for (int i = 0; i < t.arity(); i++) {
+				size += estimate(t.elementAt(i));
+			}
+			return size;
+		} else if (o instanceof OtpErlangList) {
+			final OtpErlangList l = (OtpErlangList) o;
+			long size = 6;
+			for (int i = 0; i < l.arity(); i++) {
+				size += estimate(l.elementAt(i));
+			}
+			if (l.getLastTail() != null) {
+				size += estimate(l.getLastTail());
+			}
+			return size;
+		} else if (o instanceof OtpErlangPid || o instanceof OtpErlangRef
+				|| o instanceof OtpErlangPort) {
+			return 32;
+		}
+		return 9;
+	}
+
 	// package scope
 	/*
 	 * Get the contents of the output stream as an input stream instead. This is
@@ -106,11 +244,7 @@ public class OtpOutputStream extends ByteArrayOutputStream {
 	 */
 	public void write(final byte b) {
 		if (super.count >= super.buf.length) {
-			// System.err.println("Expanding buffer from " + this.buf.length
-			// + " to " + (this.buf.length+defaultIncrement));
-			final byte[] tmp = new byte[super.buf.length + defaultIncrement];
-			System.arraycopy(super.buf, 0, tmp, 0, super.count);
-			super.buf = tmp;
+			ensureCapacity(1);
 		}
 		super.buf[super.count++] = b;
 	}
@@ -125,14 +259,7 @@ public class OtpOutputStream extends ByteArrayOutputStream {
 
 	@Override
 	public void write(final byte[] buf) {
-		if (super.count + buf.length > super.buf.length) {
-			// System.err.println("Expanding buffer from " + super.buf.length
-			// + " to " + (buf.length + super.buf.lengt + defaultIncrement));
-			final byte[] tmp = new byte[super.buf.length + buf.length
-					+ defaultIncrement];
-			System.arraycopy(super.buf, 0, tmp, 0, super.count);
-			super.buf = tmp;
-		}
+		ensureCapacity(buf.length);
 		System.arraycopy(buf, 0, super.buf, super.count, buf.length);
 		super.count += buf.length;
 	}
@@ -323,6 +450,14 @@ public class OtpOutputStream extends ByteArrayOutputStream {
 	 *            the string to write.
 	 */
 	public void write_atom(final String atom) {
+		if (atomRefs != null) {
+			final int i = atomRefs.indexOf(atom);
+			if (i >= 0) {
+				write1(OtpExternal.atomCacheRefTag);
+				write1(i);
+				return;
+			}
+		}
 		write1(OtpExternal.atomTag);
 		write2BE(atom.length());
 		writeN(atom.getBytes());
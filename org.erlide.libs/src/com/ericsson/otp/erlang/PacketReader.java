@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Vlad Dumitrescu and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Vlad Dumitrescu
+ *******************************************************************************/
+package com.ericsson.otp.erlang;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads distribution packets (4 byte length followed by the data) from a
+ * socket, in large chunks.
+ * <p>
+ * Medium packets are returned as slices of a shared chunk buffer, instead of
+ * each getting a buffer of its own. The data of a packet is never
+ * overwritten: when a chunk is full a new one is started, and the old one is
+ * garbage collected once all the messages that use it have been dropped. So
+ * the slices can be handed to {@link OtpMsg} and decoded later.
+ * <p>
+ * A message that is kept, for example in a mailbox, keeps its whole chunk in
+ * memory. So packets smaller than {@link #copySize} are copied to a buffer of
+ * their own, and a kept slice holds at most 16 times its size. Packets larger
+ * than a quarter of a chunk are read directly into their own buffer.
+ */
+final class PacketReader {
+
+	static final int chunkSize = 64 * 1024;
+	static final int copySize = chunkSize / 16;
+
+	private final InputStream in;
+	private byte[] chunk;
+	// data in chunk[start..end) has been read but not returned yet
+	private int start;
+	private int end;
+	// true if a slice of chunk was returned
+	private boolean shared;
+
+	private byte[] packetBuf;
+	private int packetOffset;
+
+	PacketReader(final InputStream in) {
+		this.in = in;
+		chunk = new byte[chunkSize];
+	}
+
+	/**
+	 * Read the next packet. Its data is found with {@link #getBuffer()} and
+	 * {@link #getOffset()}.
+	 *
+	 * @return the length of the packet; 0 for a tick
+	 */
+	int readPacket() throws IOException {
+		fill(4);
+		final int len = (chunk[start] & 0xff) << 24
+				| (chunk[start + 1] & 0xff) << 16
+				| (chunk[start + 2] & 0xff) << 8 | chunk[start + 3] & 0xff;
+		start += 4;
+		if (len < 0) {
+			throw new IOException("bad packet length " + len);
+		}
+		if (len > chunkSize / 4) {
+			// big packet, read directly into its own buffer
+			final byte[] b = new byte[len];
+			final int buffered = Math.min(len, end - start);
+			System.arraycopy(chunk, start, b, 0, buffered);
+			start += buffered;
+			readFully(b, buffered, len - buffered);
+			packetBuf = b;
+			packetOffset = 0;
+			return len;
+		}
+		fill(len);
+		if (len < copySize) {
+			final byte[] b = new byte[len];
+			System.arraycopy(chunk, start, b, 0, len);
+			packetBuf = b;
+			packetOffset = 0;
+		} else {
+			packetBuf = chunk;
+			packetOffset = start;
+			shared = true;
+		}
+		start += len;
+		return len;
+	}
+
+	byte[] getBuffer() {
+		return packetBuf;
+	}
+
+	int getOffset() {
+		return packetOffset;
+	}
+
+	/**
+	 * Make sure that at least n bytes are available at start.
+	 */
+	private void fill(final int n) throws IOException {
+		if (end - start >= n) {
+			return;
+		}
+		if (start + n > chunk.length) {
+			// not enough room left, move the incomplete data to the start of
+			// a new chunk if the old one may still be used by earlier packets
+			final byte[] c = shared || n > chunk.length ? new byte[Math.max(
+					chunkSize, n)] : chunk;
+			System.arraycopy(chunk, start, c, 0, end - start);
+			chunk = c;
+			end -= start;
+			start = 0;
+			shared = false;
+		}
+		while (end - start < n) {
+			final int i = in.read(chunk, end, chunk.length - end);
+			if (i < 0) {
+				throw new IOException("expected " + n + " bytes, got EOF after "
+						+ (end - start) + " bytes");
+			} else if (i == 0) {
+				throw new IOException("Remote connection closed");
+			}
+			end += i;
+		}
+	}
+
+	private void readFully(final byte[] b, int off, int len)
+			throws IOException {
+		while (len > 0) {
+			final int i = in.read(b, off, len);
+			if (i < 0) {
+				throw new IOException("expected " + len
+						+ " bytes, got EOF");
+			} else if (i == 0) {
+				throw new IOException("Remote connection closed");
+			}
+			off += i;
+			len -= i;
+		}
+	}
+}
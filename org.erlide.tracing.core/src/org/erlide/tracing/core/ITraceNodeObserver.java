@@ -31,6 +31,15 @@ public interface ITraceNodeObserver {
      */
     public void finishLoadingTraces(TracingStatus status);
 
+    /**
+     * This method is invoked after finishing running query on traces from
+     * file.
+     * 
+     * @param status
+     *            status
+     */
+    public void finishLoadingQuery(TracingStatus status);
+
     /**
      * This method is invoked after removing file containing tracing results
      * from list.
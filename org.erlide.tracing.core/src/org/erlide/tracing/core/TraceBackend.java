@@ -28,6 +28,7 @@ import org.erlide.runtime.backend.ErtsProcess;
 import org.erlide.runtime.launch.ErlLaunchAttributes;
 import org.erlide.tracing.core.mvc.model.TraceCollections;
 import org.erlide.tracing.core.mvc.model.TracePattern;
+import org.erlide.tracing.core.mvc.model.TraceQuery;
 import org.erlide.tracing.core.mvc.model.TracedNode;
 import org.erlide.tracing.core.mvc.model.TracedProcess;
 import org.erlide.tracing.core.mvc.model.treenodes.ITreeNode;
@@ -60,6 +61,7 @@ public class TraceBackend {
     private static final String FUN_START = "start";
     private static final String FUN_FILE_INFO = "get_file_info";
     private static final String FUN_LOAD = "load";
+    private static final String FUN_QUERY = "query";
 
     private final Set<TracePattern> tracePatterns = new LinkedHashSet<TracePattern>();
     private final Set<TracedNode> tracedNodes = new LinkedHashSet<TracedNode>();
@@ -76,6 +78,11 @@ public class TraceBackend {
      * tracing results, <code>false</code> when loading traces from file
      */
     private boolean loadingFileInfo;
+
+    /**
+     * <code>true</code> when running query on traces from file
+     */
+    private boolean loadingQuery;
     private TraceEventHandler handler;
     private List<String> activatedNodes;
     private Set<String> notActivatedNodes;
@@ -100,18 +107,36 @@ public class TraceBackend {
             OtpErlangObject message = getStandardEvent(msg, EVENT_NAME);
             if (message != null) {
                 OtpErlangObject errorReason = null;
+                OtpErlangList traces = null;
                 // System.out.println("message: " + message);
                 if (handler.isTracingFinished(message)) {
                     finishLoading(firstTrace ? TracingStatus.EMPTY : TracingStatus.OK);
                 } else if ((errorReason = handler.getErrorReson(message)) != null) {
                     errorObject = errorReason;
                     finishLoading(TracingStatus.ERROR);
+                } else if (handler.isQueryResult(message)) {
+                    List<ITreeNode> queryResult = handler.getQueryResult(message);
+                    if (queryResult != null) {
+                        firstTrace = false;
+                        TraceCollections.getQueryResultsList().addAll(queryResult);
+                    } else {
+                        errorObject = "Can not read query result";
+                        finishLoading(TracingStatus.ERROR);
+                    }
+                } else if (handler.isFileIndex(message)) {
+                    handler.processFileIndex(message, TraceCollections.getFilesList());
+                } else if ((traces = handler.getTraceChunk(message)) != null) {
+                    if (traces.arity() > 0) {
+                        firstTrace = false;
+                        TraceCollections.getTraceStore().addAll(traces);
+                    }
                 } else {
                     ITreeNode newNode = handler.getData(message);
                     if (newNode != null) {
                         firstTrace = false;
                         if (!loadingFileInfo) {
-                            TraceCollections.getTracesList().add(newNode);
+                            // nodes are created again when trace is displayed
+                            TraceCollections.getTraceStore().add(message);
                         } else {
                             TraceCollections.getFilesList().add(newNode);
                         }
@@ -155,7 +180,7 @@ public class TraceBackend {
                         getBackend(true);
                         loadingFileInfo = true;
                         handler = new TraceEventHandler();
-                        tracerBackend.getEventDaemon().addHandler(handler);
+                        tracerBackend.getEventDaemon().addHandler(EVENT_NAME, handler);
 
                         // list of nodes being traced
                         List<OtpErlangObject> erlangObjects = new ArrayList<OtpErlangObject>();
@@ -302,7 +327,7 @@ public class TraceBackend {
                         loadingFileInfo = true;
                         handler = new TraceEventHandler();
                         getBackend(true);
-                        tracerBackend.getEventDaemon().addHandler(handler);
+                        tracerBackend.getEventDaemon().addHandler(EVENT_NAME, handler);
                         tracerBackend.call(Constants.ERLANG_HELPER_MODULE, FUN_FILE_INFO, "s", new OtpErlangString(path));
                     } catch (BackendException e) {
                         ErlLogger.error(e);
@@ -334,11 +359,52 @@ public class TraceBackend {
                         this.startIndex = startIndex;
                         handler = new TraceEventHandler();
                         getBackend(true);
-                        TraceCollections.getTracesList().clear();
-                        tracerBackend.getEventDaemon().addHandler(handler);
+                        TraceCollections.getTraceStore().clear();
+                        tracerBackend.getEventDaemon().addHandler(EVENT_NAME, handler);
                         OtpErlangLong start = new OtpErlangLong(startIndex);
                         OtpErlangLong stop = new OtpErlangLong(endIndex);
-                        tracerBackend.call(Constants.ERLANG_HELPER_MODULE, FUN_LOAD, "sii", new OtpErlangString(activeResultSet.getFileName()), start, stop);
+                        // start reading file at last indexed trace before
+                        // startIndex
+                        OtpErlangObject checkpoint = activeResultSet.getCheckpoint(startIndex);
+                        if (checkpoint == null) {
+                            checkpoint = new OtpErlangAtom("none");
+                        }
+                        int chunkSize = Activator.getDefault().getPreferenceStore().getInt(PreferenceNames.TRACES_CHUNK_SIZE);
+                        tracerBackend.call(Constants.ERLANG_HELPER_MODULE, FUN_LOAD, "siixi", new OtpErlangString(activeResultSet.getFileName()), start, stop,
+                                checkpoint, new OtpErlangInt(chunkSize));
+                    } catch (BackendException e) {
+                        ErlLogger.error(e);
+                        errorObject = e;
+                        finishLoading(TracingStatus.EXCEPTION_THROWN);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Summarizes traces from active result set (
+     * {@link #setActiveResultSet(TracingResultsNode)}) which match given query.
+     * Traces are filtered and summarized by tracing node, summary is put in
+     * {@link TraceCollections#getQueryResultsList()}.
+     * 
+     * @param query
+     *            query
+     */
+    public void runQuery(TraceQuery query) {
+        if (!tracing && !loading) {
+            synchronized (this) {
+                if (!tracing && !loading) {
+                    try {
+                        loading = true;
+                        loadingFileInfo = false;
+                        loadingQuery = true;
+                        handler = new TraceEventHandler();
+                        getBackend(true);
+                        TraceCollections.getQueryResultsList().clear();
+                        tracerBackend.getEventDaemon().addHandler(EVENT_NAME, handler);
+                        tracerBackend.call(Constants.ERLANG_HELPER_MODULE, FUN_QUERY, "sx", new OtpErlangString(activeResultSet.getFileName()),
+                                query.toErlangObject());
                     } catch (BackendException e) {
                         ErlLogger.error(e);
                         errorObject = e;
@@ -355,7 +421,8 @@ public class TraceBackend {
     public synchronized void clearTraceLists() {
         activeResultSet = null;
         TraceCollections.getFilesList().clear();
-        TraceCollections.getTracesList().clear();
+        TraceCollections.getTraceStore().clear();
+        TraceCollections.getQueryResultsList().clear();
         for (ITraceNodeObserver listener : listeners) {
             try {
                 listener.removeFile();
@@ -374,7 +441,8 @@ public class TraceBackend {
     public synchronized void removeTracingResult(TracingResultsNode tracingResult) {
         activeResultSet = null;
         TraceCollections.getFilesList().remove(tracingResult);
-        TraceCollections.getTracesList().clear();
+        TraceCollections.getTraceStore().clear();
+        TraceCollections.getQueryResultsList().clear();
         for (ITraceNodeObserver listener : listeners) {
             try {
                 listener.removeFile();
@@ -411,6 +479,8 @@ public class TraceBackend {
             try {
                 if (loadingFileInfo)
                     listener.finishLoadingFile(status);
+                else if (loadingQuery)
+                    listener.finishLoadingQuery(status);
                 else
                     listener.finishLoadingTraces(status);
             } catch (Exception e) {
@@ -418,6 +488,7 @@ public class TraceBackend {
             }
         }
         loading = false;
+        loadingQuery = false;
         tracing = false;
     }
 
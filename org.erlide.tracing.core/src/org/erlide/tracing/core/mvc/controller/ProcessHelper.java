@@ -1,10 +1,12 @@
 package org.erlide.tracing.core.mvc.controller;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.erlide.jinterface.backend.Backend;
 import org.erlide.jinterface.backend.BackendException;
+import org.erlide.jinterface.backend.events.EventHandler;
 import org.erlide.jinterface.util.ErlLogger;
 import org.erlide.tracing.core.TraceBackend;
 import org.erlide.tracing.core.mvc.model.TracedNode;
@@ -12,6 +14,8 @@ import org.erlide.tracing.core.mvc.model.TracedProcess;
 
 import com.ericsson.otp.erlang.OtpErlangAtom;
 import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangTuple;
 
 /**
@@ -23,17 +27,127 @@ import com.ericsson.otp.erlang.OtpErlangTuple;
 public class ProcessHelper {
 
     private static final String MODULE_NAME = "proc_list";
-    private static final String FUNCTION_NAME = "list_all_processes";
+    private static final String FUNCTION_NAME = "list_processes";
+    private static final String EVENT_NAME = "proc_list";
+    private static final String ATOM_PROCESSES = "processes";
+    private static final String ATOM_DONE = "done";
+    // max number of processes sent in one event
+    private static final int CHUNK_SIZE = 1000;
+    // how long to wait for next event (in milliseconds)
+    private static final long TIMEOUT = 60000;
+
+    private static int requestId;
 
     private ProcessHelper() {
     }
 
     /**
-     * Returns list of processes on all traced nodes.
+     * Listener notified about processes as they are received, before the
+     * whole list is complete.
+     */
+    public interface ProcessListener {
+
+        /**
+         * Called from the event thread for each received chunk.
+         * 
+         * @param processes
+         *            processes of the chunk
+         */
+        void processesReceived(TracedProcess[] processes);
+    }
+
+    /**
+     * Handler collecting processes sent in <code>proc_list</code> events for
+     * one request.
+     */
+    private static class ProcessListHandler extends EventHandler {
+
+        private final long id;
+        private final ProcessListener listener;
+        private final List<TracedProcess> processes = new ArrayList<TracedProcess>();
+        private int count = -1;
+        private long lastEvent = System.currentTimeMillis();
+
+        public ProcessListHandler(long id, ProcessListener listener) {
+            this.id = id;
+            this.listener = listener;
+        }
+
+        @Override
+        protected void doHandleMsg(OtpErlangObject msg) throws Exception {
+            OtpErlangObject event = getStandardEvent(msg, EVENT_NAME);
+            if (event == null) {
+                return;
+            }
+            OtpErlangTuple tuple = (OtpErlangTuple) event;
+            if (((OtpErlangLong) tuple.elementAt(1)).longValue() != id) {
+                return;
+            }
+            String tag = ((OtpErlangAtom) tuple.elementAt(0)).atomValue();
+            TracedProcess[] chunk = null;
+            if (ATOM_PROCESSES.equals(tag)) {
+                OtpErlangObject[] elements = ((OtpErlangList) tuple.elementAt(2)).elements();
+                chunk = new TracedProcess[elements.length];
+                for (int i = 0; i < elements.length; i++) {
+                    chunk[i] = new TracedProcess((OtpErlangTuple) elements[i]);
+                }
+            }
+            synchronized (this) {
+                if (chunk != null) {
+                    processes.addAll(Arrays.asList(chunk));
+                } else if (ATOM_DONE.equals(tag)) {
+                    count = ((OtpErlangLong) tuple.elementAt(2)).intValue();
+                }
+                lastEvent = System.currentTimeMillis();
+                notifyAll();
+            }
+            if (chunk != null && listener != null) {
+                listener.processesReceived(chunk);
+            }
+        }
+
+        /**
+         * Waits until processes of all nodes are received. Events may come in
+         * any order, so it waits both for <code>done</code> event and for
+         * number of processes it reports.
+         *
+         * @return received processes
+         * @throws InterruptedException
+         */
+        public synchronized TracedProcess[] waitForProcesses() throws InterruptedException {
+            while (count < 0 || processes.size() < count) {
+                long left = lastEvent + TIMEOUT - System.currentTimeMillis();
+                if (left <= 0) {
+                    ErlLogger.warn("Timeout while listing processes, %d received", processes.size());
+                    break;
+                }
+                wait(left);
+            }
+            return processes.toArray(new TracedProcess[processes.size()]);
+        }
+    }
+
+    /**
+     * Returns list of processes on all traced nodes. Nodes are asked in
+     * parallel and send their processes in chunks, which are converted as they
+     * come.
      * 
      * @return list of processes
      */
     public static TracedProcess[] getProcsOnTracedNodes() {
+        return getProcsOnTracedNodes(null);
+    }
+
+    /**
+     * Returns list of processes on all traced nodes, like
+     * {@link #getProcsOnTracedNodes()}, and passes each received chunk to
+     * listener, so that processes can be shown before all nodes answered.
+     * 
+     * @param listener
+     *            listener notified about chunks, may be <code>null</code>
+     * @return list of processes
+     */
+    public static TracedProcess[] getProcsOnTracedNodes(ProcessListener listener) {
         try {
             Backend backend = TraceBackend.getInstance().getBackend(true);
             List<OtpErlangAtom> nodeAtoms = new ArrayList<OtpErlangAtom>();
@@ -46,17 +160,23 @@ public class ProcessHelper {
             }
 
             OtpErlangList nodesList = new OtpErlangList(nodeAtoms.toArray(new OtpErlangAtom[nodeAtoms.size()]));
-            OtpErlangList procList = (OtpErlangList) backend.call(MODULE_NAME, FUNCTION_NAME, "x", nodesList);
-            TracedProcess[] processes = new TracedProcess[procList.arity()];
-
-            for (int i = 0; i < procList.arity(); i++) {
-                OtpErlangTuple tuple = (OtpErlangTuple) procList.elementAt(i);
-                processes[i] = new TracedProcess(tuple);
+            ProcessListHandler handler = new ProcessListHandler(nextRequestId(), listener);
+            backend.getEventDaemon().addHandler(EVENT_NAME, handler);
+            try {
+                backend.call(MODULE_NAME, FUNCTION_NAME, "xxi", nodesList, new OtpErlangLong(handler.id), CHUNK_SIZE);
+                return handler.waitForProcesses();
+            } finally {
+                backend.getEventDaemon().removeHandler(handler);
             }
-            return processes;
         } catch (BackendException e) {
             ErlLogger.error(e);
+        } catch (InterruptedException e) {
+            ErlLogger.error(e);
         }
         return null;
     }
+
+    private static synchronized int nextRequestId() {
+        return ++requestId;
+    }
 }
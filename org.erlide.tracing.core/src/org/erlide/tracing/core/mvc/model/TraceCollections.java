@@ -19,7 +19,8 @@ public final class TraceCollections {
     }
 
     private static final Collection<ITreeNode> filesList = Collections.synchronizedSortedSet(new TreeSet<ITreeNode>());
-    private static final Collection<ITreeNode> tracesList = Collections.synchronizedList(new ArrayList<ITreeNode>());
+    private static final TraceStore traceStore = new TraceStore();
+    private static final Collection<ITreeNode> queryResultsList = Collections.synchronizedList(new ArrayList<ITreeNode>());
 
     /**
      * Returns collection of nodes that represents files with tracing results.
@@ -31,11 +32,21 @@ public final class TraceCollections {
     }
 
     /**
-     * Returns collection of nodes that represents trace events.
+     * Returns store of trace events.
+     * 
+     * @return trace events
+     */
+    public static TraceStore getTraceStore() {
+        return traceStore;
+    }
+
+    /**
+     * Returns collection of nodes that describe summary of traces matching
+     * last query.
      * 
      * @return list
      */
-    public static Collection<ITreeNode> getTracesList() {
-        return tracesList;
+    public static Collection<ITreeNode> getQueryResultsList() {
+        return queryResultsList;
     }
 }
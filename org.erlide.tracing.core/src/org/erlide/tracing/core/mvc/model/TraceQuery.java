@@ -0,0 +1,117 @@
+package org.erlide.tracing.core.mvc.model;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.erlide.tracing.core.TraceType;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+
+/**
+ * Filter of trace events which are summarized by tracing node (see
+ * {@link org.erlide.tracing.core.TraceBackend#runQuery(TraceQuery)}). Trace
+ * event is taken into account when it matches all criteria that are set.
+ */
+public class TraceQuery {
+
+    private String process;
+    private String module;
+    private String function;
+    private TraceType type;
+    private Date from;
+    private Date to;
+
+    public String getProcess() {
+        return process;
+    }
+
+    /**
+     * Sets process: pid (e.g. <code>&lt;0.42.0&gt;</code>, node part is
+     * ignored) or registered name.
+     *
+     * @param process
+     *            process or <code>null</code>
+     */
+    public void setProcess(String process) {
+        this.process = process;
+    }
+
+    public String getModule() {
+        return module;
+    }
+
+    public void setModule(String module) {
+        this.module = module;
+    }
+
+    public String getFunction() {
+        return function;
+    }
+
+    public void setFunction(String function) {
+        this.function = function;
+    }
+
+    public TraceType getType() {
+        return type;
+    }
+
+    public void setType(TraceType type) {
+        this.type = type;
+    }
+
+    public Date getFrom() {
+        return from;
+    }
+
+    public void setFrom(Date from) {
+        this.from = from;
+    }
+
+    public Date getTo() {
+        return to;
+    }
+
+    public void setTo(Date to) {
+        this.to = to;
+    }
+
+    /**
+     * Converts query to list of criteria understood by tracing node.
+     *
+     * @return list of <code>{Name, Value}</code> tuples
+     */
+    public OtpErlangList toErlangObject() {
+        List<OtpErlangObject> criteria = new ArrayList<OtpErlangObject>();
+        if (process != null && process.length() > 0) {
+            criteria.add(criterion("process", new OtpErlangString(process)));
+        }
+        if (module != null && module.length() > 0) {
+            criteria.add(criterion("module", new OtpErlangAtom(module)));
+        }
+        if (function != null && function.length() > 0) {
+            criteria.add(criterion("function", new OtpErlangAtom(function)));
+        }
+        if (type != null) {
+            criteria.add(criterion("type", new OtpErlangAtom(type.name().toLowerCase())));
+        }
+        // time of traces is in microseconds
+        if (from != null) {
+            criteria.add(criterion("from", new OtpErlangLong(from.getTime() * 1000)));
+        }
+        if (to != null) {
+            criteria.add(criterion("to", new OtpErlangLong(to.getTime() * 1000 + 999)));
+        }
+        return new OtpErlangList(criteria.toArray(new OtpErlangObject[criteria.size()]));
+    }
+
+    private OtpErlangTuple criterion(String name, OtpErlangObject value) {
+        return new OtpErlangTuple(new OtpErlangObject[] { new OtpErlangAtom(name), value });
+    }
+}
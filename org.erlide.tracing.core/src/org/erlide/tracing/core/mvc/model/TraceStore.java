@@ -0,0 +1,308 @@
+package org.erlide.tracing.core.mvc.model;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.erlide.tracing.core.TraceType;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangDecodeException;
+import com.ericsson.otp.erlang.OtpErlangInt;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangRangeException;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.ericsson.otp.erlang.OtpInputStream;
+import com.ericsson.otp.erlang.OtpOutputStream;
+
+/**
+ * Compact store of trace events loaded from file.
+ * <p>
+ * Events are kept outside of java heap, in columns of direct buffers: time,
+ * process, type, called function and position of event encoded in external
+ * term format. Processes and functions are kept only once and columns refer
+ * to them by number. Tree nodes describing an event are not stored, they
+ * should be created from {@link #getTrace(int)} when event is displayed.
+ */
+public class TraceStore {
+
+    // number of events in one block of columns
+    private static final int BLOCK_SIZE = 1 << 14;
+    // minimal size of block containing encoded events
+    private static final int DATA_BLOCK_SIZE = 1 << 20;
+
+    private static final String ATOM_TRACE_TS = "trace_ts";
+    private static final String ATOM_AVOID_INTERPRETING_AS_STRING = "avoid_interpreting_as_string";
+    private static final TraceType[] TRACE_TYPES = TraceType.values();
+
+    private final List<LongBuffer> timestamps = new ArrayList<LongBuffer>();
+    private final List<IntBuffer> processes = new ArrayList<IntBuffer>();
+    private final List<ByteBuffer> types = new ArrayList<ByteBuffer>();
+    private final List<IntBuffer> functions = new ArrayList<IntBuffer>();
+    private final List<IntBuffer> dataBlocks = new ArrayList<IntBuffer>();
+    private final List<IntBuffer> dataOffsets = new ArrayList<IntBuffer>();
+    private final List<ByteBuffer> data = new ArrayList<ByteBuffer>();
+
+    private final SymbolTable processTable = new SymbolTable();
+    private final SymbolTable functionTable = new SymbolTable();
+    private final Calendar calendar = Calendar.getInstance();
+    private int size;
+
+    /**
+     * Table of distinct terms, each having its number.
+     */
+    private static class SymbolTable {
+        private final Map<OtpErlangObject, Integer> ids = new HashMap<OtpErlangObject, Integer>();
+        private final List<OtpErlangObject> symbols = new ArrayList<OtpErlangObject>();
+
+        public int intern(OtpErlangObject symbol) {
+            Integer id = ids.get(symbol);
+            if (id == null) {
+                id = symbols.size();
+                ids.put(symbol, id);
+                symbols.add(symbol);
+            }
+            return id;
+        }
+
+        public OtpErlangObject get(int id) {
+            return id < 0 ? null : symbols.get(id);
+        }
+
+        public void clear() {
+            ids.clear();
+            symbols.clear();
+        }
+    }
+
+    /**
+     * Adds trace events.
+     *
+     * @param traces
+     *            trace events
+     */
+    public synchronized void addAll(OtpErlangList traces) {
+        for (OtpErlangObject trace : traces.elements()) {
+            add(trace);
+        }
+    }
+
+    /**
+     * Adds trace event (<code>{trace_ts, ...}</code> tuple with local time as
+     * last element) or other message sent while loading traces (e.g.
+     * <code>{drop, N}</code>).
+     *
+     * @param trace
+     *            trace event
+     */
+    public synchronized void add(OtpErlangObject trace) {
+        int block = size / BLOCK_SIZE;
+        int i = size % BLOCK_SIZE;
+        if (block == timestamps.size()) {
+            addBlock();
+        }
+        long timestamp = -1;
+        int process = -1;
+        int type = -1;
+        int function = -1;
+        if (isTrace(trace)) {
+            OtpErlangTuple tuple = (OtpErlangTuple) trace;
+            timestamp = readTime(tuple.elementAt(tuple.arity() - 1));
+            process = processTable.intern(tuple.elementAt(1));
+            type = readType(tuple.elementAt(2));
+            if (type == TraceType.CALL.ordinal()) {
+                function = readFunction(tuple.elementAt(3));
+            }
+        }
+        timestamps.get(block).put(i, timestamp);
+        processes.get(block).put(i, process);
+        types.get(block).put(i, (byte) type);
+        functions.get(block).put(i, function);
+
+        byte[] bytes = new OtpOutputStream(trace).toByteArray();
+        ByteBuffer buffer = data.isEmpty() ? null : data.get(data.size() - 1);
+        if (buffer == null || buffer.remaining() < bytes.length + 4) {
+            buffer = ByteBuffer.allocateDirect(Math.max(DATA_BLOCK_SIZE, bytes.length + 4));
+            data.add(buffer);
+        }
+        dataBlocks.get(block).put(i, data.size() - 1);
+        dataOffsets.get(block).put(i, buffer.position());
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+        size++;
+    }
+
+    /**
+     * Returns trace event.
+     *
+     * @param index
+     *            index of event, from 0
+     * @return trace event, as it was added
+     * @throws OtpErlangDecodeException
+     */
+    public synchronized OtpErlangObject getTrace(int index) throws OtpErlangDecodeException {
+        checkIndex(index);
+        int block = index / BLOCK_SIZE;
+        int i = index % BLOCK_SIZE;
+        ByteBuffer buffer = data.get(dataBlocks.get(block).get(i)).duplicate();
+        buffer.position(dataOffsets.get(block).get(i));
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new OtpInputStream(bytes).read_any();
+    }
+
+    /**
+     * Returns time of trace event.
+     *
+     * @param index
+     *            index of event, from 0
+     * @return time in milliseconds or -1 if it is not a trace event
+     */
+    public synchronized long getTimestamp(int index) {
+        checkIndex(index);
+        return timestamps.get(index / BLOCK_SIZE).get(index % BLOCK_SIZE);
+    }
+
+    /**
+     * Returns process which generated trace event.
+     *
+     * @param index
+     *            index of event, from 0
+     * @return pid or process description (<code>{Pid, Info, Node}</code>), or
+     *         <code>null</code> if it is not a trace event
+     */
+    public synchronized OtpErlangObject getProcess(int index) {
+        checkIndex(index);
+        return processTable.get(processes.get(index / BLOCK_SIZE).get(index % BLOCK_SIZE));
+    }
+
+    /**
+     * Returns type of trace event.
+     *
+     * @param index
+     *            index of event, from 0
+     * @return type or <code>null</code> if it is not a trace event
+     */
+    public synchronized TraceType getType(int index) {
+        checkIndex(index);
+        int type = types.get(index / BLOCK_SIZE).get(index % BLOCK_SIZE);
+        return type < 0 ? null : TRACE_TYPES[type];
+    }
+
+    /**
+     * Returns function called in <i>call</i> trace event.
+     *
+     * @param index
+     *            index of event, from 0
+     * @return <code>{Module, Function, Arity}</code> tuple or
+     *         <code>null</code> if it is not a <i>call</i> trace event
+     */
+    public synchronized OtpErlangObject getFunction(int index) {
+        checkIndex(index);
+        return functionTable.get(functions.get(index / BLOCK_SIZE).get(index % BLOCK_SIZE));
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Removes all trace events. Memory used by them is freed when buffers are
+     * garbage collected.
+     */
+    public synchronized void clear() {
+        timestamps.clear();
+        processes.clear();
+        types.clear();
+        functions.clear();
+        dataBlocks.clear();
+        dataOffsets.clear();
+        data.clear();
+        processTable.clear();
+        functionTable.clear();
+        size = 0;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private void addBlock() {
+        timestamps.add(ByteBuffer.allocateDirect(BLOCK_SIZE * 8).asLongBuffer());
+        processes.add(ByteBuffer.allocateDirect(BLOCK_SIZE * 4).asIntBuffer());
+        types.add(ByteBuffer.allocateDirect(BLOCK_SIZE));
+        functions.add(ByteBuffer.allocateDirect(BLOCK_SIZE * 4).asIntBuffer());
+        dataBlocks.add(ByteBuffer.allocateDirect(BLOCK_SIZE * 4).asIntBuffer());
+        dataOffsets.add(ByteBuffer.allocateDirect(BLOCK_SIZE * 4).asIntBuffer());
+    }
+
+    private boolean isTrace(OtpErlangObject trace) {
+        if (trace instanceof OtpErlangTuple) {
+            OtpErlangTuple tuple = (OtpErlangTuple) trace;
+            return tuple.arity() >= 4 && tuple.elementAt(0) instanceof OtpErlangAtom
+                    && ((OtpErlangAtom) tuple.elementAt(0)).atomValue().equals(ATOM_TRACE_TS);
+        }
+        return false;
+    }
+
+    private int readType(OtpErlangObject type) {
+        if (type instanceof OtpErlangAtom) {
+            try {
+                return TraceType.valueOf(((OtpErlangAtom) type).atomValue().toUpperCase()).ordinal();
+            } catch (IllegalArgumentException e) {
+                // not known trace type
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads function from <code>{Module, Function, Args}</code> tuple, where
+     * <code>Args</code> starts with <code>avoid_interpreting_as_string</code>
+     * atom.
+     */
+    private int readFunction(OtpErlangObject mfa) {
+        if (mfa instanceof OtpErlangTuple && ((OtpErlangTuple) mfa).arity() == 3) {
+            OtpErlangTuple tuple = (OtpErlangTuple) mfa;
+            int arity = -1;
+            if (tuple.elementAt(2) instanceof OtpErlangList) {
+                OtpErlangList args = (OtpErlangList) tuple.elementAt(2);
+                arity = args.arity();
+                if (arity > 0 && args.elementAt(0) instanceof OtpErlangAtom
+                        && ((OtpErlangAtom) args.elementAt(0)).atomValue().equals(ATOM_AVOID_INTERPRETING_AS_STRING)) {
+                    arity--;
+                }
+            }
+            return functionTable.intern(new OtpErlangTuple(new OtpErlangObject[] { tuple.elementAt(0), tuple.elementAt(1), new OtpErlangInt(arity) }));
+        }
+        return -1;
+    }
+
+    /**
+     * Converts <code>{date(), time()}</code> tuple to milliseconds.
+     */
+    private long readTime(OtpErlangObject time) {
+        try {
+            OtpErlangTuple dateTuple = (OtpErlangTuple) ((OtpErlangTuple) time).elementAt(0);
+            OtpErlangTuple timeTuple = (OtpErlangTuple) ((OtpErlangTuple) time).elementAt(1);
+            calendar.clear();
+            calendar.set(((OtpErlangLong) dateTuple.elementAt(0)).intValue(), ((OtpErlangLong) dateTuple.elementAt(1)).intValue() - 1,
+                    ((OtpErlangLong) dateTuple.elementAt(2)).intValue(), ((OtpErlangLong) timeTuple.elementAt(0)).intValue(),
+                    ((OtpErlangLong) timeTuple.elementAt(1)).intValue(), ((OtpErlangLong) timeTuple.elementAt(2)).intValue());
+            return calendar.getTimeInMillis();
+        } catch (ClassCastException e) {
+            return -1;
+        } catch (OtpErlangRangeException e) {
+            return -1;
+        }
+    }
+}
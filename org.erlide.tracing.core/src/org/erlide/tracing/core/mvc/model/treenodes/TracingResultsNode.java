@@ -1,11 +1,17 @@
 package org.erlide.tracing.core.mvc.model.treenodes;
 
+import java.util.Arrays;
 import java.util.Date;
 
 import org.eclipse.swt.graphics.Image;
 import org.erlide.tracing.core.Activator;
 import org.erlide.tracing.core.Images;
 
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+
 /**
  * Node representing tracing results.
  * 
@@ -19,6 +25,11 @@ public class TracingResultsNode extends TreeNode implements Comparable<TracingRe
     private String fileName;
     private long size;
 
+    // sparse index of the file: numbers of traces and positions in the file
+    // where they start, sorted by number
+    private long[] checkpointIndexes = new long[0];
+    private OtpErlangObject[] checkpoints = new OtpErlangObject[0];
+
     public TracingResultsNode() {
         this(null);
     }
@@ -89,4 +100,41 @@ public class TracingResultsNode extends TreeNode implements Comparable<TracingRe
     public void setSize(long size) {
         this.size = size;
     }
+
+    /**
+     * Sets index of file, as sent by trace node: list of
+     * <code>{TraceNumber, Positions}</code> tuples.
+     * 
+     * @param index
+     *            index
+     */
+    public synchronized void setIndex(OtpErlangList index) {
+        long[] indexes = new long[index.arity()];
+        OtpErlangObject[] entries = new OtpErlangObject[index.arity()];
+        for (int i = 0; i < indexes.length; i++) {
+            OtpErlangTuple entry = (OtpErlangTuple) index.elementAt(i);
+            indexes[i] = ((OtpErlangLong) entry.elementAt(0)).longValue();
+            entries[i] = entry;
+        }
+        checkpointIndexes = indexes;
+        checkpoints = entries;
+    }
+
+    /**
+     * Returns entry of index from which trace with given number can be loaded
+     * without reading file from the beginning.
+     * 
+     * @param traceIndex
+     *            number of trace
+     * @return index entry or <code>null</code> if there is none before given
+     *         trace
+     */
+    public synchronized OtpErlangObject getCheckpoint(long traceIndex) {
+        int i = Arrays.binarySearch(checkpointIndexes, traceIndex);
+        if (i < 0) {
+            // index of last entry before given trace
+            i = -i - 2;
+        }
+        return i >= 0 ? checkpoints[i] : null;
+    }
 }
@@ -0,0 +1,85 @@
+package org.erlide.tracing.core.mvc.view;
+
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.jface.viewers.Viewer;
+import org.erlide.jinterface.util.ErlLogger;
+import org.erlide.tracing.core.mvc.model.TraceStore;
+import org.erlide.tracing.core.mvc.model.treenodes.ITreeNode;
+import org.erlide.tracing.core.mvc.model.treenodes.TreeNode;
+import org.erlide.tracing.core.utils.TraceDataHandler;
+
+import com.ericsson.otp.erlang.OtpErlangDecodeException;
+import com.ericsson.otp.erlang.OtpErlangObject;
+
+/**
+ * Content provider for virtual tree displaying trace events from
+ * {@link TraceStore}. Tree nodes are created only for events which are
+ * displayed.
+ */
+public class TraceStoreContentProvider implements ILazyTreeContentProvider {
+
+    private final TreeViewer treeViewer;
+    private final TraceDataHandler handler = new TraceDataHandler();
+    private TraceStore store;
+
+    /**
+     * Creates content provider.
+     *
+     * @param treeViewer
+     *            tree viewer (created with {@link org.eclipse.swt.SWT#VIRTUAL}
+     *            style) that will be using this content provider
+     */
+    public TraceStoreContentProvider(TreeViewer treeViewer) {
+        this.treeViewer = treeViewer;
+    }
+
+    public void dispose() {
+    }
+
+    public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+        store = (TraceStore) newInput;
+    }
+
+    public void updateElement(Object parent, int index) {
+        ITreeNode node;
+        if (parent == store) {
+            node = createNode(index);
+        } else {
+            node = ((ITreeNode) parent).getChildren().get(index);
+        }
+        treeViewer.replace(parent, index, node);
+        treeViewer.setHasChildren(node, node.hasChildren());
+    }
+
+    public void updateChildCount(Object element, int currentChildCount) {
+        int count;
+        if (element == store) {
+            count = store.size();
+        } else {
+            count = ((ITreeNode) element).getChildren().size();
+        }
+        if (count != currentChildCount) {
+            treeViewer.setChildCount(element, count);
+        }
+    }
+
+    public Object getParent(Object element) {
+        ITreeNode parent = ((ITreeNode) element).getParent();
+        return parent != null ? parent : store;
+    }
+
+    private ITreeNode createNode(int index) {
+        try {
+            OtpErlangObject trace = store.getTrace(index);
+            ITreeNode node = handler.getData(trace);
+            if (node != null) {
+                return node;
+            }
+            return new TreeNode(trace.toString());
+        } catch (OtpErlangDecodeException e) {
+            ErlLogger.error(e);
+            return new TreeNode(e.getMessage());
+        }
+    }
+}
@@ -21,5 +21,6 @@ public class PreferenceInitializer extends AbstractPreferenceInitializer {
         store.setDefault(PreferenceNames.NODE_NAME, "tracing");
         store.setDefault(PreferenceNames.TICK_TIME, 60);
         store.setDefault(PreferenceNames.TRACES_LOAD_LIMIT, 100);
+        store.setDefault(PreferenceNames.TRACES_CHUNK_SIZE, 100);
     }
 }
@@ -27,4 +27,10 @@ public final class PreferenceNames {
      * maximum number of traces that can be loaded into tree viewer
      */
     public static String TRACES_LOAD_LIMIT = "tracesLoadLimit";
+
+    /**
+     * number of traces sent by tracing node in one message when loading them
+     * from file
+     */
+    public static String TRACES_CHUNK_SIZE = "tracesChunkSize";
 }
@@ -25,11 +25,15 @@ public class TracingPreferencePage extends FieldEditorPreferencePage implements
         netTickTimeEditor.setValidRange(4, 1000);
         IntegerFieldEditor tracesLoadLimitEditor = new IntegerFieldEditor(PreferenceNames.TRACES_LOAD_LIMIT, "&Max traces in tree viewer:",
                 getFieldEditorParent());
-        tracesLoadLimitEditor.setValidRange(1, 150);
+        tracesLoadLimitEditor.setValidRange(1, 10000000);
+        IntegerFieldEditor tracesChunkSizeEditor = new IntegerFieldEditor(PreferenceNames.TRACES_CHUNK_SIZE, "&Traces sent in one message:",
+                getFieldEditorParent());
+        tracesChunkSizeEditor.setValidRange(1, 10000);
 
         addField(nodeNameEditor);
         addField(netTickTimeEditor);
         addField(tracesLoadLimitEditor);
+        addField(tracesChunkSizeEditor);
     }
 
     public void initializeDefaultPreferences() {
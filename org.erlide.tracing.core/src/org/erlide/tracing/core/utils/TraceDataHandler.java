@@ -1,8 +1,11 @@
 package org.erlide.tracing.core.utils;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 import org.erlide.jinterface.util.ErlLogger;
 import org.erlide.tracing.core.Activator;
@@ -35,9 +38,12 @@ public class TraceDataHandler {
     // atoms
     private static final String ATOM_ERROR_LOADING = "error_loading";
     private static final Object ATOM_FILE_INFO = "file_info";
+    private static final String ATOM_FILE_INDEX = "file_index";
     private static final Object ATOM_DROP = "drop";
     private static final String ATOM_STOP_TRACING = "stop_tracing";
     private static final String ATOM_TRACE_TS = "trace_ts";
+    private static final String ATOM_TRACE_EVENTS = "trace_events";
+    private static final String ATOM_QUERY_RESULT = "query_result";
 
     // trace tuple fields
     private static final int INDEX_PROCESS = 1;
@@ -72,11 +78,22 @@ public class TraceDataHandler {
     private static final int INDEX_INFO_PATH = 3;
     private static final int INDEX_INFO_COUNT = 4;
 
+    // query result tuple fields
+    private static final int INDEX_QUERY_COUNT = 1;
+    private static final int INDEX_QUERY_CALLS = 2;
+    private static final int INDEX_QUERY_TIMES = 3;
+    private static final int INDEX_QUERY_MESSAGES = 4;
+
+    // file index tuple fields
+    private static final int INDEX_INDEX_PATH = 1;
+    private static final int INDEX_INDEX_ENTRIES = 2;
+
     private Date lastTraceDate;
     private String lastProcessDescription;
     private String lastFunctionDescription;
     private final SimpleDateFormat infoDateFormatter = new SimpleDateFormat("dd.MM.yy HH:mm:ss");
     private final SimpleDateFormat nodeDateFormatter = new SimpleDateFormat("HH:mm:ss.SSS dd.MM.yy");
+    private final Calendar calendar = Calendar.getInstance();
 
     /**
      * Checks if given message is last one.
@@ -116,6 +133,167 @@ public class TraceDataHandler {
         return null;
     }
 
+    /**
+     * Checks if given message contains index of file with tracing results.
+     * 
+     * @param message
+     *            message
+     * @return <code>true</code> if it is index message, <code>false</code>
+     *         otherwise
+     */
+    public boolean isFileIndex(OtpErlangObject message) {
+        if (message instanceof OtpErlangTuple) {
+            OtpErlangTuple tuple = (OtpErlangTuple) message;
+            if (tuple.elementAt(0) instanceof OtpErlangAtom) {
+                OtpErlangAtom atom = (OtpErlangAtom) tuple.elementAt(0);
+                return atom.atomValue().equals(ATOM_FILE_INDEX);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stores index from given message (<code>{file_index, Path, Index}</code>)
+     * in node that represents file with this path.
+     * 
+     * @param message
+     *            index message
+     * @param files
+     *            nodes representing files
+     */
+    public void processFileIndex(OtpErlangObject message, Collection<ITreeNode> files) {
+        try {
+            OtpErlangTuple tuple = (OtpErlangTuple) message;
+            String path = ((OtpErlangString) tuple.elementAt(INDEX_INDEX_PATH)).stringValue();
+            OtpErlangList index = (OtpErlangList) tuple.elementAt(INDEX_INDEX_ENTRIES);
+            synchronized (files) {
+                for (ITreeNode file : files) {
+                    if (file instanceof TracingResultsNode && path.equals(((TracingResultsNode) file).getFileName())) {
+                        ((TracingResultsNode) file).setIndex(index);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            ErlLogger.error(e);
+        }
+    }
+
+    /**
+     * Reads chunk of trace events (<code>{trace_events, Traces}</code>).
+     * 
+     * @param message
+     *            message
+     * @return trace events, in order in which they were sent, or
+     *         <code>null</code> if message is not a chunk of trace events
+     */
+    public OtpErlangList getTraceChunk(OtpErlangObject message) {
+        if (message instanceof OtpErlangTuple) {
+            OtpErlangTuple tuple = (OtpErlangTuple) message;
+            if (tuple.arity() == 2 && tuple.elementAt(0) instanceof OtpErlangAtom && tuple.elementAt(1) instanceof OtpErlangList) {
+                OtpErlangAtom atom = (OtpErlangAtom) tuple.elementAt(0);
+                if (atom.atomValue().equals(ATOM_TRACE_EVENTS)) {
+                    return (OtpErlangList) tuple.elementAt(1);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if message is a summary of traces matching a query (
+     * <code>{query_result, Count, Calls, CallTimes, Messages}</code>).
+     * 
+     * @param message
+     *            message
+     * @return <code>true</code> if it is a query result, <code>false</code>
+     *         otherwise
+     */
+    public boolean isQueryResult(OtpErlangObject message) {
+        if (message instanceof OtpErlangTuple) {
+            OtpErlangTuple tuple = (OtpErlangTuple) message;
+            return tuple.arity() == 5 && tuple.elementAt(0) instanceof OtpErlangAtom
+                    && ((OtpErlangAtom) tuple.elementAt(0)).atomValue().equals(ATOM_QUERY_RESULT);
+        }
+        return false;
+    }
+
+    /**
+     * Reads summary of traces matching a query (see
+     * {@link #isQueryResult(OtpErlangObject)}).
+     * 
+     * @param message
+     *            message
+     * @return nodes describing summary or <code>null</code> if message can not
+     *         be read
+     */
+    public List<ITreeNode> getQueryResult(OtpErlangObject message) {
+        if (!isQueryResult(message)) {
+            return null;
+        }
+        OtpErlangTuple tuple = (OtpErlangTuple) message;
+        List<ITreeNode> nodes = new ArrayList<ITreeNode>();
+        try {
+            long count = ((OtpErlangLong) tuple.elementAt(INDEX_QUERY_COUNT)).longValue();
+            nodes.add(new TreeNode("Matching traces: " + count, Activator.getImage(Images.INFO_NODE)));
+
+            // {MFA, Count}
+            ITreeNode callsNode = new TreeNode("Calls", Activator.getImage(Images.CALL_NODE));
+            for (OtpErlangObject element : ((OtpErlangList) tuple.elementAt(INDEX_QUERY_CALLS)).elements()) {
+                OtpErlangTuple calls = (OtpErlangTuple) element;
+                String label = mfa2Str(calls.elementAt(0)) + ": " + ((OtpErlangLong) calls.elementAt(1)).longValue();
+                callsNode.addChildren(new TreeNode(label, Activator.getImage(Images.FUNCTION_NODE)));
+            }
+            nodes.add(callsNode);
+
+            // {MFA, Count, Sum, Max}, times in microseconds
+            ITreeNode timesNode = new TreeNode("Call times", Activator.getImage(Images.RETURN_FROM_NODE));
+            for (OtpErlangObject element : ((OtpErlangList) tuple.elementAt(INDEX_QUERY_TIMES)).elements()) {
+                OtpErlangTuple times = (OtpErlangTuple) element;
+                long calls = ((OtpErlangLong) times.elementAt(1)).longValue();
+                long sum = ((OtpErlangLong) times.elementAt(2)).longValue();
+                long max = ((OtpErlangLong) times.elementAt(3)).longValue();
+                String label = String.format("%s: %d calls, average %.3f ms, maximum %.3f ms", mfa2Str(times.elementAt(0)), calls, sum / 1000.0 / calls,
+                        max / 1000.0);
+                timesNode.addChildren(new TreeNode(label, Activator.getImage(Images.FUNCTION_NODE)));
+            }
+            nodes.add(timesNode);
+
+            // {Process, Sent, Received, Bytes}
+            ITreeNode messagesNode = new TreeNode("Messages", Activator.getImage(Images.MESSAGE_NODE));
+            for (OtpErlangObject element : ((OtpErlangList) tuple.elementAt(INDEX_QUERY_MESSAGES)).elements()) {
+                OtpErlangTuple messages = (OtpErlangTuple) element;
+                String label = String.format("%s: sent %d, received %d, %d bytes", process2Str(messages.elementAt(0)),
+                        ((OtpErlangLong) messages.elementAt(1)).longValue(), ((OtpErlangLong) messages.elementAt(2)).longValue(),
+                        ((OtpErlangLong) messages.elementAt(3)).longValue());
+                messagesNode.addChildren(new TreeNode(label, Activator.getImage(Images.PROCESS_NODE)));
+            }
+            nodes.add(messagesNode);
+        } catch (Exception e) {
+            ErlLogger.error(e);
+            return null;
+        }
+        return nodes;
+    }
+
+    private String mfa2Str(OtpErlangObject mfa) {
+        OtpErlangTuple tuple = (OtpErlangTuple) mfa;
+        return tuple.elementAt(0) + ":" + tuple.elementAt(1) + "/" + tuple.elementAt(2);
+    }
+
+    private String process2Str(OtpErlangObject process) {
+        if (process instanceof OtpErlangPid) {
+            OtpErlangPid pid = (OtpErlangPid) process;
+            return pid2Str(pid) + " (" + pid.node() + ")";
+        } else if (process instanceof OtpErlangTuple && ((OtpErlangTuple) process).arity() == 3) {
+            // {Pid(), Initial_call()|Registered_name(), Node()}
+            OtpErlangTuple tuple = (OtpErlangTuple) process;
+            OtpErlangObject info = tuple.elementAt(INDEX_PROCESS_INFO);
+            String name = info instanceof OtpErlangAtom ? info.toString() : pid2Str((OtpErlangPid) tuple.elementAt(INDEX_PROCESS_PID));
+            return name + " (" + tuple.elementAt(INDEX_PROCESS_NODE) + ")";
+        }
+        return process.toString();
+    }
+
     /**
      * Reads data described by given object. It can be trace event or
      * information about file containing tracing results.
@@ -210,7 +388,7 @@ public class TraceDataHandler {
         int minute = ((OtpErlangLong) timeTuple.elementAt(1)).intValue();
         int second = ((OtpErlangLong) timeTuple.elementAt(2)).intValue();
 
-        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
         calendar.set(year, month, day, hour, minute, second);
 
         return calendar.getTime();
@@ -346,11 +346,25 @@ public class ControlPanelView extends ViewPart implements ITraceNodeObserver {
     }
 
     private void fillProcessesList(final TableViewer tableViewer) {
+        // processes are added to the table as they are received, until the
+        // whole list replaces this input
+        final Object receiving = new TracedProcess[0];
+        tableViewer.setInput(receiving);
         IProgressService ps = PlatformUI.getWorkbench().getProgressService();
         try {
             ps.busyCursorWhile(new IRunnableWithProgress() {
                 public void run(IProgressMonitor pm) {
-                    TracedProcess[] processesList = ProcessHelper.getProcsOnTracedNodes();
+                    TracedProcess[] processesList = ProcessHelper.getProcsOnTracedNodes(new ProcessHelper.ProcessListener() {
+                        public void processesReceived(final TracedProcess[] processes) {
+                            Display.getDefault().asyncExec(new Runnable() {
+                                public void run() {
+                                    if (!tableViewer.getTable().isDisposed() && tableViewer.getInput() == receiving) {
+                                        tableViewer.add(processes);
+                                    }
+                                }
+                            });
+                        }
+                    });
                     TraceBackend.getInstance().setProcesses(processesList);
                 }
             });
@@ -776,6 +790,9 @@ public class ControlPanelView extends ViewPart implements ITraceNodeObserver {
     public void finishLoadingTraces(TracingStatus status) {
     }
 
+    public void finishLoadingQuery(TracingStatus status) {
+    }
+
     public void removeFile() {
     }
 
@@ -241,6 +241,9 @@ public class TraceBrowserView extends ViewPart implements ITraceNodeObserver {
         }
     }
 
+    public void finishLoadingQuery(TracingStatus status) {
+    }
+
     public void removeFile() {
         Display.getDefault().asyncExec(new Runnable() {
             public void run() {
@@ -0,0 +1,238 @@
+package org.erlide.tracing.core.views;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.dialogs.ProgressMonitorDialog;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Combo;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.part.ViewPart;
+import org.erlide.jinterface.util.ErlLogger;
+import org.erlide.tracing.core.ITraceNodeObserver;
+import org.erlide.tracing.core.TraceBackend;
+import org.erlide.tracing.core.TraceType;
+import org.erlide.tracing.core.TracingStatus;
+import org.erlide.tracing.core.mvc.model.TraceCollections;
+import org.erlide.tracing.core.mvc.model.TraceQuery;
+import org.erlide.tracing.core.mvc.view.TreeContentProvider;
+import org.erlide.tracing.core.mvc.view.TreeLabelProvider;
+import org.erlide.tracing.core.ui.dialogs.RunnableWithProgress;
+import org.erlide.tracing.core.utils.TracingStatusHandler;
+
+/**
+ * View for filtering traces from selected tracing results and showing their
+ * summary: calls and call times of functions and messages of processes.
+ */
+public class TraceQueryView extends ViewPart implements ITraceNodeObserver {
+
+    private static final String DATE_FORMAT = "dd.MM.yy HH:mm:ss";
+
+    private TreeViewer treeViewer;
+    private Text processText;
+    private Text moduleText;
+    private Text functionText;
+    private Combo typeCombo;
+    private Text fromText;
+    private Text toText;
+    private Button runButton;
+    private RunnableWithProgress task;
+    private TracingStatus status;
+
+    public TraceQueryView() {
+        TraceBackend.getInstance().addListener(this);
+    }
+
+    @Override
+    public void dispose() {
+        TraceBackend.getInstance().removeListener(this);
+        super.dispose();
+    }
+
+    @Override
+    public void createPartControl(Composite parent) {
+        // layout
+        final GridLayout containerLayout = new GridLayout(1, false);
+        containerLayout.marginWidth = 0;
+        containerLayout.marginHeight = 0;
+        containerLayout.verticalSpacing = 3;
+        parent.setLayout(containerLayout);
+
+        // children
+        createFilterPanel(parent);
+        createTreeViewerPanel(parent);
+
+        runButton.setEnabled(!TraceBackend.getInstance().isStarted());
+    }
+
+    private void createFilterPanel(Composite parent) {
+        final Composite container = new Composite(parent, SWT.NONE);
+        container.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, false));
+        container.setLayout(new GridLayout(6, false));
+
+        processText = createText(container, "Process:", "Pid (e.g. <0.42.0>) or registered name");
+        moduleText = createText(container, "Module:", null);
+        functionText = createText(container, "Function:", null);
+
+        new Label(container, SWT.NONE).setText("Type:");
+        typeCombo = new Combo(container, SWT.READ_ONLY);
+        typeCombo.add("");
+        for (TraceType type : TraceType.values()) {
+            typeCombo.add(type.name().toLowerCase());
+        }
+        typeCombo.select(0);
+
+        fromText = createText(container, "From:", DATE_FORMAT);
+        toText = createText(container, "To:", DATE_FORMAT);
+
+        runButton = new Button(container, SWT.PUSH | SWT.CENTER);
+        runButton.setText("Run");
+        runButton.setToolTipText("Summarize traces from selected tracing results");
+        runButton.addSelectionListener(new SelectionAdapter() {
+
+            @Override
+            public void widgetSelected(SelectionEvent e) {
+                doRun();
+            }
+        });
+    }
+
+    private Text createText(Composite parent, String label, String toolTip) {
+        new Label(parent, SWT.NONE).setText(label);
+        Text text = new Text(parent, SWT.SINGLE | SWT.BORDER);
+        text.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+        if (toolTip != null) {
+            text.setToolTipText(toolTip);
+        }
+        return text;
+    }
+
+    private void createTreeViewerPanel(Composite parent) {
+        final Composite container = new Composite(parent, SWT.NONE);
+        container.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
+        container.setLayout(new GridLayout());
+
+        treeViewer = new TreeViewer(container, SWT.SINGLE);
+        treeViewer.getTree().setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
+
+        // providers
+        treeViewer.setContentProvider(new TreeContentProvider(treeViewer, true));
+        treeViewer.setLabelProvider(new TreeLabelProvider());
+
+        // input
+        treeViewer.setInput(TraceCollections.getQueryResultsList());
+    }
+
+    private void doRun() {
+        Shell shell = PlatformUI.getWorkbench().getActiveWorkbenchWindow().getShell();
+        if (TraceBackend.getInstance().getActiveResultSet() == null) {
+            MessageDialog.openInformation(shell, "Trace query", "Select tracing results in trace browser first.");
+            return;
+        }
+        final TraceQuery query = new TraceQuery();
+        query.setProcess(processText.getText().trim());
+        query.setModule(moduleText.getText().trim());
+        query.setFunction(functionText.getText().trim());
+        if (typeCombo.getSelectionIndex() > 0) {
+            query.setType(TraceType.values()[typeCombo.getSelectionIndex() - 1]);
+        }
+        try {
+            query.setFrom(parseDate(fromText.getText()));
+            query.setTo(parseDate(toText.getText()));
+        } catch (ParseException e) {
+            MessageDialog.openError(shell, "Trace query", "Dates should have format " + DATE_FORMAT + ".");
+            return;
+        }
+
+        task = new RunnableWithProgress("Summarizing traces...") {
+            @Override
+            public void doAction() {
+                TraceBackend.getInstance().runQuery(query);
+            }
+        };
+        try {
+            new ProgressMonitorDialog(shell).run(true, false, task);
+            doAfterQuery();
+        } catch (Exception e) {
+            ErlLogger.error(e);
+        } finally {
+            task = null;
+        }
+    }
+
+    private Date parseDate(String text) throws ParseException {
+        if (text.trim().length() == 0) {
+            return null;
+        }
+        return new SimpleDateFormat(DATE_FORMAT).parse(text.trim());
+    }
+
+    private void doAfterQuery() {
+        if (TracingStatus.OK.equals(status))
+            treeViewer.refresh();
+        if (task != null)
+            // task was executed from this class so this class is responsible
+            // for handling status
+            TracingStatusHandler.handleStatus(status);
+    }
+
+    @Override
+    public void setFocus() {
+    }
+
+    public void startTracing() {
+        Display.getDefault().asyncExec(new Runnable() {
+            public void run() {
+                runButton.setEnabled(false);
+            }
+        });
+    }
+
+    public void finishLoadingFile(TracingStatus status) {
+        Display.getDefault().asyncExec(new Runnable() {
+            public void run() {
+                runButton.setEnabled(true);
+            }
+        });
+    }
+
+    public void finishLoadingTraces(TracingStatus status) {
+    }
+
+    public void finishLoadingQuery(TracingStatus status) {
+        this.status = status;
+        if (task != null) {
+            task.finish();
+        } else {
+            Display.getDefault().asyncExec(new Runnable() {
+                public void run() {
+                    doAfterQuery();
+                }
+            });
+        }
+    }
+
+    public void removeFile() {
+        Display.getDefault().asyncExec(new Runnable() {
+            public void run() {
+                treeViewer.refresh();
+            }
+        });
+    }
+
+    public void updateTracePatterns() {
+    }
+}
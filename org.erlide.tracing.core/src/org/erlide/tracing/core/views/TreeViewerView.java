@@ -39,7 +39,7 @@ import org.erlide.tracing.core.mvc.model.treenodes.FunctionNode;
 import org.erlide.tracing.core.mvc.model.treenodes.ITreeNode;
 import org.erlide.tracing.core.mvc.model.treenodes.ModuleNode;
 import org.erlide.tracing.core.mvc.model.treenodes.TracingResultsNode;
-import org.erlide.tracing.core.mvc.view.TreeContentProvider;
+import org.erlide.tracing.core.mvc.view.TraceStoreContentProvider;
 import org.erlide.tracing.core.mvc.view.TreeLabelProvider;
 import org.erlide.tracing.core.preferences.PreferenceNames;
 import org.erlide.tracing.core.ui.dialogs.RunnableWithProgress;
@@ -91,18 +91,19 @@ public class TreeViewerView extends ViewPart implements ITraceNodeObserver {
 		container.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
 		container.setLayout(new GridLayout());
 
-		// treeViewer = new TreeViewer(container, SWT.VIRTUAL);
-		treeViewer = new TreeViewer(container, SWT.SINGLE);
+		// nodes are created only for visible traces
+		treeViewer = new TreeViewer(container, SWT.SINGLE | SWT.VIRTUAL);
+		treeViewer.setUseHashlookup(true);
 		treeViewer.getTree().setLayoutData(
 				new GridData(SWT.FILL, SWT.FILL, true, true));
 
 		// providers
-		treeViewer
-				.setContentProvider(new TreeContentProvider(treeViewer, true));
+		treeViewer.setContentProvider(new TraceStoreContentProvider(
+				treeViewer));
 		treeViewer.setLabelProvider(new TreeLabelProvider());
 
 		// input
-		treeViewer.setInput(TraceCollections.getTracesList());
+		treeViewer.setInput(TraceCollections.getTraceStore());
 
 		// listener
 		treeViewer.addDoubleClickListener(new IDoubleClickListener() {
@@ -261,7 +262,7 @@ public class TreeViewerView extends ViewPart implements ITraceNodeObserver {
 				.getActiveResultSet();
 		if (resultSet != null) {
 			index = TraceBackend.getInstance().getStartIndex();
-			final int size = TraceCollections.getTracesList().size();
+			final int size = TraceCollections.getTraceStore().size();
 			final boolean previousEnabled = index > 1;
 			final boolean nextEnabled = index + size - 1 < resultSet.getSize();
 
@@ -364,6 +365,9 @@ public class TreeViewerView extends ViewPart implements ITraceNodeObserver {
 		}
 	}
 
+	public void finishLoadingQuery(final TracingStatus status) {
+	}
+
 	public void removeFile() {
 		Display.getDefault().asyncExec(new Runnable() {
 			public void run() {
@@ -5,33 +5,87 @@
 %%
 %% Exported Functions
 %%
--export([list_all_processes/1]).
+-export([list_all_processes/1, list_processes/3]).
 
+-define(EVENT, proc_list).
+
+%% Returns processes of all nodes, each as {Pid, Name, InitialCall, Node}.
 list_all_processes(Nodes) ->
-	list_all_processes(Nodes, []).
-
-list_all_processes([H|T], Acc) ->
-	case rpc:call(H, erlang, processes, []) of
-		{badrpc, nodedown} ->
-			list_all_processes(T, Acc);
-		Processes ->
-			List = [{Pid, name(H, Pid), initial_call(H, Pid), H} || Pid <- Processes],
-			list_all_processes(T, lists:append(Acc, List))
-		end;
-list_all_processes([], Acc) ->
-	Acc.
-
-name(Node, Pid) ->
-	case rpc:call(Node, erlang, process_info, [Pid, registered_name]) of
-		{registered_name, Regname} ->
+	Self = self(),
+	Refs = [begin
+				Ref = make_ref(),
+				spawn_link(fun() -> Self ! {Ref, node_processes(Node)} end),
+				Ref
+			end || Node <- Nodes],
+	lists:append([receive {Ref, Processes} -> Processes end || Ref <- Refs]).
+
+%% Sends processes of all nodes in events: {processes, Id, Processes} with at
+%% most ChunkSize processes and, when all nodes are done, {done, Id, Count}.
+%% Nodes are asked in parallel.
+list_processes(Nodes, Id, ChunkSize) ->
+	spawn(fun() -> send_processes(Nodes, Id, ChunkSize) end),
+	ok.
+
+send_processes(Nodes, Id, ChunkSize) ->
+	Workers = [spawn_monitor(fun() -> exit({sent, send_node_processes(Node, Id, ChunkSize)}) end)
+			   || Node <- Nodes],
+	Count = lists:sum([wait_sent(Ref) || {_Pid, Ref} <- Workers]),
+	erlide_jrpc:event(?EVENT, {done, Id, Count}).
+
+wait_sent(Ref) ->
+	receive
+		{'DOWN', Ref, process, _Pid, {sent, Count}} ->
+			Count;
+		{'DOWN', Ref, process, _Pid, _Reason} ->
+			0
+	end.
+
+send_node_processes(Node, Id, ChunkSize) ->
+	Processes = node_processes(Node),
+	send_chunks(Processes, Id, ChunkSize),
+	length(Processes).
+
+send_chunks([], _Id, _ChunkSize) ->
+	ok;
+send_chunks(Processes, Id, ChunkSize) ->
+	{Chunk, Rest} = take(ChunkSize, Processes, []),
+	erlide_jrpc:event(?EVENT, {processes, Id, Chunk}),
+	send_chunks(Rest, Id, ChunkSize).
+
+take(0, List, Acc) ->
+	{lists:reverse(Acc), List};
+take(_N, [], Acc) ->
+	{lists:reverse(Acc), []};
+take(N, [H|T], Acc) ->
+	take(N - 1, T, [H|Acc]).
+
+%% Collects info about all processes of node in one remote call. Expression is
+%% evaluated by erl_eval, so this module does not have to be loaded on node.
+node_processes(Node) ->
+	case rpc:call(Node, erl_eval, exprs, [info_exprs(), []]) of
+		{value, Infos, _Bindings} ->
+			[{Pid, name(Pid, Info), initial_call(Info), Node} || {Pid, Info} <- Infos, is_list(Info)];
+		_ ->
+			[]
+	end.
+
+info_exprs() ->
+	{ok, Tokens, _} = erl_scan:string("[{P, erlang:process_info(P, [registered_name, initial_call])}"
+										  " || P <- erlang:processes()]."),
+	{ok, Exprs} = erl_parse:parse_exprs(Tokens),
+	Exprs.
+
+name(Pid, Info) ->
+	case lists:keysearch(registered_name, 1, Info) of
+		{value, {registered_name, Regname}} when is_atom(Regname) ->
 			Regname;
 		_ ->
 			lists:flatten(io_lib:format("~p", [Pid]))
 	end.
 
-initial_call(Node, Pid) ->
-	case rpc:call(Node, erlang, process_info, [Pid, initial_call]) of
-		{initial_call, {M, F, A}} ->
+initial_call(Info) ->
+	case lists:keysearch(initial_call, 1, Info) of
+		{value, {initial_call, {M, F, A}}} ->
 			lists:flatten(io_lib:format("~s:~s/~p", [M, F, A]));
 		_ ->
 			"unknown"
@@ -5,7 +5,24 @@
 %%
 %% Exported Functions
 %%
--export([start/3, stop/0,  load/3, load_data/3, get_file_info/1, str2ms/1]).
+-export([start/3, stop/0,  load/3, load/4, load/5, load_data/5, get_file_info/1, str2ms/1]).
+-export([query/2, query_data/2]).
+
+%% number of records between two positions in the index of a file
+-define(INDEX_EVERY, 10000).
+%% default number of records sent in one trace_events event
+-define(CHUNK_SIZE, 100).
+%% max number of start times of calls which didn't return yet
+-define(MAX_PENDING, 100000).
+
+%% summaries of the traces matching a query: calls and {Count, Sum, Max}
+%% of call times by {M, F, A}, {Sent, Received, Bytes} by process, and
+%% start times of calls which didn't return yet by {Pid, {M, F, A}};
+%% returns tells if any return_from or exception_from was seen, and
+%% timing if call times are still measured
+-record(query, {count = 0, calls = dict:new(), times = dict:new(),
+				messages = dict:new(), pending = dict:new(), pending_count = 0,
+				returns = false, timing = true}).
 
 
 start(NodesAndCookies, FileName, NetTicktime)->
@@ -31,45 +48,87 @@ stop() ->
 	spawn(?MODULE, get_file_info, [Dir]).
 
 get_file_info(Path) ->
-	Result = (catch ttbe:format(Path, [{handler, {create_info_handler(Path), {true, 0, '_', '_'}}}])),
+	Result = (catch ttbe:format(Path, [{handler, {create_info_handler(Path), {true, 0, '_', '_'}}},
+									   {index, ?INDEX_EVERY}])),
 	case Result of
-		ok -> erlide_jrpc:event(trace_event, stop_tracing);
-		{error, Reason} -> erlide_jrpc:event(trace_event, {error_loading, Reason});
-		_ -> erlide_jrpc:event(trace_event, {error_loading, "Can not load data"})
+		ok -> send_event(stop_tracing);
+		{ok, Index} ->
+			send_event({file_index, Path, Index}),
+			send_event(stop_tracing);
+		{error, Reason} -> send_event({error_loading, Reason});
+		_ -> send_event({error_loading, "Can not load data"})
 	end.
 
 load(Path, Start, Stop) ->
-	spawn(?MODULE, load_data, [Path, Start, Stop]).
+	load(Path, Start, Stop, none).
+
+%% Checkpoint is an entry of the index sent with file_index, at or before
+%% Start, or none to read the file from the beginning
+load(Path, Start, Stop, Checkpoint) ->
+	load(Path, Start, Stop, Checkpoint, ?CHUNK_SIZE).
+
+%% Traces are sent in {trace_events, Traces} events of ChunkSize traces
+load(Path, Start, Stop, Checkpoint, ChunkSize) ->
+	spawn(?MODULE, load_data, [Path, Start, Stop, Checkpoint, ChunkSize]).
 
-load_data(Path, Start, Stop) ->
-	Result = (catch ttbe:format(Path, [{handler, {create_load_handler(Start, Stop), 1}}])),
+load_data(Path, Start, Stop, Checkpoint, ChunkSize) ->
+	{First, StartAt} = case Checkpoint of
+						   {Count, _Positions} -> {Count, [{start_at, Checkpoint}]};
+						   none -> {1, []}
+					   end,
+	Handler = create_load_handler(Start, Stop, lists:max([1, ChunkSize])),
+	Result = (catch ttbe:format(Path, [{handler, {Handler, {First, [], 0}}},
+									   {stop_at, Stop} | StartAt])),
 	case Result  of
-		ok -> erlide_jrpc:event(trace_event, stop_tracing);
-		{error, Reason} -> erlide_jrpc:event(trace_event, {error_loading, Reason});
-		_ -> erlide_jrpc:event(trace_event, {error_loading, "Can not load data"})
+		ok -> send_event(stop_tracing);
+		{ok, _Index} -> send_event(stop_tracing);
+		{error, Reason} -> send_event({error_loading, Reason});
+		_ -> send_event({error_loading, "Can not load data"})
 	end.
 
-create_load_handler(Start, Stop) ->
-	fun(Fd, Trace, _TraceInfo, State) ->
-			if
-				State >= Start, State =< Stop ->
-					case Trace of
-						{trace_ts, Pid, call, {Mod, Fun, Args}, Time} ->
-							erlide_jrpc:event(trace_event, {trace_ts, Pid, call, {Mod, Fun,[avoid_interpreting_as_string] ++ Args}, calendar:now_to_local_time(Time)});
-						{trace_ts, Pid, spawn, Pid2, {M, F, Args}, Time} ->
-							erlide_jrpc:event(trace_event, {trace_ts, Pid, spawn, Pid2, {M, F, [avoid_interpreting_as_string] ++ Args}, calendar:now_to_local_time(Time)});
-						{trace_ts, _, _, _, Time} ->
-							T = calendar:now_to_local_time(Time),
-							erlide_jrpc:event(trace_event, setelement(tuple_size(Trace), Trace, T));
-						{trace_ts, _, _, _, _, Time} ->
-							T = calendar:now_to_local_time(Time),
-							erlide_jrpc:event(trace_event, setelement(tuple_size(Trace), Trace, T));
-						_ ->
-							erlide_jrpc:event(trace_event, Trace)
-					end;
-				true -> ok
-			end,
-			State + 1
+%% State is {Number of the trace, traces not sent yet (reversed), their count}
+create_load_handler(Start, Stop, ChunkSize) ->
+	fun(_Fd, end_of_trace, _TraceInfo, {N, Chunk, _Size}) ->
+			send_chunk(Chunk),
+			{N, [], 0};
+	   (_Fd, Trace, _TraceInfo, {N, Chunk, Size}) when N >= Start, N =< Stop ->
+			Chunk1 = [convert_trace(Trace) | Chunk],
+			case Size + 1 >= ChunkSize of
+				true ->
+					send_chunk(Chunk1),
+					{N + 1, [], 0};
+				false ->
+					{N + 1, Chunk1, Size + 1}
+			end;
+	   (_Fd, _Trace, _TraceInfo, {N, Chunk, Size}) ->
+			{N + 1, Chunk, Size}
+	end.
+
+send_chunk([]) ->
+	ok;
+send_chunk(Chunk) ->
+	send_event({trace_events, lists:reverse(Chunk)}).
+
+%% Sends event from the calling process, which also calls the trace handler,
+%% so that events of one load arrive in order. erlide_jrpc:event/2 spawns a
+%% process for each event and stop_tracing could overtake the last traces.
+send_event(Msg) ->
+	erlide_jrpc:notify(trace_event, {event, trace_event, Msg, self()}).
+
+convert_trace(Trace) ->
+	case Trace of
+		{trace_ts, Pid, call, {Mod, Fun, Args}, Time} ->
+			{trace_ts, Pid, call, {Mod, Fun,[avoid_interpreting_as_string] ++ Args}, calendar:now_to_local_time(Time)};
+		{trace_ts, Pid, spawn, Pid2, {M, F, Args}, Time} ->
+			{trace_ts, Pid, spawn, Pid2, {M, F, [avoid_interpreting_as_string] ++ Args}, calendar:now_to_local_time(Time)};
+		{trace_ts, _, _, _, Time} ->
+			T = calendar:now_to_local_time(Time),
+			setelement(tuple_size(Trace), Trace, T);
+		{trace_ts, _, _, _, _, Time} ->
+			T = calendar:now_to_local_time(Time),
+			setelement(tuple_size(Trace), Trace, T);
+		_ ->
+			Trace
 	end.
 
 create_info_handler(Path) ->
@@ -79,9 +138,9 @@ create_info_handler(Path) ->
 				end_of_trace ->
 					case First of
 						true ->
-							erlide_jrpc:event(trace_event, {file_info, empty});
+							send_event({file_info, empty});
 						false ->
-							erlide_jrpc:event(trace_event, {file_info, calendar:now_to_local_time(Start_date), calendar:now_to_local_time(End_date), Path, Count})
+							send_event({file_info, calendar:now_to_local_time(Start_date), calendar:now_to_local_time(End_date), Path, Count})
 					end;
 				{trace_ts, _, _, _, Time} ->
 					case First of
@@ -97,6 +156,154 @@ create_info_handler(Path) ->
 			end
 	end.
 
+%% Filter is a list of {process, Pid or registered name as string},
+%% {module, M}, {function, F}, {type, Type}, {from, Microseconds} and
+%% {to, Microseconds} (since 1970). The traces matching all of them are
+%% summarized in one pass over the file, and only the summaries are sent:
+%% {query_result, Count, Calls, CallTimes, Messages}
+%% Call times are measured from call to return_from traces, so they are
+%% known only for trace patterns with return_trace in their match spec.
+%% At most ?MAX_PENDING start times are kept; when there are more, they
+%% are dropped, and if no call returned until then, call times are not
+%% measured anymore.
+query(Path, Filter) ->
+	spawn(?MODULE, query_data, [Path, Filter]).
+
+query_data(Path, Filter) ->
+	Result = (catch ttbe:format(Path, [{handler, {create_query_handler(Filter), #query{}}}])),
+	case Result of
+		ok -> send_event(stop_tracing);
+		{ok, _Index} -> send_event(stop_tracing);
+		{error, Reason} -> send_event({error_loading, Reason});
+		_ -> send_event({error_loading, "Can not load data"})
+	end.
+
+create_query_handler(Filter) ->
+	fun(_Fd, end_of_trace, _TraceInfo, State) ->
+			send_event(query_result(State)),
+			State;
+	   (_Fd, Trace, _TraceInfo, State) ->
+			case is_tuple(Trace) andalso element(1, Trace) =:= trace_ts
+					 andalso lists:all(fun(F) -> matches(Trace, F) end, Filter) of
+				true -> summarize(Trace, State#query{count = State#query.count + 1});
+				false -> State
+			end
+	end.
+
+matches(Trace, {process, Name}) ->
+	case element(2, Trace) of
+		{Pid, Info, _Node} -> pid_matches(Pid, Name) orelse (is_atom(Info) andalso atom_to_list(Info) =:= Name);
+		{Info, _Node} when is_atom(Info) -> atom_to_list(Info) =:= Name;
+		Pid -> pid_matches(Pid, Name)
+	end;
+matches(Trace, {module, M}) ->
+	case trace_mfa(Trace) of
+		{M, _, _} -> true;
+		_ -> false
+	end;
+matches(Trace, {function, F}) ->
+	case trace_mfa(Trace) of
+		{_, F, _} -> true;
+		_ -> false
+	end;
+matches(Trace, {type, Type}) ->
+	element(3, Trace) =:= Type;
+matches(Trace, {from, From}) ->
+	trace_time(Trace) >= From;
+matches(Trace, {to, To}) ->
+	trace_time(Trace) =< To;
+matches(_Trace, _Filter) ->
+	true.
+
+%% the node part of pids differs between nodes, so only the rest is compared
+pid_matches(Pid, Name) when is_pid(Pid) ->
+	case string:tokens(Name, "<.>") of
+		[_Node, Id, Serial] -> tl(string:tokens(pid_to_list(Pid), "<.>")) =:= [Id, Serial];
+		_ -> false
+	end;
+pid_matches(_Pid, _Name) ->
+	false.
+
+trace_mfa(Trace) ->
+	case {element(3, Trace), element(4, Trace)} of
+		{call, {M, F, Args}} when is_list(Args) -> {M, F, length(Args)};
+		{call, {M, F, A}} -> {M, F, A};
+		{return_from, {M, F, A}} -> {M, F, A};
+		{exception_from, {M, F, A}} -> {M, F, A};
+		_ -> none
+	end.
+
+trace_time(Trace) ->
+	{MegaSecs, Secs, MicroSecs} = element(tuple_size(Trace), Trace),
+	(MegaSecs * 1000000 + Secs) * 1000000 + MicroSecs.
+
+trace_pid({Pid, _Info, _Node}) -> Pid;
+trace_pid(Pid) -> Pid.
+
+summarize(Trace, State) ->
+	case element(3, Trace) of
+		call ->
+			MFA = trace_mfa(Trace),
+			started(Trace, MFA, State#query{calls = dict:update_counter(MFA, 1, State#query.calls)});
+		return_from ->
+			returned(Trace, true, State);
+		exception_from ->
+			returned(Trace, false, State);
+		send ->
+			message(element(2, Trace), element(4, Trace), {1, 0}, State);
+		'receive' ->
+			message(element(2, Trace), element(4, Trace), {0, 1}, State);
+		_ ->
+			State
+	end.
+
+started(_Trace, _MFA, #query{timing = false} = State) ->
+	State;
+started(Trace, MFA, #query{pending_count = ?MAX_PENDING, returns = Returns} = State) ->
+	%% too many calls didn't return, maybe none of them will
+	started(Trace, MFA, State#query{pending = dict:new(), pending_count = 0, timing = Returns});
+started(Trace, MFA, #query{pending = Pending, pending_count = N} = State) ->
+	Key = {trace_pid(element(2, Trace)), MFA},
+	Time = trace_time(Trace),
+	State#query{pending = dict:update(Key, fun(Ts) -> [Time | Ts] end, [Time], Pending),
+				pending_count = N + 1}.
+
+returned(Trace, Measure, State0) ->
+	State = State0#query{returns = true},
+	MFA = trace_mfa(Trace),
+	Key = {trace_pid(element(2, Trace)), MFA},
+	case dict:find(Key, State#query.pending) of
+		{ok, [Start | Starts]} ->
+			Pending = case Starts of
+						  [] -> dict:erase(Key, State#query.pending);
+						  _ -> dict:store(Key, Starts, State#query.pending)
+					  end,
+			Times = case Measure of
+						true ->
+							T = trace_time(Trace) - Start,
+							dict:update(MFA, fun({C, Sum, Max}) when T > Max -> {C + 1, Sum + T, T};
+												({C, Sum, Max}) -> {C + 1, Sum + T, Max}
+											 end, {1, T, T}, State#query.times);
+						false ->
+							State#query.times
+					end,
+			State#query{pending = Pending, pending_count = State#query.pending_count - 1, times = Times};
+		_ ->
+			State
+	end.
+
+message(Process, Msg, {Sent, Received}, State) ->
+	Bytes = erlang:external_size(Msg),
+	Messages = dict:update(Process, fun({S, R, B}) -> {S + Sent, R + Received, B + Bytes} end,
+						   {Sent, Received, Bytes}, State#query.messages),
+	State#query{messages = Messages}.
+
+query_result(#query{count = Count, calls = Calls, times = Times, messages = Messages}) ->
+	{query_result, Count,
+	 lists:reverse(lists:keysort(2, dict:to_list(Calls))),
+	 [{MFA, C, Sum, Max} || {MFA, {C, Sum, Max}} <- dict:to_list(Times)],
+	 [{Process, S, R, B} || {Process, {S, R, B}} <- dict:to_list(Messages)]}.
+
 str2fun(S) ->
 	case erl_scan:string(S) of
 		{error, ErrorInfo, _} ->
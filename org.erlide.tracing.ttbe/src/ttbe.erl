@@ -946,8 +946,8 @@ format(Files) ->
 format(Files,Opt) ->
     {Out,Handler,DisableSort} = format_opt(Opt),
     ets:new(?MODULE,[named_table]),
-    format(Files,Out,Handler, DisableSort).
-format(File,Out,Handler,DisableSort) when is_list(File), is_integer(hd(File)) ->
+    format(Files,Out,Handler,DisableSort,index_opt(Opt)).
+format(File,Out,Handler,DisableSort,IndexOpt) when is_list(File), is_integer(hd(File)) ->
     Files = 
 	case filelib:is_dir(File) of
 	    true ->  % will merge all files in the directory
@@ -956,8 +956,8 @@ format(File,Out,Handler,DisableSort) when is_list(File), is_integer(hd(File)) ->
 	    false -> % format one file
 		[File]
 	end,
-    format(Files,Out,Handler,DisableSort);
-format(Files,Out,Handler,DisableSort) when is_list(Files), is_list(hd(Files)) ->
+    format(Files,Out,Handler,DisableSort,IndexOpt);
+format(Files,Out,Handler,DisableSort,IndexOpt) when is_list(Files), is_list(hd(Files)) ->
     StopDbg = case whereis(dbg) of
 		  undefined -> true;
 		  _ -> false
@@ -966,7 +966,10 @@ format(Files,Out,Handler,DisableSort) when is_list(Files), is_list(hd(Files)) ->
 			  [],Files),
     Fd = get_fd(Out),
     RealHandler = get_handler(Handler, Files),
-    R = do_format(Fd,Details,DisableSort,RealHandler),
+    R = case indexed(Details,IndexOpt) of
+	    true -> do_indexed_format(Fd,Details,IndexOpt,RealHandler);
+	    false -> do_format(Fd,Details,DisableSort,RealHandler)
+	end,
     file:close(Fd),
     ets:delete(?MODULE),
     case StopDbg of
@@ -1026,6 +1029,28 @@ format_opt(Opt) when is_list(Opt) ->
 format_opt(Opt) ->
     format_opt([Opt]).
 
+%% {index,Every} makes format return {ok,Index}, where Index has the
+%% position of the next record in every file after each Every records,
+%% [{Count,[{File,Pos}]}]. One of these can be given back with
+%% {start_at,{Count,Positions}}, to start reading there instead of at the
+%% beginning, and {stop_at,Count} stops after that record.
+index_opt(Opt) when is_list(Opt) ->
+    Every = proplists:get_value(index, Opt, 0),
+    StartAt = proplists:get_value(start_at, Opt, {1,all}),
+    StopAt = proplists:get_value(stop_at, Opt, infinity),
+    case {Every,StartAt,StopAt} of
+	{0,{1,all},infinity} -> none;
+	IndexOpt -> IndexOpt
+    end;
+index_opt(_Opt) ->
+    none.
+
+%% Only plain files can be read from a position, not wrap logs
+indexed(_Details,none) ->
+    false;
+indexed(Details,_IndexOpt) ->
+    lists:all(fun({FileOrWrap,_Traci}) -> is_list(FileOrWrap) end, Details).
+
 
 read_traci(File) ->
     MetaFile = get_metafile(File),
@@ -1224,6 +1249,123 @@ timestamp(Trace) when element(1,Trace) =:= trace_ts;
 timestamp(_Trace) ->
     0.
 
+%%% Format with an index. The files are read by our own readers, which
+%%% know the position of each record, and merged in the order of
+%%% {Timestamp,File} so that the same record always gets the same number.
+do_indexed_format(Fd,Details,{Every,{Count,Positions},StopAt},Handler) ->
+    Collected =
+	lists:foldl(fun({File,Traci},Acc) ->
+			    case start_pos(File,Positions) of
+				eof ->
+				    Acc;
+				Pos ->
+				    Reader = start_reader(File,Traci,Pos),
+				    case read_next(Reader,File) of
+					end_of_trace -> Acc;
+					Next -> [Next|Acc]
+				    end
+			    end
+		    end,[],Details),
+    index_collector(Fd,sort(Collected),Count,{Every,StopAt},[],Handler).
+
+start_pos(_File,all) ->
+    0;
+start_pos(File,Positions) ->
+    case lists:keysearch(File,1,Positions) of
+	{value,{File,Pos}} -> Pos;
+	false -> eof % all records of the file were before the start
+    end.
+
+index_collector(Fd,[{{_,File},{Reader,{Trace,Traci}}}|Rest]=Collected,Count,
+		{Every,StopAt}=Opt,Index,CommonState) when Count =< StopAt ->
+    Index1 = case Every > 0 andalso Count rem Every =:= 0 of
+		 true -> [{Count,positions(Collected)}|Index];
+		 false -> Index
+	     end,
+    Trace1 = update_procinfo(Trace),
+    CommonState2 = handler2(Trace1, {Fd, Traci, CommonState}),
+    Collected1 = case read_next(Reader,File) of
+		     end_of_trace -> Rest;
+		     Next -> lists:keymerge(1,[Next],Rest)
+		 end,
+    index_collector(Fd,Collected1,Count+1,Opt,Index1,CommonState2);
+index_collector(Fd,Collected,_Count,_Opt,Index,CommonState) ->
+    lists:foreach(fun({_,{Reader,_}}) -> Reader ! done end, Collected),
+    handler2(end_of_trace, {Fd, end_of_trace, CommonState}),
+    {ok,lists:reverse(Index)}.
+
+%% The position of the record each reader has sent last, which is the next
+%% one to be handled from its file
+positions(Collected) ->
+    lists:map(fun({{_,File},{Reader,_}}) ->
+		      Reader ! {pos,self()},
+		      receive {Reader,{pos,Pos}} -> {File,Pos} end
+	      end, Collected).
+
+read_next(Reader,File) ->
+    Reader ! {get,self()},
+    receive
+	{Reader,{end_of_trace,_}} ->
+	    end_of_trace;
+	{Reader,{Trace,Traci}} ->
+	    {{timestamp(Trace),File},{Reader,{Trace,Traci}}}
+    end.
+
+start_reader(File,Traci,Pos) ->
+    TraciList = dict:to_list(Traci),
+    spawn_link(fun() ->
+		       case file:open(File,[read,raw,binary,read_ahead]) of
+			   {ok,RFd} ->
+			       {ok,_} = file:position(RFd,Pos),
+			       reader(RFd,TraciList,Pos,Pos);
+			   _ ->
+			       reader_eof(TraciList)
+		       end
+	       end).
+
+reader(RFd,Traci,Last,Next) ->
+    receive
+	{get,Collector} ->
+	    case read_trace(RFd) of
+		{Trace,Size} ->
+		    Collector ! {self(),{Trace,Traci}},
+		    reader(RFd,Traci,Next,Next+Size);
+		end_of_trace ->
+		    file:close(RFd),
+		    Collector ! {self(),{end_of_trace,Traci}}
+	    end;
+	{pos,Collector} ->
+	    Collector ! {self(),{pos,Last}},
+	    reader(RFd,Traci,Last,Next);
+	done ->
+	    file:close(RFd)
+    end.
+
+reader_eof(Traci) ->
+    receive
+	{get,Collector} -> Collector ! {self(),{end_of_trace,Traci}};
+	done -> ok
+    end.
+
+%% A record written by the file trace port, and its size in the file
+read_trace(RFd) ->
+    case file:read(RFd,5) of
+	{ok,<<0,Size:32>>} ->
+	    case file:read(RFd,Size) of
+		{ok,B} when byte_size(B) =:= Size ->
+		    case catch binary_to_term(B) of
+			{'EXIT',_} -> end_of_trace;
+			Trace -> {Trace,5+Size}
+		    end;
+		_ ->
+		    end_of_trace
+	    end;
+	{ok,<<1,Drops:32>>} ->
+	    {{drop,Drops},5};
+	_ ->
+	    end_of_trace
+    end.
+
 %%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
 %%% common internal functions
 to_list(Atom) when is_atom(Atom) -> [Atom];
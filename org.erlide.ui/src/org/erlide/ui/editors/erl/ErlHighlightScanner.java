@@ -10,8 +10,6 @@
  *******************************************************************************/
 package org.erlide.ui.editors.erl;
 
-import java.util.List;
-
 import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
 import org.eclipse.core.runtime.preferences.InstanceScope;
@@ -26,6 +24,7 @@ import org.eclipse.jface.text.source.ISourceViewer;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.RGB;
 import org.erlide.core.erlang.ErlToken;
+import org.erlide.core.erlang.ErlTokenArray;
 import org.erlide.jinterface.backend.BackendException;
 import org.erlide.jinterface.util.ErlLogger;
 import org.erlide.ui.prefs.HighlightStyle;
@@ -57,7 +56,8 @@ public class ErlHighlightScanner implements ITokenScanner,
 	private Token t_comment;
 
 	protected final IColorManager fColorManager;
-	protected List<ErlToken> fTokens;
+	// reused for each range, so that scanning doesn't create token objects
+	protected final ErlTokenArray fTokens = new ErlTokenArray();
 	protected int fCrtToken;
 	private int rangeLength;
 	private int rangeOffset;
@@ -129,8 +129,11 @@ public class ErlHighlightScanner implements ITokenScanner,
 		if (tk == ErlToken.EOF) {
 			return Token.EOF;
 		}
+		return convert(tk.getKind());
+	}
 
-		switch (tk.getKind()) {
+	private IToken convert(final int kind) {
+		switch (kind) {
 		case ErlToken.KIND_STRING:
 			return t_string;
 		case ErlToken.KIND_ATOM:
@@ -241,59 +244,37 @@ public class ErlHighlightScanner implements ITokenScanner,
 			fCrtToken = -1;
 
 			final String str = text;
-			fTokens = ErlideScanner.lightScanString(str, rangeOffset);
+			ErlideScanner.lightScanString(str, rangeOffset, fTokens);
 
 		} catch (final BackendException e) {
 			// e.printStackTrace();
+			fTokens.invalidate();
 		}
 	}
 
 	public IToken nextToken() {
-		final ErlToken nextErlToken = nextErlToken();
-		return convert(nextErlToken);
+		fCrtToken++;
+		if (fCrtToken >= fTokens.size()
+				|| fTokens.getOffset(fCrtToken) >= rangeOffset + rangeLength) {
+			return Token.EOF;
+		}
+		return convert(fTokens.getKind(fCrtToken));
 	}
 
 	public int getTokenOffset() {
-		if (fTokens == null) {
-			return 0;
-		}
-
 		if (fCrtToken >= fTokens.size()) {
 			return 0;
 		}
 
-		final ErlToken tk = fTokens.get(fCrtToken);
-		return tk.getOffset();
+		return fTokens.getOffset(fCrtToken);
 	}
 
 	public int getTokenLength() {
-		if (fTokens == null) {
-			return 0;
-		}
-
 		if (fCrtToken >= fTokens.size()) {
 			return 0;
 		}
 
-		final ErlToken tk = fTokens.get(fCrtToken);
-		return tk.getLength();
-	}
-
-	public ErlToken nextErlToken() {
-		if (fTokens == null) {
-			return ErlToken.EOF;
-		}
-
-		fCrtToken++;
-		if (fCrtToken >= fTokens.size()) {
-			return ErlToken.EOF;
-		}
-
-		final ErlToken tk = fTokens.get(fCrtToken);
-		if (tk.getOffset() >= rangeOffset + rangeLength) {
-			return ErlToken.EOF;
-		}
-		return fTokens.get(fCrtToken);
+		return fTokens.getLength(fCrtToken);
 	}
 
 	public void preferenceChange(final PreferenceChangeEvent event) {
@@ -383,10 +383,18 @@ public class ErlContentAssistProcessor implements IContentAssistProcessor {
         final String stateDir = ErlideUIPlugin.getDefault().getStateLocation()
                 .toString();
         final List<ICompletionProposal> result = new ArrayList<ICompletionProposal>();
-        for (final IErlImport imp : module.getImports()) {
-            final OtpErlangObject res = ErlideDoc.getProposalsWithDoc(backend,
-                    imp.getImportModule(), prefix, stateDir);
-            addFunctionProposalsWithDoc(offset, prefix, result, res, imp, false);
+        final Collection<IErlImport> imports = module.getImports();
+        final List<String> importModules = new ArrayList<String>(imports
+                .size());
+        for (final IErlImport imp : imports) {
+            importModules.add(imp.getImportModule());
+        }
+        final List<OtpErlangObject> res = ErlideDoc.getProposalsWithDoc(
+                backend, importModules, prefix, stateDir);
+        int i = 0;
+        for (final IErlImport imp : imports) {
+            addFunctionProposalsWithDoc(offset, prefix, result, res.get(i++),
+                    imp, false);
         }
         return result;
     }
@@ -50,9 +50,17 @@ public class ErlReconcilerStrategy implements IErlReconcilingStrategy,
     }
 
     public void initialReconcile() {
-        fModule = fEditor.getModule();
+        final IErlModule module = fEditor.getModule();
         ErlLogger.debug("## initial reconcile "
-                + (fModule != null ? fModule.getName() : ""));
+                + (module != null ? module.getName() : ""));
+        // called again on reset, the module counts the editors it is open in
+        if (module == fModule) {
+            return;
+        }
+        if (fModule != null) {
+            fModule.finalReconcile();
+        }
+        fModule = module;
         if (fModule != null) {
             fModule.initialReconcile();
         }
@@ -66,6 +74,7 @@ public class ErlReconcilerStrategy implements IErlReconcilingStrategy,
     public void uninstall() {
         if (fModule != null) {
             fModule.finalReconcile();
+            fModule = null;
         }
     }
 
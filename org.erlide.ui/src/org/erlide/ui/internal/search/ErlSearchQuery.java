@@ -3,6 +3,9 @@ package org.erlide.ui.internal.search;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -15,16 +18,26 @@ import org.eclipse.search.ui.text.Match;
 import org.erlide.core.ErlangPlugin;
 import org.erlide.core.erlang.ErlangCore;
 import org.erlide.core.search.ModuleLineFunctionArityRef;
+import org.erlide.jinterface.backend.BackendException;
+import org.erlide.jinterface.backend.events.EventDaemon;
+import org.erlide.jinterface.backend.events.EventHandler;
+import org.erlide.jinterface.util.ErlLogger;
 import org.erlide.runtime.backend.ErlideBackend;
+import org.erlide.ui.ErlideUIPlugin;
+
+import com.ericsson.otp.erlang.OtpErlangObject;
 
 import erlang.ErlangSearchPattern;
 import erlang.ErlideSearchServer;
 
 public class ErlSearchQuery implements ISearchQuery {
+	private static final AtomicLong nextSearchId = new AtomicLong();
+	// how long to wait for the next event of the search server
+	private static final long SEARCH_TIMEOUT = 50000;
+
 	private final ErlangSearchPattern pattern;
 	private final Collection<IResource> scope;
 	private ErlangSearchResult fSearchResult;
-	private List<ModuleLineFunctionArityRef> fResult;
 
 	private String stateDirCached = null;
 	private final String scopeDecsription;
@@ -41,7 +54,8 @@ public class ErlSearchQuery implements ISearchQuery {
 	}
 
 	public boolean canRunInBackground() {
-		return false;
+		// the results are shown as they arrive
+		return true;
 	}
 
 	public String getLabel() {
@@ -59,21 +73,84 @@ public class ErlSearchQuery implements ISearchQuery {
 			throws OperationCanceledException {
 		final ErlideBackend backend = ErlangCore.getBackendManager()
 				.getIdeBackend();
-		fResult = ErlideSearchServer.findRefs(backend, pattern, scope,
-				getStateDir());
-		final List<Match> l = new ArrayList<Match>(fResult.size());
-		final List<ErlangSearchElement> result = new ArrayList<ErlangSearchElement>(
-				fResult.size());
-		for (final ModuleLineFunctionArityRef ref : fResult) {
-			final Match m = SearchUtil.createMatch(ref);
-			l.add(m);
-			result.add((ErlangSearchElement) m.getElement());
+		final ErlangSearchResult searchResult = (ErlangSearchResult) getSearchResult();
+		searchResult.removeAll();
+		// the matches are added by the handler as the server finds them
+		final long id = nextSearchId.incrementAndGet();
+		final SearchEventHandler handler = new SearchEventHandler(id,
+				searchResult);
+		final EventDaemon daemon = backend.getEventDaemon();
+		daemon.addHandler(ErlideSearchServer.FIND_REFS_EVENT, handler);
+		try {
+			ErlideSearchServer.startFindRefs(backend, pattern, scope,
+					getStateDir(), id);
+			while (!handler.done.await(50, TimeUnit.MILLISECONDS)) {
+				if (monitor.isCanceled()) {
+					ErlideSearchServer.cancelFindRefs(backend, id);
+					return Status.CANCEL_STATUS;
+				}
+				if (System.currentTimeMillis() - handler.lastEvent
+						> SEARCH_TIMEOUT) {
+					ErlideSearchServer.cancelFindRefs(backend, id);
+					return new Status(IStatus.ERROR, ErlideUIPlugin.PLUGIN_ID,
+							"Timeout waiting for search results");
+				}
+			}
+		} catch (final BackendException e) {
+			ErlLogger.error(e);
+		} catch (final InterruptedException e) {
+			ErlideSearchServer.cancelFindRefs(backend, id);
+			return Status.CANCEL_STATUS;
+		} finally {
+			daemon.removeHandler(handler);
 		}
-		fSearchResult.setResult(result);
-		fSearchResult.addMatches(l.toArray(new Match[l.size()]));
 		return Status.OK_STATUS;
 	}
 
+	private static class SearchEventHandler extends EventHandler {
+		private final long id;
+		private final ErlangSearchResult searchResult;
+		final CountDownLatch done = new CountDownLatch(1);
+		// when the last event of this search arrived, or the search started
+		volatile long lastEvent = System.currentTimeMillis();
+
+		SearchEventHandler(final long id, final ErlangSearchResult searchResult) {
+			this.id = id;
+			this.searchResult = searchResult;
+		}
+
+		@Override
+		protected void doHandleMsg(final OtpErlangObject msg) throws Exception {
+			final OtpErlangObject event = getStandardEvent(msg,
+					ErlideSearchServer.FIND_REFS_EVENT);
+			if (event == null) {
+				return;
+			}
+			final List<ModuleLineFunctionArityRef> refs = new ArrayList<ModuleLineFunctionArityRef>();
+			final boolean finished = ErlideSearchServer.getSearchEvent(event,
+					id, refs);
+			if (finished || !refs.isEmpty()) {
+				// an event of this search
+				lastEvent = System.currentTimeMillis();
+			}
+			if (!refs.isEmpty()) {
+				final List<Match> l = new ArrayList<Match>(refs.size());
+				final List<ErlangSearchElement> result = new ArrayList<ErlangSearchElement>(
+						refs.size());
+				for (final ModuleLineFunctionArityRef ref : refs) {
+					final Match m = SearchUtil.createMatch(ref);
+					l.add(m);
+					result.add((ErlangSearchElement) m.getElement());
+				}
+				searchResult.addResult(result);
+				searchResult.addMatches(l.toArray(new Match[l.size()]));
+			}
+			if (finished) {
+				done.countDown();
+			}
+		}
+	}
+
 	private String getStateDir() {
 		if (stateDirCached == null) {
 			stateDirCached = ErlangPlugin.getDefault().getStateLocation()
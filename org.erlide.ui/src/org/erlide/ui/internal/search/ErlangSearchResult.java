@@ -124,6 +124,10 @@ public class ErlangSearchResult extends AbstractTextSearchResult implements
         this.result = result;
     }
 
+    public synchronized void addResult(final List<ErlangSearchElement> more) {
+        result.addAll(more);
+    }
+
     private static final Match[] NO_MATCHES = new Match[0];
 
     public Match[] computeContainedMatches(
@@ -99,7 +99,7 @@ public class ProcessListView extends ViewPart {
 			if (bk == null) {
 				return new OtpErlangObject[] {};
 			}
-			bk.getEventDaemon().addHandler(handler);
+			bk.getEventDaemon().addHandler("processlist", handler);
 
 			final OtpErlangList r = ErlideProclist.getProcessList(bk);
 			if (r.arity() == 0) {